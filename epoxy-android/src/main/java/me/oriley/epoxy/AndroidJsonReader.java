@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+
+/**
+ * A {@link JsonReader} over an {@code android.util.JsonReader}, for binding JSON that is already being
+ * read with the platform parser, as {@code Epoxy.fromJson(android.util.JsonReader, Type)} used to:
+ * <pre>{@code
+ * epoxy.fromJson(new AndroidJsonReader(reader), type);
+ * }</pre>
+ * Every call goes through the platform reader's string based API, so prefer {@link Utf8JsonReader}
+ * for new code.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class AndroidJsonReader extends JsonReader {
+
+    @NonNull
+    private final android.util.JsonReader mDelegate;
+
+
+    public AndroidJsonReader(@NonNull android.util.JsonReader delegate) {
+        mDelegate = delegate;
+    }
+
+
+    @Override
+    public void beginArray() throws IOException {
+        mDelegate.beginArray();
+    }
+
+    @Override
+    public void endArray() throws IOException {
+        mDelegate.endArray();
+    }
+
+    @Override
+    public void beginObject() throws IOException {
+        mDelegate.beginObject();
+    }
+
+    @Override
+    public void endObject() throws IOException {
+        mDelegate.endObject();
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        return mDelegate.hasNext();
+    }
+
+    @NonNull
+    @Override
+    public JsonToken peek() throws IOException {
+        android.util.JsonToken token = mDelegate.peek();
+        switch (token) {
+            case BEGIN_ARRAY:
+                return JsonToken.BEGIN_ARRAY;
+            case END_ARRAY:
+                return JsonToken.END_ARRAY;
+            case BEGIN_OBJECT:
+                return JsonToken.BEGIN_OBJECT;
+            case END_OBJECT:
+                return JsonToken.END_OBJECT;
+            case NAME:
+                return JsonToken.NAME;
+            case STRING:
+                return JsonToken.STRING;
+            case NUMBER:
+                return JsonToken.NUMBER;
+            case BOOLEAN:
+                return JsonToken.BOOLEAN;
+            case NULL:
+                return JsonToken.NULL;
+            case END_DOCUMENT:
+                return JsonToken.END_DOCUMENT;
+            default:
+                throw new AssertionError("Unknown token " + token);
+        }
+    }
+
+    @NonNull
+    @Override
+    public String nextName() throws IOException {
+        return mDelegate.nextName();
+    }
+
+    @NonNull
+    @Override
+    public String nextString() throws IOException {
+        return mDelegate.nextString();
+    }
+
+    @Override
+    public boolean nextBoolean() throws IOException {
+        return mDelegate.nextBoolean();
+    }
+
+    @Override
+    public void nextNull() throws IOException {
+        mDelegate.nextNull();
+    }
+
+    @Override
+    public double nextDouble() throws IOException {
+        return mDelegate.nextDouble();
+    }
+
+    @Override
+    public long nextLong() throws IOException {
+        return mDelegate.nextLong();
+    }
+
+    @Override
+    public int nextInt() throws IOException {
+        return mDelegate.nextInt();
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        mDelegate.skipValue();
+    }
+
+    @Override
+    public void close() throws IOException {
+        mDelegate.close();
+    }
+
+    @Override
+    public String toString() {
+        return mDelegate.toString();
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+
+/**
+ * A {@link JsonWriter} over an {@code android.util.JsonWriter}, for writing values into JSON that is
+ * already being written with the platform writer, as {@code Epoxy.toJson(android.util.JsonWriter, T, Type)}
+ * used to:
+ * <pre>{@code
+ * epoxy.toJson(new AndroidJsonWriter(writer), value, type);
+ * }</pre>
+ * Every call goes through the platform writer's string based API, so prefer {@link Utf8JsonWriter}
+ * for new code.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class AndroidJsonWriter extends JsonWriter {
+
+    @NonNull
+    private final android.util.JsonWriter mDelegate;
+
+
+    public AndroidJsonWriter(@NonNull android.util.JsonWriter delegate) {
+        mDelegate = delegate;
+    }
+
+
+    @NonNull
+    @Override
+    public JsonWriter beginArray() throws IOException {
+        mDelegate.beginArray();
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter endArray() throws IOException {
+        mDelegate.endArray();
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter beginObject() throws IOException {
+        mDelegate.beginObject();
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter endObject() throws IOException {
+        mDelegate.endObject();
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter name(@NonNull String name) throws IOException {
+        mDelegate.name(name);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter value(@Nullable String value) throws IOException {
+        mDelegate.value(value);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter nullValue() throws IOException {
+        mDelegate.nullValue();
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter value(boolean value) throws IOException {
+        mDelegate.value(value);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter value(double value) throws IOException {
+        mDelegate.value(value);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter value(long value) throws IOException {
+        mDelegate.value(value);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter value(@Nullable Number value) throws IOException {
+        mDelegate.value(value);
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        mDelegate.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        mDelegate.close();
+    }
+
+    @Override
+    public String toString() {
+        return mDelegate.toString();
+    }
+}
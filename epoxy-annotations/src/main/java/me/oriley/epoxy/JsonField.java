@@ -27,4 +27,10 @@ import java.lang.annotation.Target;
 public @interface JsonField {
 
     String value();
+
+    /**
+     * Whether a {@code String} field is read through a cache of the values seen before, so that values
+     * repeated across many objects share one instance.
+     */
+    boolean intern() default false;
 }
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy.benchmarks;
+
+import me.oriley.epoxy.Epoxy;
+import me.oriley.epoxy.JsonAdapter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link Epoxy#typeAdapter(java.lang.reflect.Type)}. The first call on a fresh instance builds
+ * the adapter graph for the type, which is what an app pays on its first request; later calls hit the cache.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AdapterLookupBenchmark {
+
+    @Param({"NUMERIC", "STRING", "NESTED"})
+    Fixtures.Shape shape;
+
+    /**
+     * Populated by the first {@link #cachedCall()} during warmup, so that {@link #coldStart()} still sees
+     * unloaded classes.
+     */
+    private Epoxy mEpoxy;
+
+    @Setup
+    public void setUp() {
+        mEpoxy = new Epoxy();
+    }
+
+    /**
+     * The very first lookup in each fork, including class loading and registry discovery.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Fork(20)
+    public JsonAdapter<?> coldStart() {
+        return new Epoxy().typeAdapter(shape.mType);
+    }
+
+    /**
+     * The first lookup on a fresh instance once classes are loaded.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public JsonAdapter<?> firstCall() {
+        return new Epoxy().typeAdapter(shape.mType);
+    }
+
+    /**
+     * A lookup that hits the cache.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public JsonAdapter<?> cachedCall() {
+        return mEpoxy.typeAdapter(shape.mType);
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy.benchmarks;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import me.oriley.epoxy.JsonReader;
+import me.oriley.epoxy.JsonToken;
+import me.oriley.epoxy.Utf8JsonReader;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH result files written with {@code -rf json}, printing the change in score and in
+ * allocation per operation for every benchmark they share.
+ * <p>
+ * Usage: {@code BenchmarkComparison <baseline.json> <current.json> [threshold percent]}. Exits with
+ * status 1 if any benchmark got worse by more than the threshold, which defaults to 5%.
+ */
+public final class BenchmarkComparison {
+
+    private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+    private static final String ROW_FORMAT = "%-70s %16s %16s %9s%s%n";
+
+
+    private BenchmarkComparison() {
+        throw new IllegalAccessError("no instances");
+    }
+
+
+    public static void main(@NonNull String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkComparison <baseline.json> <current.json> [threshold percent]");
+            System.exit(2);
+        }
+        Map<String, Result> baseline = read(args[0]);
+        Map<String, Result> current = read(args[1]);
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 5;
+
+        int regressions = 0;
+        System.out.printf(Locale.ROOT, ROW_FORMAT, "Benchmark", "Baseline", "Current", "Change", "");
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            Result after = entry.getValue();
+            Result before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf(Locale.ROOT, ROW_FORMAT, entry.getKey(), "-",
+                        format(after.mScore, after.mUnit), "new", "");
+                continue;
+            }
+            if (printRow(entry.getKey(), before.mScore, after.mScore, after.mUnit, after.higherIsBetter(),
+                    threshold)) {
+                regressions++;
+            }
+            if (before.mAllocation != null && after.mAllocation != null) {
+                if (printRow("  " + ALLOCATION_METRIC, before.mAllocation, after.mAllocation, "B/op", false,
+                        threshold)) {
+                    regressions++;
+                }
+            }
+        }
+        for (String key : baseline.keySet()) {
+            if (!current.containsKey(key)) {
+                System.out.printf(Locale.ROOT, ROW_FORMAT, key, format(baseline.get(key).mScore,
+                        baseline.get(key).mUnit), "-", "removed", "");
+            }
+        }
+
+        System.out.printf(Locale.ROOT, "%n%d regression(s) beyond %.1f%%%n", regressions, threshold);
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+
+    /**
+     * Prints one comparison and returns whether it is a regression.
+     */
+    private static boolean printRow(@NonNull String label, double before, double after, @NonNull String unit,
+                                    boolean higherIsBetter, double threshold) {
+        double change = before == 0 ? 0 : (after - before) / before * 100;
+        boolean regression = higherIsBetter ? change < -threshold : change > threshold;
+        System.out.printf(Locale.ROOT, ROW_FORMAT, label, format(before, unit), format(after, unit),
+                String.format(Locale.ROOT, "%+.1f%%", change), regression ? "  REGRESSION" : "");
+        return regression;
+    }
+
+    @NonNull
+    private static String format(double score, @NonNull String unit) {
+        return String.format(Locale.ROOT, "%.3f %s", score, unit);
+    }
+
+    /**
+     * Reads a JMH result file, keyed on benchmark name plus parameters.
+     */
+    @NonNull
+    private static Map<String, Result> read(@NonNull String path) throws IOException {
+        Map<String, Result> results = new TreeMap<>();
+        try (InputStream stream = new FileInputStream(path)) {
+            JsonReader reader = new Utf8JsonReader(stream);
+            reader.beginArray();
+            while (reader.hasNext()) {
+                Result result = readResult(reader);
+                results.put(result.key(), result);
+            }
+            reader.endArray();
+        }
+        return results;
+    }
+
+    @NonNull
+    private static Result readResult(@NonNull JsonReader reader) throws IOException {
+        Result result = new Result();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "benchmark":
+                    result.mBenchmark = reader.nextString();
+                    break;
+                case "mode":
+                    result.mMode = reader.nextString();
+                    break;
+                case "params":
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        result.mParams.put(reader.nextName(), reader.nextString());
+                    }
+                    reader.endObject();
+                    break;
+                case "primaryMetric":
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        switch (reader.nextName()) {
+                            case "score":
+                                result.mScore = nextScore(reader);
+                                break;
+                            case "scoreUnit":
+                                result.mUnit = reader.nextString();
+                                break;
+                            default:
+                                reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    break;
+                case "secondaryMetrics":
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if (reader.nextName().endsWith(ALLOCATION_METRIC)) {
+                            result.mAllocation = readScore(reader);
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return result;
+    }
+
+    @Nullable
+    private static Double readScore(@NonNull JsonReader reader) throws IOException {
+        Double score = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("score")) {
+                score = nextScore(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return score;
+    }
+
+    /**
+     * JMH writes non-finite scores as strings, such as {@code "NaN"}.
+     */
+    private static double nextScore(@NonNull JsonReader reader) throws IOException {
+        return reader.peek() == JsonToken.STRING ? Double.parseDouble(reader.nextString()) : reader.nextDouble();
+    }
+
+    private static final class Result {
+
+        @NonNull
+        String mBenchmark = "";
+
+        @NonNull
+        String mMode = "";
+
+        @NonNull
+        final Map<String, String> mParams = new TreeMap<>();
+
+        double mScore;
+
+        @NonNull
+        String mUnit = "";
+
+        @Nullable
+        Double mAllocation;
+
+        @NonNull
+        String key() {
+            String name = mBenchmark.substring(mBenchmark.lastIndexOf('.', mBenchmark.lastIndexOf('.') - 1) + 1);
+            StringBuilder key = new StringBuilder(name).append(" [").append(mMode).append(']');
+            for (Map.Entry<String, String> param : mParams.entrySet()) {
+                key.append(' ').append(param.getKey()).append('=').append(param.getValue());
+            }
+            return key.toString();
+        }
+
+        boolean higherIsBetter() {
+            return "thrpt".equals(mMode);
+        }
+    }
+}
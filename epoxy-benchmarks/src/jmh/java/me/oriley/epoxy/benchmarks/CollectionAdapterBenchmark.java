@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy.benchmarks;
+
+import android.support.annotation.NonNull;
+import me.oriley.epoxy.Epoxy;
+import me.oriley.epoxy.JsonAdapter;
+import me.oriley.epoxy.Types;
+import me.oriley.epoxy.Utf8JsonReader;
+import me.oriley.epoxy.Utf8JsonWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the built in collection and array adapters, driven directly so that the numbers are
+ * not diluted by a surrounding model.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CollectionAdapterBenchmark {
+
+    public enum Kind {
+        STRING_LIST(Types.newParameterizedType(List.class, String.class)),
+        INTEGER_MAP(Types.newParameterizedType(Map.class, String.class, Integer.class)),
+        INT_ARRAY(int[].class),
+        MODEL_LIST(Types.newParameterizedType(List.class, NumericModel.class));
+
+        @NonNull
+        final Type mType;
+
+        Kind(@NonNull Type type) {
+            mType = type;
+        }
+    }
+
+    @Param({"STRING_LIST", "INTEGER_MAP", "INT_ARRAY", "MODEL_LIST"})
+    Kind kind;
+
+    @Param({"10", "1000"})
+    int count;
+
+    private Epoxy mEpoxy;
+    private JsonAdapter<Object> mAdapter;
+    private Object mValue;
+    private byte[] mJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        mEpoxy = new Epoxy();
+        mAdapter = mEpoxy.typeAdapter(kind.mType);
+        mValue = create(kind, count);
+        Utf8JsonWriter writer = new Utf8JsonWriter();
+        mAdapter.toJson(mEpoxy, writer, mValue);
+        mJson = writer.toByteArray();
+    }
+
+    @Benchmark
+    public Object fromJson() throws IOException {
+        return mAdapter.fromJson(mEpoxy, new Utf8JsonReader(mJson));
+    }
+
+    @Benchmark
+    public Utf8JsonWriter toJson() throws IOException {
+        Utf8JsonWriter writer = new Utf8JsonWriter();
+        mAdapter.toJson(mEpoxy, writer, mValue);
+        return writer;
+    }
+
+    @NonNull
+    private static Object create(@NonNull Kind kind, int count) {
+        switch (kind) {
+            case STRING_LIST:
+                return Fixtures.stringList(count);
+            case INTEGER_MAP:
+                return Fixtures.integerMap(count);
+            case INT_ARRAY:
+                return Fixtures.intArray(count);
+            case MODEL_LIST:
+                return Fixtures.numericList(count);
+            default:
+                throw new IllegalArgumentException("Unknown kind " + kind);
+        }
+    }
+}
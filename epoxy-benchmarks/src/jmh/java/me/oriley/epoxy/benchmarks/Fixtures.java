@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy.benchmarks;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Deterministic payloads for the benchmarks, so that results are comparable between runs and releases.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class Fixtures {
+
+    private static final long SEED = 0x5eedL;
+
+    private static final String[] WORDS = {
+            "alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf", "hotel", "india", "juliett",
+            "kilo", "lima", "mike", "november", "oscar", "papa", "quebec", "romeo", "sierra", "tango",
+            "caf\u00e9", "na\u00efve", "\u00fcber", "\u65e5\u672c", "\ud83d\ude00"
+    };
+
+    public enum Shape {
+        NUMERIC(NumericFeed.class),
+        STRING(StringFeed.class),
+        NESTED(TreeNode.class);
+
+        @NonNull
+        final Class<?> mType;
+
+        Shape(@NonNull Class<?> type) {
+            mType = type;
+        }
+    }
+
+    public enum Size {
+        SMALL(1, 4),
+        MEDIUM(100, 8),
+        LARGE(10000, 14);
+
+        /**
+         * Number of items in a feed.
+         */
+        final int mItems;
+
+        /**
+         * Depth of a nested document, which holds 2^depth - 1 nodes.
+         */
+        final int mDepth;
+
+        Size(int items, int depth) {
+            mItems = items;
+            mDepth = depth;
+        }
+    }
+
+
+    private Fixtures() {
+        throw new IllegalAccessError("no instances");
+    }
+
+
+    @NonNull
+    public static Object create(@NonNull Shape shape, @NonNull Size size) {
+        Random random = new Random(SEED);
+        switch (shape) {
+            case NUMERIC:
+                NumericFeed numericFeed = new NumericFeed();
+                numericFeed.items = numericList(size.mItems);
+                return numericFeed;
+            case STRING:
+                StringFeed stringFeed = new StringFeed();
+                stringFeed.items = new ArrayList<>(size.mItems);
+                for (int i = 0; i < size.mItems; i++) {
+                    stringFeed.items.add(stringModel(random, i));
+                }
+                return stringFeed;
+            case NESTED:
+                return treeNode(random, new int[1], size.mDepth);
+            default:
+                throw new IllegalArgumentException("Unknown shape " + shape);
+        }
+    }
+
+    @NonNull
+    private static NumericModel numericModel(@NonNull Random random, int index) {
+        NumericModel model = new NumericModel();
+        model.id = index;
+        model.timestamp = 1500000000000L + random.nextInt(Integer.MAX_VALUE);
+        model.count = random.nextInt(10000);
+        model.latitude = random.nextDouble() * 180 - 90;
+        model.longitude = random.nextDouble() * 360 - 180;
+        model.price = random.nextInt(1000000) / 100.0;
+        model.ratio = random.nextFloat();
+        model.active = random.nextBoolean();
+        model.samples = new double[16];
+        for (int i = 0; i < model.samples.length; i++) {
+            model.samples[i] = random.nextGaussian() * 1000;
+        }
+        model.buckets = new int[8];
+        for (int i = 0; i < model.buckets.length; i++) {
+            model.buckets[i] = random.nextInt();
+        }
+        return model;
+    }
+
+    @NonNull
+    private static StringModel stringModel(@NonNull Random random, int index) {
+        StringModel model = new StringModel();
+        model.id = "user-" + index;
+        model.name = words(random, 2);
+        model.email = word(random) + "." + word(random) + "@example.com";
+        model.bio = words(random, 24) + "\n\t\"" + words(random, 4) + "\"";
+        model.locale = random.nextBoolean() ? "en_AU" : "de_DE";
+        model.tags = new ArrayList<>(4);
+        for (int i = 0; i < 4; i++) {
+            model.tags.add(word(random));
+        }
+        model.attributes = new HashMap<>(8);
+        for (int i = 0; i < 4; i++) {
+            model.attributes.put("key" + i, words(random, 3));
+        }
+        return model;
+    }
+
+    @NonNull
+    private static TreeNode treeNode(@NonNull Random random, @NonNull int[] nextId, int depth) {
+        TreeNode node = new TreeNode();
+        node.id = nextId[0]++;
+        node.label = word(random);
+        node.weight = random.nextDouble();
+        if (depth > 1) {
+            List<TreeNode> children = new ArrayList<>(2);
+            children.add(treeNode(random, nextId, depth - 1));
+            children.add(treeNode(random, nextId, depth - 1));
+            node.children = children;
+        }
+        return node;
+    }
+
+    @NonNull
+    private static String words(@NonNull Random random, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            builder.append(word(random));
+        }
+        return builder.toString();
+    }
+
+    @NonNull
+    private static String word(@NonNull Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    /**
+     * Creates a list of {@code count} numeric models, for collection adapter benchmarks.
+     */
+    @NonNull
+    public static List<NumericModel> numericList(int count) {
+        Random random = new Random(SEED);
+        List<NumericModel> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(numericModel(random, i));
+        }
+        return list;
+    }
+
+    /**
+     * Creates a map of {@code count} entries, for collection adapter benchmarks.
+     */
+    @NonNull
+    public static Map<String, Integer> integerMap(int count) {
+        Random random = new Random(SEED);
+        Map<String, Integer> map = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            map.put("key" + i, random.nextInt());
+        }
+        return map;
+    }
+
+    /**
+     * Creates a list of {@code count} words, for collection adapter benchmarks.
+     */
+    @NonNull
+    public static List<String> stringList(int count) {
+        Random random = new Random(SEED);
+        List<String> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(word(random));
+        }
+        return list;
+    }
+
+    /**
+     * Creates an array of {@code count} random ints, for collection adapter benchmarks.
+     */
+    @NonNull
+    public static int[] intArray(int count) {
+        Random random = new Random(SEED);
+        int[] array = new int[count];
+        for (int i = 0; i < count; i++) {
+            array[i] = random.nextInt();
+        }
+        return array;
+    }
+}
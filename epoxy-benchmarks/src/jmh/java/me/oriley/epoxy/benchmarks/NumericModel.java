@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy.benchmarks;
+
+import me.oriley.epoxy.JsonField;
+
+/**
+ * A reading dominated by numbers, as found in telemetry and pricing feeds.
+ */
+public class NumericModel {
+
+    @JsonField("id")
+    long id;
+
+    @JsonField("timestamp")
+    long timestamp;
+
+    @JsonField("count")
+    int count;
+
+    @JsonField("latitude")
+    double latitude;
+
+    @JsonField("longitude")
+    double longitude;
+
+    @JsonField("price")
+    double price;
+
+    @JsonField("ratio")
+    float ratio;
+
+    @JsonField("active")
+    boolean active;
+
+    @JsonField("samples")
+    double[] samples;
+
+    @JsonField("buckets")
+    int[] buckets;
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy.benchmarks;
+
+import me.oriley.epoxy.Epoxy;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link Epoxy#fromJson(byte[], Class)} and {@link Epoxy#toJsonBytes(Object, Class)} for
+ * each payload shape and size. Run with the GC profiler to see allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PayloadBenchmark {
+
+    @Param({"NUMERIC", "STRING", "NESTED"})
+    Fixtures.Shape shape;
+
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    Fixtures.Size size;
+
+    private Epoxy mEpoxy;
+    private Class<Object> mType;
+    private Object mValue;
+    private byte[] mJson;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() throws IOException {
+        mEpoxy = new Epoxy();
+        mType = (Class<Object>) shape.mType;
+        mValue = Fixtures.create(shape, size);
+        mJson = mEpoxy.toJsonBytes(mValue, mType);
+    }
+
+    @Benchmark
+    public Object fromJson() throws IOException {
+        return mEpoxy.fromJson(mJson, mType);
+    }
+
+    @Benchmark
+    public byte[] toJson() throws IOException {
+        return mEpoxy.toJsonBytes(mValue, mType);
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy.benchmarks;
+
+import me.oriley.epoxy.JsonField;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A record dominated by text, as found in user profiles and content feeds.
+ */
+public class StringModel {
+
+    @JsonField("id")
+    String id;
+
+    @JsonField("name")
+    String name;
+
+    @JsonField("email")
+    String email;
+
+    @JsonField("bio")
+    String bio;
+
+    @JsonField("locale")
+    String locale;
+
+    @JsonField("tags")
+    List<String> tags;
+
+    @JsonField("attributes")
+    Map<String, String> attributes;
+}
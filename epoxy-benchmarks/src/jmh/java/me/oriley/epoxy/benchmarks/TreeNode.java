@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy.benchmarks;
+
+import me.oriley.epoxy.JsonField;
+
+import java.util.List;
+
+/**
+ * A recursive node, used to build deeply nested documents.
+ */
+public class TreeNode {
+
+    @JsonField("id")
+    int id;
+
+    @JsonField("label")
+    String label;
+
+    @JsonField("weight")
+    double weight;
+
+    @JsonField("children")
+    List<TreeNode> children;
+}
@@ -18,9 +18,6 @@ package me.oriley.epoxy;
 
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.util.JsonReader;
-import android.util.JsonToken;
-import android.util.JsonWriter;
 import com.squareup.javapoet.*;
 
 import javax.annotation.processing.Filer;
@@ -30,10 +27,14 @@ import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
 import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
 import java.io.IOException;
-import java.lang.reflect.ParameterizedType;
+import java.io.Writer;
 import java.util.*;
 
 import static java.util.Locale.US;
@@ -42,17 +43,42 @@ import static me.oriley.epoxy.ProcessorUtils.isStatic;
 
 public final class EpoxyProcessor extends BaseProcessor {
 
-    private static final String NAME = "name";
+    private static final String INDEX = "index";
+    private static final String NAMES = "NAMES";
+    private static final String STRINGS = "STRINGS";
     private static final String EPOXY = "epoxy";
     private static final String FROM_JSON = "fromJson";
     private static final String TO_JSON = "toJson";
     private static final String JSON_READER = "jsonReader";
     private static final String JSON_WRITER = "jsonWriter";
     private static final String OBJECT = "object";
+    private static final String FIELDS = "fields";
+    private static final String WANTED = "wanted";
+    private static final String PENDING = "pending";
+
+    /**
+     * Capacity of the cache shared by the interned fields of a generated adapter.
+     */
+    private static final int STRINGS_CAPACITY = 256;
+
+    /**
+     * Option naming the generated registry class. Modules that share a package need distinct names.
+     */
+    static final String OPTION_REGISTRY = "epoxy.registry";
+
+    private static final String REGISTRY_CLASS = "EpoxyAdapterRegistry";
+    private static final String TYPE_NAMES = "TYPE_NAMES";
+    private static final String SERVICES_FILE = "META-INF/services/" + JsonAdapterRegistry.class.getName();
 
     @NonNull
     private Filer mFiler;
 
+    /**
+     * Registries generated in earlier rounds, listed in the services file once processing is over.
+     */
+    @NonNull
+    private final List<String> mRegistries = new ArrayList<>();
+
     @Override
     public synchronized void init(ProcessingEnvironment env) {
         super.init(env);
@@ -66,9 +92,19 @@ public final class EpoxyProcessor extends BaseProcessor {
         return new Class[]{JsonField.class};
     }
 
+    @Override
+    public Set<String> getSupportedOptions() {
+        return Collections.singleton(OPTION_REGISTRY);
+    }
+
     @Override
     public boolean process(@NonNull Set<? extends TypeElement> annotations, @NonNull RoundEnvironment env) {
         if (env.processingOver()) {
+            try {
+                writeServicesFile();
+            } catch (EpoxyException e) {
+                error(e.getMessage());
+            }
             return true;
         }
 
@@ -79,6 +115,12 @@ public final class EpoxyProcessor extends BaseProcessor {
                 String packageName = getPackageName(entry.getKey());
                 writeToFile(packageName, createBinder(entry.getKey(), entry.getValue()));
             }
+
+            if (!bindings.isEmpty()) {
+                ClassName registryName = registryClassName(bindings.keySet());
+                writeToFile(registryName.packageName(), createRegistry(registryName, bindings.keySet()));
+                mRegistries.add(registryName.reflectionName());
+            }
         } catch (EpoxyException e) {
             error(e.getMessage());
             return true;
@@ -87,6 +129,101 @@ public final class EpoxyProcessor extends BaseProcessor {
         return false;
     }
 
+    /**
+     * Creates a registry mapping the binary name of each host type to a factory for its adapter, so
+     * the runtime can find adapters without reflection.
+     */
+    @NonNull
+    private TypeSpec createRegistry(@NonNull ClassName registryName, @NonNull Set<Element> hostTypes) {
+        Map<String, Element> sortedTypes = new TreeMap<>();
+        for (Element hostType : hostTypes) {
+            sortedTypes.put(mElements.getBinaryName((TypeElement) hostType).toString(), hostType);
+        }
+
+        CodeBlock.Builder typeNames = CodeBlock.builder().add("{$>");
+        CodeBlock.Builder create = CodeBlock.builder().beginControlFlow("switch ($N)", INDEX);
+        int index = 0;
+        for (Map.Entry<String, Element> entry : sortedTypes.entrySet()) {
+            Element hostType = entry.getValue();
+            ClassName adapterName = ClassName.get(getPackageName(hostType),
+                    getClassName(hostType) + JsonAdapter.CLASS_SUFFIX);
+            typeNames.add(index > 0 ? ",\n$S" : "\n$S", entry.getKey());
+            create.add("case $L:\n", index).indent().add("return new $T($N);\n", adapterName, EPOXY).unindent();
+            index++;
+        }
+        typeNames.add("$<\n}");
+        create.add("default:\n").indent()
+                .add("throw new $T($S + $N);\n", IllegalArgumentException.class, "Unknown adapter index ", INDEX)
+                .unindent()
+                .endControlFlow();
+
+        return TypeSpec.classBuilder(registryName)
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                .addSuperinterface(JsonAdapterRegistry.class)
+                .addField(FieldSpec.builder(String[].class, TYPE_NAMES)
+                        .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                        .initializer(typeNames.build())
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("typeNames")
+                        .addModifiers(Modifier.PUBLIC)
+                        .addAnnotation(Override.class)
+                        .addAnnotation(NonNull.class)
+                        .returns(String[].class)
+                        .addStatement("return $N.clone()", TYPE_NAMES)
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("create")
+                        .addModifiers(Modifier.PUBLIC)
+                        .addAnnotation(Override.class)
+                        .addAnnotation(NonNull.class)
+                        .addParameter(int.class, INDEX)
+                        .addParameter(ParameterSpec.builder(Epoxy.class, EPOXY).addAnnotation(NonNull.class).build())
+                        .returns(ParameterizedTypeName.get(ClassName.get(JsonAdapter.class),
+                                WildcardTypeName.subtypeOf(Object.class)))
+                        .addCode(create.build())
+                        .build())
+                .build();
+    }
+
+    /**
+     * Returns the name of the registry for this round, taken from the {@value #OPTION_REGISTRY} option or
+     * placed in the first package of the host types otherwise.
+     */
+    @NonNull
+    private ClassName registryClassName(@NonNull Set<Element> hostTypes) {
+        String name = processingEnv.getOptions().get(OPTION_REGISTRY);
+        String suffix = mRegistries.isEmpty() ? "" : String.valueOf(mRegistries.size() + 1);
+        if (name != null && !name.isEmpty()) {
+            int lastDot = name.lastIndexOf('.');
+            return ClassName.get(lastDot == -1 ? "" : name.substring(0, lastDot), name.substring(lastDot + 1) + suffix);
+        }
+
+        String packageName = null;
+        for (Element hostType : hostTypes) {
+            String candidate = getPackageName(hostType);
+            if (packageName == null || candidate.compareTo(packageName) < 0) {
+                packageName = candidate;
+            }
+        }
+        return ClassName.get(packageName, REGISTRY_CLASS + suffix);
+    }
+
+    private void writeServicesFile() throws EpoxyException {
+        if (mRegistries.isEmpty()) {
+            return;
+        }
+        try {
+            FileObject file = mFiler.createResource(StandardLocation.CLASS_OUTPUT, "", SERVICES_FILE);
+            try (Writer writer = file.openWriter()) {
+                for (String registry : mRegistries) {
+                    writer.write(registry);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            throw new EpoxyException(e);
+        }
+    }
+
     @NonNull
     private TypeSpec createBinder(@NonNull Element hostType, @NonNull List<Element> elements) throws EpoxyException {
         // Class type
@@ -101,13 +238,70 @@ public final class EpoxyProcessor extends BaseProcessor {
                 .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
                 .superclass(parameterizedTypeName);
 
+        // Encoded names are matched by the reader and dispatched on their index
+        List<String> names = new ArrayList<>(elements.size());
+        for (Element element : elements) {
+            String name = element.getAnnotation(JsonField.class).value();
+            if (names.contains(name)) {
+                throw new EpoxyException("Duplicate @JsonField name '" + name + "' in " + hostType);
+            }
+            names.add(name);
+        }
+        nameAllocator.newName(NAMES, NAMES);
+        typeSpecBuilder.addField(FieldSpec.builder(JsonOptions.class, NAMES)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .initializer(namesInitializer(names))
+                .build());
+
+        // Interned fields share one cache per adapter
+        boolean intern = false;
+        for (Element element : elements) {
+            if (element.getAnnotation(JsonField.class).intern()) {
+                if (!isAssignable(element.asType(), String.class)) {
+                    throw new EpoxyException("Only String fields can be interned: " + element);
+                }
+                intern = true;
+            }
+        }
+        if (intern) {
+            nameAllocator.newName(STRINGS, STRINGS);
+            typeSpecBuilder.addField(FieldSpec.builder(StringCache.class, STRINGS)
+                    .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                    .initializer("new $T($L)", StringCache.class, STRINGS_CAPACITY)
+                    .build());
+        }
+
+        // Nested adapters are resolved once in the constructor and then called directly
+        CodeBlock.Builder constructorBuilder = CodeBlock.builder();
+        for (Element element : elements) {
+            addAdapterField(typeSpecBuilder, constructorBuilder, nameAllocator, element);
+        }
+
+        MethodSpec constructor = MethodSpec.constructorBuilder()
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(ParameterSpec.builder(Epoxy.class, EPOXY).addAnnotation(NonNull.class).build())
+                .addCode(constructorBuilder.build())
+                .build();
+
         // Create restoreInstance method
         MethodSpec fromMethod = MethodSpec.methodBuilder(FROM_JSON)
                 .addModifiers(Modifier.PUBLIC)
                 .addAnnotation(Override.class)
                 .addParameter(ParameterSpec.builder(Epoxy.class, EPOXY).addAnnotation(NonNull.class).build())
                 .addParameter(ParameterSpec.builder(JsonReader.class, JSON_READER).addAnnotation(NonNull.class).build())
-                .addCode(createFromJsonMethod(typeSpecBuilder, nameAllocator, hostType, elements))
+                .addCode(createFromJsonMethod(nameAllocator, hostType, elements))
+                .addException(IOException.class)
+                .returns(TypeName.get(hostType.asType()))
+                .build();
+
+        // Projected variant, which only binds the wanted fields
+        MethodSpec projectedFromMethod = MethodSpec.methodBuilder(FROM_JSON)
+                .addModifiers(Modifier.PUBLIC)
+                .addAnnotation(Override.class)
+                .addParameter(ParameterSpec.builder(Epoxy.class, EPOXY).addAnnotation(NonNull.class).build())
+                .addParameter(ParameterSpec.builder(JsonReader.class, JSON_READER).addAnnotation(NonNull.class).build())
+                .addParameter(ParameterSpec.builder(FieldSet.class, FIELDS).addAnnotation(NonNull.class).build())
+                .addCode(createProjectedFromJsonMethod(nameAllocator, hostType, elements))
                 .addException(IOException.class)
                 .returns(TypeName.get(hostType.asType()))
                 .build();
@@ -119,16 +313,16 @@ public final class EpoxyProcessor extends BaseProcessor {
                 .addParameter(ParameterSpec.builder(Epoxy.class, EPOXY).addAnnotation(NonNull.class).build())
                 .addParameter(ParameterSpec.builder(JsonWriter.class, JSON_WRITER).addAnnotation(NonNull.class).build())
                 .addParameter(ParameterSpec.builder(TypeName.get(hostType.asType()), OBJECT).addAnnotation(Nullable.class).build())
-                .addCode(createToJsonMethod(typeSpecBuilder, nameAllocator, elements))
+                .addCode(createToJsonMethod(nameAllocator, elements))
                 .addException(IOException.class)
                 .build();
 
-        return typeSpecBuilder.addMethod(fromMethod).addMethod(toMethod).build();
+        return typeSpecBuilder.addMethod(constructor).addMethod(fromMethod).addMethod(projectedFromMethod)
+                .addMethod(toMethod).build();
     }
 
     @NonNull
-    private CodeBlock createToJsonMethod(@NonNull TypeSpec.Builder typeBuilder,
-                                         @NonNull NameAllocator nameAllocator,
+    private CodeBlock createToJsonMethod(@NonNull NameAllocator nameAllocator,
                                          @NonNull List<Element> elements) throws EpoxyException {
         CodeBlock.Builder builder = CodeBlock.builder()
                 .beginControlFlow("if ($N == null)", OBJECT)
@@ -137,32 +331,35 @@ public final class EpoxyProcessor extends BaseProcessor {
                 .endControlFlow()
                 .add("$N.beginObject();\n", JSON_WRITER);
 
-        for (Element element : elements) {
-            addEpoxyStatement(typeBuilder, builder, nameAllocator, element, true);
+        for (int i = 0; i < elements.size(); i++) {
+            // Names are written from their pre-encoded segments in NAMES
+            builder.add("$N.name($N, $L);\n", JSON_WRITER, NAMES, i);
+            addEpoxyStatement(builder, nameAllocator, elements.get(i), true);
         }
 
         return builder.add("$N.endObject();\n", JSON_WRITER).build();
     }
 
     @NonNull
-    private CodeBlock createFromJsonMethod(@NonNull TypeSpec.Builder typeBuilder,
-                                           @NonNull NameAllocator nameAllocator,
+    private CodeBlock createFromJsonMethod(@NonNull NameAllocator nameAllocator,
                                            @NonNull Element hostType,
                                            @NonNull List<Element> elements) throws EpoxyException {
         CodeBlock.Builder builder = CodeBlock.builder()
                 .add("$T $N = new $T();\n", hostType, OBJECT, hostType)
                 .add("$N.beginObject();\n", JSON_READER)
                 .beginControlFlow("while ($N.hasNext())", JSON_READER)
-                .add("$T $N = $N.nextName();\n", String.class, NAME, JSON_READER)
+                .add("int $N = $N.selectName($N);\n", INDEX, JSON_READER, NAMES)
                 .beginControlFlow("if ($N.peek() == $T.NULL)", JSON_READER, JsonToken.class)
                 // TODO: Do we actually want to do this?
                 .add("$N.skipValue();\n", JSON_READER)
                 .add("continue;\n")
                 .endControlFlow()
-                .beginControlFlow("switch ($N)", NAME);
+                .beginControlFlow("switch ($N)", INDEX);
 
-        for (Element element : elements) {
-            addEpoxyStatement(typeBuilder, builder, nameAllocator, element, false);
+        for (int i = 0; i < elements.size(); i++) {
+            builder.beginControlFlow("case $L:", i);
+            addEpoxyStatement(builder, nameAllocator, elements.get(i), false);
+            builder.add("break;\n").endControlFlow();
         }
 
         builder.beginControlFlow("default:")
@@ -176,84 +373,303 @@ public final class EpoxyProcessor extends BaseProcessor {
         return builder.build();
     }
 
-    private void addEpoxyStatement(@NonNull TypeSpec.Builder typeBuilder,
-                                   @NonNull CodeBlock.Builder codeBuilder,
+    /**
+     * As {@link #createFromJsonMethod}, but skips the values of fields outside the {@link FieldSet} and
+     * returns once all of the wanted fields are read if it allows. Models of up to 64 fields keep their
+     * masks in locals; larger ones copy the mask to track which fields are pending.
+     */
+    @NonNull
+    private CodeBlock createProjectedFromJsonMethod(@NonNull NameAllocator nameAllocator,
+                                                    @NonNull Element hostType,
+                                                    @NonNull List<Element> elements) throws EpoxyException {
+        boolean wide = elements.size() > Long.SIZE;
+        CodeBlock.Builder builder = CodeBlock.builder();
+        if (wide) {
+            builder.add("long[] $N = $N.mask($N);\n", WANTED, FIELDS, NAMES)
+                    .add("long[] $N = $N.stopsEarly() ? $N.clone() : null;\n", PENDING, FIELDS, WANTED);
+        } else {
+            builder.add("long $N = $N.mask($N)[0];\n", WANTED, FIELDS, NAMES)
+                    .add("long $N = $N;\n", PENDING, WANTED);
+        }
+        builder.add("$T $N = new $T();\n", hostType, OBJECT, hostType)
+                .add("$N.beginObject();\n", JSON_READER)
+                .beginControlFlow("while ($N.hasNext())", JSON_READER)
+                .add("int $N = $N.selectName($N);\n", INDEX, JSON_READER, NAMES);
+        if (wide) {
+            builder.beginControlFlow("if ($N == -1 || !$T.contains($N, $N))", INDEX, FieldSet.class, WANTED, INDEX);
+        } else {
+            builder.beginControlFlow("if ($N == -1 || ($N & 1L << $N) == 0)", INDEX, WANTED, INDEX);
+        }
+        builder.add("$N.skipValue();\n", JSON_READER)
+                .add("continue;\n")
+                .endControlFlow()
+                .beginControlFlow("if ($N.peek() == $T.NULL)", JSON_READER, JsonToken.class)
+                .add("$N.skipValue();\n", JSON_READER)
+                .nextControlFlow("else")
+                .beginControlFlow("switch ($N)", INDEX);
+
+        for (int i = 0; i < elements.size(); i++) {
+            builder.beginControlFlow("case $L:", i);
+            addEpoxyStatement(builder, nameAllocator, elements.get(i), false);
+            builder.add("break;\n").endControlFlow();
+        }
+
+        builder.endControlFlow()
+                .endControlFlow();
+        if (wide) {
+            builder.beginControlFlow("if ($N != null && $T.clear($N, $N))", PENDING, FieldSet.class, PENDING, INDEX);
+        } else {
+            builder.add("$N &= ~(1L << $N);\n", PENDING, INDEX)
+                    .beginControlFlow("if ($N == 0 && $N.stopsEarly())", PENDING, FIELDS);
+        }
+        builder.add("return $N;\n", OBJECT)
+                .endControlFlow()
+                .endControlFlow()
+                .add("$N.endObject();\n", JSON_READER)
+                .add("return $N;\n", OBJECT);
+
+        return builder.build();
+    }
+
+    private void addEpoxyStatement(@NonNull CodeBlock.Builder codeBuilder,
                                    @NonNull NameAllocator nameAllocator,
                                    @NonNull Element element,
-                                   boolean writer) throws EpoxyException {
+                                   boolean writer) {
         JsonField jsonField = element.getAnnotation(JsonField.class);
+
+        TypeKind primitiveKind = primitiveKind(element.asType());
+        if (primitiveKind != null) {
+            if (writer) {
+                addPrimitiveWriteStatement(codeBuilder, element, primitiveKind);
+            } else {
+                codeBuilder.add("$N.$N = $L;\n", OBJECT, element.getSimpleName(),
+                        primitiveReadExpression(primitiveKind));
+            }
+            return;
+        }
+
+        if (!writer && jsonField.intern()) {
+            codeBuilder.add("$N.$N = $N.nextString($N);\n", OBJECT, element.getSimpleName(), JSON_READER, STRINGS);
+            return;
+        }
+
+        String adapterField = nameAllocator.get(TypeName.get(element.asType()));
         if (writer) {
-            codeBuilder.add("$N.name($S);\n", JSON_WRITER, jsonField.value());
+            codeBuilder.add("$N.toJson($N, $N, $N.$N);\n", adapterField, EPOXY, JSON_WRITER, OBJECT,
+                    element.getSimpleName());
         } else {
-            codeBuilder.beginControlFlow("case $S:", jsonField.value());
+            codeBuilder.add("$N.$N = $N.fromJson($N, $N);\n", OBJECT, element.getSimpleName(), adapterField, EPOXY,
+                    JSON_READER);
+        }
+    }
+
+    /**
+     * Writes a primitive or boxed primitive field straight to the writer, without boxing it or going
+     * through an adapter. Boxed fields write null when they are unset.
+     */
+    private void addPrimitiveWriteStatement(@NonNull CodeBlock.Builder codeBuilder,
+                                            @NonNull Element element,
+                                            @NonNull TypeKind kind) {
+        CodeBlock value;
+        boolean boxed = !element.asType().getKind().isPrimitive();
+        if (boxed) {
+            codeBuilder.beginControlFlow("if ($N.$N == null)", OBJECT, element.getSimpleName())
+                    .add("$N.nullValue();\n", JSON_WRITER)
+                    .nextControlFlow("else");
+            value = CodeBlock.of("$N.$N.$NValue()", OBJECT, element.getSimpleName(), kind.name().toLowerCase(US));
+        } else {
+            value = CodeBlock.of("$N.$N", OBJECT, element.getSimpleName());
+        }
+
+        switch (kind) {
+            case BYTE:
+                codeBuilder.add("$N.value($L & 0xff);\n", JSON_WRITER, value);
+                break;
+            case CHAR:
+                codeBuilder.add("$N.value($T.valueOf($L));\n", JSON_WRITER, String.class, value);
+                break;
+            default:
+                codeBuilder.add("$N.value($L);\n", JSON_WRITER, value);
+                break;
+        }
+
+        if (boxed) {
+            codeBuilder.endControlFlow();
+        }
+    }
+
+    /**
+     * Returns an expression reading a value of the given primitive kind, with the same range checks
+     * as the core adapters.
+     */
+    @NonNull
+    private static CodeBlock primitiveReadExpression(@NonNull TypeKind kind) {
+        switch (kind) {
+            case BOOLEAN:
+                return CodeBlock.of("$N.nextBoolean()", JSON_READER);
+            case BYTE:
+                return CodeBlock.of("(byte) rangeCheckNextInt($N, $S, $T.MIN_VALUE, 0xff)", JSON_READER, "a byte",
+                        Byte.class);
+            case SHORT:
+                return CodeBlock.of("(short) rangeCheckNextInt($N, $S, $T.MIN_VALUE, $T.MAX_VALUE)", JSON_READER,
+                        "a short", Short.class, Short.class);
+            case CHAR:
+                return CodeBlock.of("lengthCheckNextChar($N)", JSON_READER);
+            case INT:
+                return CodeBlock.of("$N.nextInt()", JSON_READER);
+            case LONG:
+                return CodeBlock.of("$N.nextLong()", JSON_READER);
+            case FLOAT:
+                return CodeBlock.of("(float) $N.nextDouble()", JSON_READER);
+            case DOUBLE:
+                return CodeBlock.of("$N.nextDouble()", JSON_READER);
+            default:
+                throw new IllegalArgumentException("Not a primitive kind: " + kind);
+        }
+    }
+
+    /**
+     * Returns the primitive kind of a primitive or boxed primitive type, or null for any other type.
+     */
+    @Nullable
+    private TypeKind primitiveKind(@NonNull TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return type.getKind();
+        }
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        try {
+            return mTypes.unboxedType(type).getKind();
+        } catch (IllegalArgumentException e) {
+            // Not a boxed primitive
+            return null;
+        }
+    }
+
+    @NonNull
+    private static CodeBlock namesInitializer(@NonNull List<String> names) {
+        CodeBlock.Builder builder = CodeBlock.builder().add("$T.of(", JsonOptions.class);
+        for (int i = 0; i < names.size(); i++) {
+            builder.add(i > 0 ? ", $S" : "$S", names.get(i));
         }
+        return builder.add(")").build();
+    }
 
-        String erasedName = erasedType(element.asType());
+    private void addAdapterField(@NonNull TypeSpec.Builder typeBuilder,
+                                 @NonNull CodeBlock.Builder constructorBuilder,
+                                 @NonNull NameAllocator nameAllocator,
+                                 @NonNull Element element) throws EpoxyException {
+        TypeMirror type = element.asType();
+        String erasedName = erasedType(type);
 
         if (List.class.getCanonicalName().equals(erasedName)) {
-            DeclaredType declaredType = (DeclaredType) element.asType();
-            List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
+            List<? extends TypeMirror> typeArguments = ((DeclaredType) type).getTypeArguments();
             if (typeArguments.size() != 1) {
                 throw new EpoxyException("Argument type not specified for list: " + element);
             }
-            TypeMirror elementType = typeArguments.get(0);
-
-            String typeField = "LIST_" + getClassName(asElement(elementType)).toUpperCase(US) + "_TYPE";
-            try {
-                nameAllocator.get(typeField);
-            } catch (Exception e) {
-                // Doesn't exist, add the field
-                nameAllocator.newName(typeField, typeField);
-                typeBuilder.addField(FieldSpec.builder(ParameterizedType.class, typeField)
-                        .initializer("$T.newParameterizedType($T.class, $T.class)", Types.class, List.class,
-                                elementType).addModifiers(Modifier.FINAL, Modifier.PRIVATE).build());
-            }
-
-            if (writer) {
-                codeBuilder.add("$N.toJson($N, $N.$N, $N);\n", EPOXY, JSON_WRITER, OBJECT, element.getSimpleName(), typeField);
-            } else {
-                codeBuilder.add("$N.$N = $N.fromJson($N, $N);\n", OBJECT, element.getSimpleName(), EPOXY, JSON_READER, typeField);
-            }
         } else if (Map.class.getCanonicalName().equals(erasedName)) {
-            DeclaredType declaredType = (DeclaredType) element.asType();
-            List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
+            List<? extends TypeMirror> typeArguments = ((DeclaredType) type).getTypeArguments();
             if (typeArguments.size() != 2) {
                 throw new EpoxyException("Invalid arguments specified for map: " + element);
             }
 
             TypeMirror keyType = typeArguments.get(0);
-            if (!isAssignable(keyType, String.class)) {
-                throw new EpoxyException("Map requires string key types, found " + keyType + ": " + element);
+            if (!isSupportedMapKey(keyType)) {
+                throw new EpoxyException("Map requires String, Integer, Long or enum key types, found " + keyType
+                        + ": " + element);
             }
-
-            TypeMirror valueType = typeArguments.get(1);
-            String typeField = "MAP_" + getClassName(asElement(keyType)).toUpperCase(US) + "_" +
-                    getClassName(asElement(valueType)).toUpperCase(US) + "_TYPE";
-            try {
-                nameAllocator.get(typeField);
-            } catch (Exception e) {
-                // Doesn't exist, add the field
-                nameAllocator.newName(typeField, typeField);
-                typeBuilder.addField(FieldSpec.builder(ParameterizedType.class, typeField)
-                        .initializer("$T.newParameterizedType($T.class, $T.class, $T.class)", Types.class, Map.class,
-                                String.class, valueType).addModifiers(Modifier.FINAL, Modifier.PRIVATE).build());
+        } else if (Lazy.class.getCanonicalName().equals(erasedName)) {
+            List<? extends TypeMirror> typeArguments = ((DeclaredType) type).getTypeArguments();
+            if (typeArguments.size() != 1) {
+                throw new EpoxyException("Value type not specified for lazy field: " + element);
             }
+        }
 
-            if (writer) {
-                codeBuilder.add("$N.toJson($N, $N.$N, $N);\n", EPOXY, JSON_WRITER, OBJECT, element.getSimpleName(), typeField);
-            } else {
-                codeBuilder.add("$N.$N = $N.fromJson($N, $N);\n", OBJECT, element.getSimpleName(), EPOXY, JSON_READER, typeField);
-            }
-        } else {
-            if (writer) {
-                codeBuilder.add("$N.toJson($N, $N.$N, $T.class);\n", EPOXY, JSON_WRITER, OBJECT, element.getSimpleName(), element.asType());
-            } else {
-                codeBuilder.add("$N.$N = $N.fromJson($N, $T.class);\n", OBJECT, element.getSimpleName(), EPOXY, JSON_READER, element.asType());
-            }
+        if (primitiveKind(type) != null) {
+            // Read and written directly
+            return;
         }
 
-        if (!writer) {
-            codeBuilder.add("break;\n").endControlFlow();
+        // Tagged by type rather than name, as types with the same simple name need their own fields
+        TypeName typeName = TypeName.get(type);
+        try {
+            nameAllocator.get(typeName);
+        } catch (IllegalArgumentException e) {
+            // Doesn't exist, add the field
+            String adapterField = nameAllocator.newName(adapterFieldName(type), typeName);
+            TypeName adapterType = ParameterizedTypeName.get(ClassName.get(JsonAdapter.class), typeName.box());
+            typeBuilder.addField(FieldSpec.builder(adapterType, adapterField)
+                    .addModifiers(Modifier.PRIVATE, Modifier.FINAL).build());
+            constructorBuilder.add("$N = $N.typeAdapter($L);\n", adapterField, EPOXY, typeLiteral(type));
+        }
+    }
+
+    private boolean isSupportedMapKey(@NonNull TypeMirror keyType) throws EpoxyException {
+        if (keyType.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        Element keyElement = mTypes.asElement(keyType);
+        return keyElement.getKind() == ElementKind.ENUM || isAssignable(keyType, String.class)
+                || isAssignable(keyType, Integer.class) || isAssignable(keyType, Long.class);
+    }
+
+    /**
+     * Returns an expression for the reflective {@link java.lang.reflect.Type} of {@code type}.
+     */
+    @NonNull
+    private CodeBlock typeLiteral(@NonNull TypeMirror type) throws EpoxyException {
+        switch (type.getKind()) {
+            case DECLARED:
+                DeclaredType declaredType = (DeclaredType) type;
+                List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
+                TypeName rawType = TypeName.get(mTypes.erasure(type));
+                if (typeArguments.isEmpty()) {
+                    return CodeBlock.of("$T.class", rawType);
+                }
+                CodeBlock.Builder builder = CodeBlock.builder().add("$T.newParameterizedType($T.class", Types.class,
+                        rawType);
+                for (TypeMirror typeArgument : typeArguments) {
+                    builder.add(", $L", typeLiteral(typeArgument));
+                }
+                return builder.add(")").build();
+            case ARRAY:
+                TypeMirror componentType = ((ArrayType) type).getComponentType();
+                if (componentType.getKind() == TypeKind.DECLARED
+                        && !((DeclaredType) componentType).getTypeArguments().isEmpty()) {
+                    return CodeBlock.of("$T.arrayOf($L)", Types.class, typeLiteral(componentType));
+                }
+                return CodeBlock.of("$T.class", TypeName.get(type));
+            default:
+                if (type.getKind().isPrimitive()) {
+                    return CodeBlock.of("$T.class", TypeName.get(type));
+                }
+                throw new EpoxyException("Unsupported field type: " + type);
+        }
+    }
+
+    /**
+     * Returns the suggested field name for the adapter of {@code type}, such as {@code LIST_STRING_ADAPTER}.
+     * Different types may share a suggestion, which the name allocator then makes unique.
+     */
+    @NonNull
+    private String adapterFieldName(@NonNull TypeMirror type) {
+        return typeFieldPrefix(type) + "_ADAPTER";
+    }
+
+    @NonNull
+    private String typeFieldPrefix(@NonNull TypeMirror type) {
+        switch (type.getKind()) {
+            case DECLARED:
+                StringBuilder builder = new StringBuilder(getClassName(asElement(type)).toUpperCase(US));
+                for (TypeMirror typeArgument : ((DeclaredType) type).getTypeArguments()) {
+                    builder.append('_').append(typeFieldPrefix(typeArgument));
+                }
+                return builder.toString();
+            case ARRAY:
+                return typeFieldPrefix(((ArrayType) type).getComponentType()) + "_ARRAY";
+            default:
+                return type.toString().toUpperCase(US).replaceAll("[^A-Z0-9_$]", "_");
         }
     }
 
@@ -0,0 +1,279 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.oriley.epoxy;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+import org.junit.Test;
+
+import javax.tools.JavaFileObject;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.common.truth.Truth.assertAbout;
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+import static com.google.testing.compile.JavaSourcesSubjectFactory.javaSources;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public final class EpoxyProcessorTest {
+
+    @Test
+    public void sameSimpleNamesGetTheirOwnAdapterFields() {
+        JavaFileObject first = JavaFileObjects.forSourceLines("test.a.Item",
+                "package test.a;",
+                "",
+                "public class Item {",
+                "    @me.oriley.epoxy.JsonField(\"name\") public String name;",
+                "}");
+        JavaFileObject second = JavaFileObjects.forSourceLines("test.b.Item",
+                "package test.b;",
+                "",
+                "public class Item {",
+                "    @me.oriley.epoxy.JsonField(\"count\") public int count;",
+                "}");
+        JavaFileObject holder = JavaFileObjects.forSourceLines("test.Holder",
+                "package test;",
+                "",
+                "import java.util.List;",
+                "import me.oriley.epoxy.JsonField;",
+                "",
+                "public class Holder {",
+                "    @JsonField(\"a\") public test.a.Item a;",
+                "    @JsonField(\"b\") public test.b.Item b;",
+                "    @JsonField(\"a_list\") public List<test.a.Item> aList;",
+                "    @JsonField(\"b_list\") public List<test.b.Item> bList;",
+                "    @JsonField(\"other_a\") public test.a.Item otherA;",
+                "}");
+
+        assertAbout(javaSources())
+                .that(Arrays.asList(first, second, holder))
+                .processedWith(new EpoxyProcessor())
+                .compilesWithoutError();
+    }
+
+    @Test
+    public void privateFieldsAreRejected() {
+        JavaFileObject source = JavaFileObjects.forSourceLines("test.Item",
+                "package test;",
+                "",
+                "public class Item {",
+                "    @me.oriley.epoxy.JsonField(\"name\") private String name;",
+                "}");
+
+        assertAbout(javaSources())
+                .that(Arrays.asList(source))
+                .processedWith(new EpoxyProcessor())
+                .failsToCompile()
+                .withErrorContaining("Field must not be private: name");
+    }
+
+    @Test
+    public void internOnlyAppliesToStrings() {
+        JavaFileObject source = JavaFileObjects.forSourceLines("test.Item",
+                "package test;",
+                "",
+                "public class Item {",
+                "    @me.oriley.epoxy.JsonField(value = \"count\", intern = true) public Integer count;",
+                "}");
+
+        assertAbout(javaSources())
+                .that(Arrays.asList(source))
+                .processedWith(new EpoxyProcessor())
+                .failsToCompile()
+                .withErrorContaining("Only String fields can be interned: count");
+    }
+
+    @Test
+    public void internedFieldsShareOneCachePerModel() throws Exception {
+        LoadedAdapter adapter = compile("test.Item",
+                "package test;",
+                "",
+                "import me.oriley.epoxy.JsonField;",
+                "",
+                "public class Item {",
+                "    @JsonField(value = \"kind\", intern = true) public String kind;",
+                "    @JsonField(\"name\") public String name;",
+                "}");
+        String json = "{\"kind\":\"fruit\",\"name\":\"apple\"}";
+
+        Object first = adapter.read(json);
+        Object second = adapter.read(json);
+        // The cache is static, so even adapters made by other Epoxy instances share it
+        Object third = adapter.withNewEpoxy().read(json);
+        assertEquals("fruit", adapter.get(first, "kind"));
+        assertSame(adapter.get(first, "kind"), adapter.get(second, "kind"));
+        assertSame(adapter.get(first, "kind"), adapter.get(third, "kind"));
+        assertNotSame(adapter.get(first, "name"), adapter.get(second, "name"));
+        assertNull(adapter.get(adapter.read("{\"kind\":null}"), "kind"));
+    }
+
+    @Test
+    public void projectionBindsOnlyWantedFields() throws Exception {
+        LoadedAdapter adapter = compile("test.Item",
+                "package test;",
+                "",
+                "import me.oriley.epoxy.JsonField;",
+                "",
+                "public class Item {",
+                "    @JsonField(\"id\") public long id;",
+                "    @JsonField(\"name\") public String name;",
+                "    @JsonField(\"count\") public Integer count;",
+                "    @JsonField(\"flag\") public boolean flag;",
+                "}");
+        String json = "{\"name\":\"a\",\"extra\":{\"id\":[1,{}]},\"count\":3,\"flag\":true,\"id\":7}";
+
+        Object item = adapter.read(json, FieldSet.of("id", "count", "missing"));
+        assertEquals(7L, adapter.get(item, "id"));
+        assertNull(adapter.get(item, "name"));
+        assertEquals(3, adapter.get(item, "count"));
+        assertEquals(false, adapter.get(item, "flag"));
+
+        item = adapter.read(json, FieldSet.of());
+        assertEquals(0L, adapter.get(item, "id"));
+        assertNull(adapter.get(item, "count"));
+
+        // Nulls count as read, and stopping early leaves the reader just past the last wanted value
+        Utf8JsonReader reader = reader("{\"count\":null,\"name\":\"b\",\"flag\":true,\"id\":1}");
+        item = adapter.read(reader, FieldSet.of("name", "count").stopEarly());
+        assertEquals("b", adapter.get(item, "name"));
+        assertEquals("flag", reader.nextName());
+    }
+
+    @Test
+    public void projectionOfWideModels() throws Exception {
+        String[] lines = new String[70 + 3];
+        lines[0] = "package test;";
+        lines[1] = "public class Wide {";
+        for (int i = 0; i < 70; i++) {
+            lines[i + 2] = "    @me.oriley.epoxy.JsonField(\"f" + i + "\") public int f" + i + ";";
+        }
+        lines[lines.length - 1] = "}";
+        LoadedAdapter adapter = compile("test.Wide", lines);
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 69; i >= 0; i--) {
+            json.append("\"f").append(i).append("\":").append(i + 1).append(i == 0 ? "}" : ",");
+        }
+
+        Object wide = adapter.read(json.toString(), FieldSet.of("f3", "f68"));
+        for (int i = 0; i < 70; i++) {
+            assertEquals(i == 3 || i == 68 ? i + 1 : 0, adapter.get(wide, "f" + i));
+        }
+
+        Utf8JsonReader reader = reader(json.toString());
+        FieldSet fields = FieldSet.of("f64", "f65").stopEarly();
+        wide = adapter.read(reader, fields);
+        assertEquals(65, adapter.get(wide, "f64"));
+        assertEquals(66, adapter.get(wide, "f65"));
+        assertEquals("f63", reader.nextName());
+        // The shared mask is not consumed by stopping early
+        wide = adapter.read(reader(json.toString()), fields);
+        assertEquals(65, adapter.get(wide, "f64"));
+    }
+
+    /**
+     * Compiles a model with the processor and loads its generated adapter.
+     */
+    private static LoadedAdapter compile(String name, String... lines) throws Exception {
+        Compilation compilation = javac()
+                .withProcessors(new EpoxyProcessor())
+                .compile(JavaFileObjects.forSourceLines(name, lines));
+        assertThat(compilation).succeeded();
+
+        final Map<String, byte[]> classes = new HashMap<>();
+        for (JavaFileObject file : compilation.generatedFiles()) {
+            if (file.getKind() == JavaFileObject.Kind.CLASS) {
+                String path = file.toUri().getPath();
+                String className = path.substring(path.indexOf("/test/") + 1, path.length() - ".class".length());
+                classes.put(className.replace('/', '.'), readFully(file));
+            }
+        }
+        ClassLoader loader = new ClassLoader(EpoxyProcessorTest.class.getClassLoader()) {
+            @Override
+            protected Class<?> findClass(String className) throws ClassNotFoundException {
+                byte[] bytes = classes.get(className);
+                if (bytes == null) {
+                    throw new ClassNotFoundException(className);
+                }
+                return defineClass(className, bytes, 0, bytes.length);
+            }
+        };
+        Epoxy epoxy = new Epoxy();
+        JsonAdapter<?> adapter = (JsonAdapter<?>) loader.loadClass(name + JsonAdapter.CLASS_SUFFIX)
+                .getConstructor(Epoxy.class)
+                .newInstance(epoxy);
+        return new LoadedAdapter(epoxy, adapter);
+    }
+
+    private static byte[] readFully(JavaFileObject file) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = file.openInputStream()) {
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static Utf8JsonReader reader(String json) {
+        return new Utf8JsonReader(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static final class LoadedAdapter {
+
+        private final Epoxy mEpoxy;
+        private final JsonAdapter<?> mAdapter;
+
+        LoadedAdapter(Epoxy epoxy, JsonAdapter<?> adapter) {
+            mEpoxy = epoxy;
+            mAdapter = adapter;
+        }
+
+        LoadedAdapter withNewEpoxy() throws ReflectiveOperationException {
+            Epoxy epoxy = new Epoxy();
+            return new LoadedAdapter(epoxy, mAdapter.getClass().getConstructor(Epoxy.class).newInstance(epoxy));
+        }
+
+        Object read(String json) throws IOException {
+            return mAdapter.fromJson(mEpoxy, reader(json));
+        }
+
+        Object read(String json, FieldSet fields) throws IOException {
+            return read(reader(json), fields);
+        }
+
+        Object read(JsonReader reader, FieldSet fields) throws IOException {
+            return mAdapter.fromJson(mEpoxy, reader, fields);
+        }
+
+        Object get(Object model, String field) throws ReflectiveOperationException {
+            Field f = model.getClass().getField(field);
+            return f.get(model);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Finds the boundaries of the elements of a top level JSON array without decoding them, tracking only
+ * nesting depth and string state. Elements are not validated, that is left to whoever decodes them.
+ */
+final class ArrayScanner {
+
+    private static final byte STRUCTURAL = 1;
+    private static final byte QUOTE = 2;
+    private static final byte ESCAPE = 8;
+    private static final byte WHITESPACE = 4;
+
+    /**
+     * Outside of strings: nonzero for bytes that may change depth or end an element.
+     */
+    private static final byte[] VALUE_BYTES = new byte[256];
+
+    /**
+     * Inside strings: nonzero for bytes that may end the string.
+     */
+    private static final byte[] STRING_BYTES = new byte[256];
+
+    static {
+        VALUE_BYTES['['] = STRUCTURAL;
+        VALUE_BYTES[']'] = STRUCTURAL;
+        VALUE_BYTES['{'] = STRUCTURAL;
+        VALUE_BYTES['}'] = STRUCTURAL;
+        VALUE_BYTES[','] = STRUCTURAL;
+        VALUE_BYTES['"'] = QUOTE;
+        STRING_BYTES['"'] = QUOTE;
+        STRING_BYTES['\\'] = ESCAPE;
+        VALUE_BYTES[' '] = WHITESPACE;
+        VALUE_BYTES['\t'] = WHITESPACE;
+        VALUE_BYTES['\n'] = WHITESPACE;
+        VALUE_BYTES['\r'] = WHITESPACE;
+    }
+
+
+    private ArrayScanner() {
+        throw new IllegalAccessError("no instances");
+    }
+
+
+    /**
+     * Returns the start and end offsets of each element of the array in {@code length} bytes of
+     * {@code buffer} from {@code offset}, as pairs: {@code [start0, end0, start1, end1, ...]}. Ends are
+     * exclusive and exclude trailing whitespace.
+     */
+    @NonNull
+    static int[] scan(@NonNull byte[] buffer, int offset, int length) throws IOException {
+        int limit = offset + length;
+        int p = skipWhitespace(buffer, offset, limit);
+        if (p == limit || buffer[p] != '[') {
+            throw syntaxError("Expected BEGIN_ARRAY", p, offset);
+        }
+        p = skipWhitespace(buffer, p + 1, limit);
+        int[] bounds = new int[64];
+        int count = 0;
+        if (p < limit && buffer[p] == ']') {
+            p++;
+        } else {
+            while (true) {
+                int start = p;
+                int depth = 0;
+                int end = -1;
+                while (end == -1) {
+                    // Skip everything that can't change the structure
+                    while (p < limit && (VALUE_BYTES[buffer[p] & 0xff] & ~WHITESPACE) == 0) {
+                        p++;
+                    }
+                    if (p == limit) {
+                        throw new EOFException("End of input at offset " + (p - offset));
+                    }
+                    switch (buffer[p]) {
+                        case '"':
+                            p = skipString(buffer, p + 1, limit, offset);
+                            continue;
+                        case '[':
+                        case '{':
+                            depth++;
+                            break;
+                        case '}':
+                            if (--depth < 0) {
+                                throw syntaxError("Unexpected '}'", p, offset);
+                            }
+                            break;
+                        case ']':
+                            if (depth == 0) {
+                                end = p;
+                                continue;
+                            }
+                            depth--;
+                            break;
+                        case ',':
+                            if (depth == 0) {
+                                end = p;
+                                continue;
+                            }
+                            break;
+                    }
+                    p++;
+                }
+                int trimmed = end;
+                while (trimmed > start && VALUE_BYTES[buffer[trimmed - 1] & 0xff] == WHITESPACE) {
+                    trimmed--;
+                }
+                if (trimmed == start) {
+                    throw syntaxError("Expected value", start, offset);
+                }
+                if (count + 2 > bounds.length) {
+                    bounds = Arrays.copyOf(bounds, bounds.length * 2);
+                }
+                bounds[count++] = start;
+                bounds[count++] = trimmed;
+                p = end + 1;
+                if (buffer[end] == ']') {
+                    break;
+                }
+                p = skipWhitespace(buffer, p, limit);
+            }
+        }
+        p = skipWhitespace(buffer, p, limit);
+        if (p != limit) {
+            throw syntaxError("Expected end of document", p, offset);
+        }
+        return Arrays.copyOf(bounds, count);
+    }
+
+    /**
+     * Returns the offset just past the closing quote of the string whose contents start at {@code p}.
+     */
+    private static int skipString(@NonNull byte[] buffer, int p, int limit, int offset) throws IOException {
+        while (true) {
+            while (p < limit && STRING_BYTES[buffer[p] & 0xff] == 0) {
+                p++;
+            }
+            if (p >= limit) {
+                throw new EOFException("Unterminated string at offset " + (p - offset));
+            }
+            if (buffer[p] == '"') {
+                return p + 1;
+            }
+            // Skip the escaped byte too, so that an escaped quote doesn't end the string
+            p += 2;
+        }
+    }
+
+    private static int skipWhitespace(@NonNull byte[] buffer, int p, int limit) {
+        while (p < limit && VALUE_BYTES[buffer[p] & 0xff] == WHITESPACE) {
+            p++;
+        }
+        return p;
+    }
+
+    @NonNull
+    private static IOException syntaxError(@NonNull String message, int p, int offset) {
+        return new MalformedJsonException(message + " at offset " + (p - offset));
+    }
+}
@@ -0,0 +1,827 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+import static me.oriley.epoxy.CborWriter.*;
+
+/**
+ * A {@link JsonReader} over CBOR (RFC 7049), presenting it as the same token stream as JSON so that
+ * generated and core adapters read it without any changes. Integers and floats are decoded from their
+ * binary form, and map keys must be text strings. Tags are skipped, and undefined reads as null.
+ * Byte strings have no JSON equivalent and are rejected.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class CborReader extends JsonReader {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final int PEEKED_NONE = 0;
+    private static final int PEEKED_BEGIN_OBJECT = 1;
+    private static final int PEEKED_END_OBJECT = 2;
+    private static final int PEEKED_BEGIN_ARRAY = 3;
+    private static final int PEEKED_END_ARRAY = 4;
+    private static final int PEEKED_TRUE = 5;
+    private static final int PEEKED_FALSE = 6;
+    private static final int PEEKED_NULL = 7;
+    private static final int PEEKED_TEXT = 8;
+    private static final int PEEKED_NAME = 9;
+    private static final int PEEKED_UNSIGNED = 10;
+    private static final int PEEKED_NEGATIVE = 11;
+    private static final int PEEKED_FLOAT = 12;
+    private static final int PEEKED_DOUBLE = 13;
+    private static final int PEEKED_EOF = 14;
+
+    private static final int EMPTY_DOCUMENT = 1;
+    private static final int NONEMPTY_DOCUMENT = 2;
+    private static final int ARRAY = 3;
+    private static final int MAP_KEY = 4;
+    private static final int MAP_VALUE = 5;
+    private static final int CLOSED = 6;
+
+    /**
+     * Remaining items of a definite length container, or pairs of a map. Indefinite containers end
+     * with a break byte instead.
+     */
+    private static final long INDEFINITE = -1;
+
+    @Nullable
+    private final InputStream mSource;
+
+    @NonNull
+    private byte[] mBuffer;
+
+    private int mPos;
+    private int mLimit;
+
+    /**
+     * Bytes of the source that precede {@link #mBuffer}, so that positions can be reported absolutely.
+     */
+    private long mBufferOffset;
+
+    private int mPeeked = PEEKED_NONE;
+
+    /**
+     * The argument of a peeked integer, the byte length of a peeked text string, or the size of a
+     * peeked container, which is {@link #INDEFINITE} if it has none.
+     */
+    private long mPeekedArgument;
+
+    /**
+     * The value of a peeked float.
+     */
+    private double mPeekedDouble;
+
+    @NonNull
+    private int[] mStack = new int[32];
+
+    @NonNull
+    private long[] mRemaining = new long[32];
+
+    private int mStackSize;
+
+
+    public CborReader(@NonNull InputStream source) {
+        mSource = source;
+        mBuffer = new byte[BUFFER_SIZE];
+        mStack[mStackSize++] = EMPTY_DOCUMENT;
+    }
+
+    public CborReader(@NonNull byte[] bytes) {
+        this(bytes, 0, bytes.length);
+    }
+
+    public CborReader(@NonNull byte[] bytes, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > bytes.length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + bytes.length);
+        }
+        mSource = null;
+        mBuffer = bytes;
+        mPos = offset;
+        mLimit = offset + length;
+        mBufferOffset = -offset;
+        mStack[mStackSize++] = EMPTY_DOCUMENT;
+    }
+
+
+    @Override
+    public void beginArray() throws IOException {
+        if (peeked() != PEEKED_BEGIN_ARRAY) {
+            throw unexpected(JsonToken.BEGIN_ARRAY);
+        }
+        push(ARRAY, mPeekedArgument);
+        mPeeked = PEEKED_NONE;
+    }
+
+    @Override
+    public void endArray() throws IOException {
+        if (peeked() != PEEKED_END_ARRAY) {
+            throw unexpected(JsonToken.END_ARRAY);
+        }
+        mStackSize--;
+        mPeeked = PEEKED_NONE;
+    }
+
+    @Override
+    public void beginObject() throws IOException {
+        if (peeked() != PEEKED_BEGIN_OBJECT) {
+            throw unexpected(JsonToken.BEGIN_OBJECT);
+        }
+        push(MAP_KEY, mPeekedArgument);
+        mPeeked = PEEKED_NONE;
+    }
+
+    @Override
+    public void endObject() throws IOException {
+        if (peeked() != PEEKED_END_OBJECT) {
+            throw unexpected(JsonToken.END_OBJECT);
+        }
+        mStackSize--;
+        mPeeked = PEEKED_NONE;
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        int p = peeked();
+        return p != PEEKED_END_OBJECT && p != PEEKED_END_ARRAY && p != PEEKED_EOF;
+    }
+
+    @NonNull
+    @Override
+    public JsonToken peek() throws IOException {
+        switch (peeked()) {
+            case PEEKED_BEGIN_OBJECT:
+                return JsonToken.BEGIN_OBJECT;
+            case PEEKED_END_OBJECT:
+                return JsonToken.END_OBJECT;
+            case PEEKED_BEGIN_ARRAY:
+                return JsonToken.BEGIN_ARRAY;
+            case PEEKED_END_ARRAY:
+                return JsonToken.END_ARRAY;
+            case PEEKED_NAME:
+                return JsonToken.NAME;
+            case PEEKED_TRUE:
+            case PEEKED_FALSE:
+                return JsonToken.BOOLEAN;
+            case PEEKED_NULL:
+                return JsonToken.NULL;
+            case PEEKED_TEXT:
+                return JsonToken.STRING;
+            case PEEKED_UNSIGNED:
+            case PEEKED_NEGATIVE:
+            case PEEKED_FLOAT:
+            case PEEKED_DOUBLE:
+                return JsonToken.NUMBER;
+            case PEEKED_EOF:
+                return JsonToken.END_DOCUMENT;
+            default:
+                throw new AssertionError();
+        }
+    }
+
+    @NonNull
+    @Override
+    public String nextName() throws IOException {
+        if (peeked() != PEEKED_NAME) {
+            throw unexpected(JsonToken.NAME);
+        }
+        mPeeked = PEEKED_NONE;
+        return nextText();
+    }
+
+    @NonNull
+    @Override
+    public String nextName(@NonNull StringCache cache) throws IOException {
+        if (peeked() != PEEKED_NAME) {
+            throw unexpected(JsonToken.NAME);
+        }
+        mPeeked = PEEKED_NONE;
+        return nextText(cache);
+    }
+
+    @Override
+    public int selectName(@NonNull JsonOptions options) throws IOException {
+        if (peeked() != PEEKED_NAME) {
+            throw unexpected(JsonToken.NAME);
+        }
+        mPeeked = PEEKED_NONE;
+        return selectText(options);
+    }
+
+    @NonNull
+    @Override
+    public String nextString() throws IOException {
+        int p = peeked();
+        String result;
+        if (p == PEEKED_TEXT) {
+            mPeeked = PEEKED_NONE;
+            return nextText();
+        } else if (p == PEEKED_UNSIGNED || p == PEEKED_NEGATIVE) {
+            result = mPeekedArgument < 0 ? bigIntegerValue(p).toString() : Long.toString(integerValue(p));
+        } else if (p == PEEKED_FLOAT) {
+            result = Float.toString((float) mPeekedDouble);
+        } else if (p == PEEKED_DOUBLE) {
+            result = Double.toString(mPeekedDouble);
+        } else {
+            throw unexpected(JsonToken.STRING);
+        }
+        mPeeked = PEEKED_NONE;
+        return result;
+    }
+
+    @NonNull
+    @Override
+    public String nextString(@NonNull StringCache cache) throws IOException {
+        if (peeked() != PEEKED_TEXT) {
+            return cache.intern(nextString());
+        }
+        mPeeked = PEEKED_NONE;
+        return nextText(cache);
+    }
+
+    @Override
+    public int selectString(@NonNull JsonOptions options) throws IOException {
+        if (peeked() != PEEKED_TEXT) {
+            return options.indexOf(nextString());
+        }
+        mPeeked = PEEKED_NONE;
+        return selectText(options);
+    }
+
+    @Override
+    public long nextLongName() throws IOException {
+        // Keys are always text, which we parse like the JSON reader does
+        String name = nextName();
+        try {
+            return Long.parseLong(name);
+        } catch (NumberFormatException e) {
+            throw new NumberFormatException("Expected a long name but was " + name + " at " + locationString());
+        }
+    }
+
+    @Override
+    public boolean nextBoolean() throws IOException {
+        int p = peeked();
+        if (p == PEEKED_TRUE) {
+            mPeeked = PEEKED_NONE;
+            return true;
+        } else if (p == PEEKED_FALSE) {
+            mPeeked = PEEKED_NONE;
+            return false;
+        }
+        throw unexpected(JsonToken.BOOLEAN);
+    }
+
+    @Override
+    public void nextNull() throws IOException {
+        if (peeked() != PEEKED_NULL) {
+            throw unexpected(JsonToken.NULL);
+        }
+        mPeeked = PEEKED_NONE;
+    }
+
+    @Override
+    public double nextDouble() throws IOException {
+        int p = peeked();
+        double result;
+        if (p == PEEKED_FLOAT || p == PEEKED_DOUBLE) {
+            result = mPeekedDouble;
+        } else if ((p == PEEKED_UNSIGNED || p == PEEKED_NEGATIVE) && mPeekedArgument < 0) {
+            result = bigIntegerValue(p).doubleValue();
+        } else if (p == PEEKED_UNSIGNED || p == PEEKED_NEGATIVE) {
+            result = integerValue(p);
+        } else if (p == PEEKED_TEXT) {
+            mPeeked = PEEKED_NONE;
+            String string = nextText();
+            try {
+                result = Double.parseDouble(string);
+            } catch (NumberFormatException e) {
+                throw new NumberFormatException("Expected a double but was " + string + " at " + locationString());
+            }
+        } else {
+            throw unexpected(JsonToken.NUMBER);
+        }
+        mPeeked = PEEKED_NONE;
+        // CBOR floats can encode both, which have no JSON equivalent
+        if (Double.isNaN(result) || Double.isInfinite(result)) {
+            throw new MalformedJsonException("JSON forbids NaN and infinities: " + result + " at "
+                    + locationString());
+        }
+        return result;
+    }
+
+    @Override
+    public long nextLong() throws IOException {
+        int p = peeked();
+        if ((p == PEEKED_UNSIGNED || p == PEEKED_NEGATIVE) && mPeekedArgument >= 0) {
+            mPeeked = PEEKED_NONE;
+            return integerValue(p);
+        }
+
+        String string;
+        if (p == PEEKED_UNSIGNED || p == PEEKED_NEGATIVE) {
+            // Beyond the range of a long
+            string = nextString();
+        } else if (p == PEEKED_FLOAT || p == PEEKED_DOUBLE) {
+            mPeeked = PEEKED_NONE;
+            long result = (long) mPeekedDouble;
+            // The cast saturates, and 2^63 as a double compares equal to Long.MAX_VALUE
+            if (result != mPeekedDouble || mPeekedDouble == 0x1p63) {
+                throw new NumberFormatException("Expected a long but was " + mPeekedDouble + " at "
+                        + locationString());
+            }
+            return result;
+        } else if (p == PEEKED_TEXT) {
+            mPeeked = PEEKED_NONE;
+            string = nextText();
+            try {
+                return Long.parseLong(string);
+            } catch (NumberFormatException ignored) {
+                // Fall through to the error below
+            }
+        } else {
+            throw unexpected(JsonToken.NUMBER);
+        }
+        throw new NumberFormatException("Expected a long but was " + string + " at " + locationString());
+    }
+
+    @Override
+    public int nextInt() throws IOException {
+        int p = peeked();
+        if ((p == PEEKED_UNSIGNED || p == PEEKED_NEGATIVE) && mPeekedArgument >= 0) {
+            long value = integerValue(p);
+            int result = (int) value;
+            if (result != value) {
+                throw new NumberFormatException("Expected an int but was " + value + " at " + locationString());
+            }
+            mPeeked = PEEKED_NONE;
+            return result;
+        }
+
+        long value = nextLong();
+        int result = (int) value;
+        if (result != value) {
+            throw new NumberFormatException("Expected an int but was " + value + " at " + locationString());
+        }
+        return result;
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        int count = 0;
+        do {
+            switch (peeked()) {
+                case PEEKED_BEGIN_ARRAY:
+                    beginArray();
+                    count++;
+                    break;
+                case PEEKED_BEGIN_OBJECT:
+                    beginObject();
+                    count++;
+                    break;
+                case PEEKED_END_ARRAY:
+                    endArray();
+                    count--;
+                    break;
+                case PEEKED_END_OBJECT:
+                    endObject();
+                    count--;
+                    break;
+                case PEEKED_NAME:
+                case PEEKED_TEXT:
+                    mPeeked = PEEKED_NONE;
+                    skipText();
+                    break;
+                case PEEKED_EOF:
+                    throw new EOFException("End of input at " + locationString());
+                default:
+                    // Scalars are consumed entirely by peeking
+                    mPeeked = PEEKED_NONE;
+                    break;
+            }
+        } while (count != 0);
+    }
+
+    @Override
+    public long bytesRead() {
+        return mBufferOffset + mPos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mPeeked = PEEKED_NONE;
+        mStack[0] = CLOSED;
+        mStackSize = 1;
+        if (mSource != null) {
+            mSource.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CborReader at " + locationString();
+    }
+
+    private int peeked() throws IOException {
+        int p = mPeeked;
+        return p != PEEKED_NONE ? p : doPeek();
+    }
+
+    /**
+     * Reads the initial byte and argument of the next item, leaving only the bytes of a text string
+     * unread, and advances the state of the enclosing container.
+     */
+    private int doPeek() throws IOException {
+        int top = mStackSize - 1;
+        int context = mStack[top];
+        switch (context) {
+            case EMPTY_DOCUMENT:
+                mStack[top] = NONEMPTY_DOCUMENT;
+                return mPeeked = peekValue(false);
+            case NONEMPTY_DOCUMENT:
+                if (mPos == mLimit && !fill(1)) {
+                    return mPeeked = PEEKED_EOF;
+                }
+                throw syntaxError("Expected end of document");
+            case ARRAY:
+                if (mRemaining[top] == 0) {
+                    return mPeeked = PEEKED_END_ARRAY;
+                }
+                int value = peekValue(mRemaining[top] == INDEFINITE);
+                if (value == PEEKED_END_ARRAY) {
+                    return mPeeked = PEEKED_END_ARRAY;
+                } else if (mRemaining[top] > 0) {
+                    mRemaining[top]--;
+                }
+                return mPeeked = value;
+            case MAP_KEY:
+                if (mRemaining[top] == 0) {
+                    return mPeeked = PEEKED_END_OBJECT;
+                }
+                int initial = readInitialByte();
+                if (initial == BREAK && mRemaining[top] == INDEFINITE) {
+                    return mPeeked = PEEKED_END_OBJECT;
+                } else if ((initial & 0xe0) != MAJOR_TEXT) {
+                    throw syntaxError("Expected a text key");
+                }
+                mPeekedArgument = readArgument(initial);
+                mStack[top] = MAP_VALUE;
+                return mPeeked = PEEKED_NAME;
+            case MAP_VALUE:
+                mStack[top] = MAP_KEY;
+                if (mRemaining[top] > 0) {
+                    mRemaining[top]--;
+                }
+                return mPeeked = peekValue(false);
+            case CLOSED:
+                throw new IllegalStateException("JsonReader is closed");
+            default:
+                throw new AssertionError();
+        }
+    }
+
+    /**
+     * Peeks a value, or the end of an indefinite length array if {@code allowBreak} is set.
+     */
+    private int peekValue(boolean allowBreak) throws IOException {
+        int initial = readInitialByte();
+        switch (initial & 0xe0) {
+            case MAJOR_UNSIGNED:
+                mPeekedArgument = readArgument(initial);
+                return PEEKED_UNSIGNED;
+            case MAJOR_NEGATIVE:
+                mPeekedArgument = readArgument(initial);
+                return PEEKED_NEGATIVE;
+            case MAJOR_TEXT:
+                mPeekedArgument = readArgument(initial);
+                return PEEKED_TEXT;
+            case MAJOR_ARRAY:
+                mPeekedArgument = readArgument(initial);
+                return PEEKED_BEGIN_ARRAY;
+            case MAJOR_MAP:
+                mPeekedArgument = readArgument(initial);
+                return PEEKED_BEGIN_OBJECT;
+            case MAJOR_BYTES:
+                throw syntaxError("Byte strings are not supported");
+            default:
+                break;
+        }
+
+        switch (initial) {
+            case FALSE:
+                return PEEKED_FALSE;
+            case TRUE:
+                return PEEKED_TRUE;
+            case NULL:
+            case UNDEFINED:
+                return PEEKED_NULL;
+            case FLOAT16:
+                require(2);
+                mPeekedDouble = halfToFloat(((mBuffer[mPos] & 0xff) << 8) | (mBuffer[mPos + 1] & 0xff));
+                mPos += 2;
+                return PEEKED_FLOAT;
+            case FLOAT32:
+                require(4);
+                mPeekedDouble = Float.intBitsToFloat(readInt());
+                return PEEKED_FLOAT;
+            case FLOAT64:
+                require(8);
+                mPeekedDouble = Double.longBitsToDouble(((long) readInt() << 32) | (readInt() & 0xffffffffL));
+                return PEEKED_DOUBLE;
+            case BREAK:
+                if (allowBreak) {
+                    return PEEKED_END_ARRAY;
+                }
+                throw syntaxError("Unexpected break");
+            default:
+                throw syntaxError("Unsupported simple value " + (initial & 0x1f));
+        }
+    }
+
+    /**
+     * Reads the next initial byte, skipping any tags before it.
+     */
+    private int readInitialByte() throws IOException {
+        while (true) {
+            require(1);
+            int initial = mBuffer[mPos++] & 0xff;
+            if ((initial & 0xe0) != MAJOR_TAG) {
+                return initial;
+            }
+            readArgument(initial);
+        }
+    }
+
+    /**
+     * Reads the argument that follows {@code initial}. Arguments of 2^63 and above come back negative,
+     * and indefinite lengths as {@link #INDEFINITE}.
+     */
+    private long readArgument(int initial) throws IOException {
+        int info = initial & 0x1f;
+        if (info < INFO_ONE_BYTE) {
+            return info;
+        }
+        switch (info) {
+            case INFO_ONE_BYTE:
+                require(1);
+                return mBuffer[mPos++] & 0xff;
+            case INFO_TWO_BYTES:
+                require(2);
+                int value = ((mBuffer[mPos] & 0xff) << 8) | (mBuffer[mPos + 1] & 0xff);
+                mPos += 2;
+                return value;
+            case INFO_FOUR_BYTES:
+                require(4);
+                return readInt() & 0xffffffffL;
+            case INFO_EIGHT_BYTES:
+                require(8);
+                return ((long) readInt() << 32) | (readInt() & 0xffffffffL);
+            case INFO_INDEFINITE:
+                int major = initial & 0xe0;
+                if (major == MAJOR_TEXT || major == MAJOR_ARRAY || major == MAJOR_MAP) {
+                    return INDEFINITE;
+                }
+                throw syntaxError("Invalid additional information " + info);
+            default:
+                throw syntaxError("Invalid additional information " + info);
+        }
+    }
+
+    private long integerValue(int peeked) {
+        // Negative integers hold -1 - n
+        return peeked == PEEKED_UNSIGNED ? mPeekedArgument : ~mPeekedArgument;
+    }
+
+    /**
+     * Returns the value of a peeked integer whose argument is beyond the range of a long.
+     */
+    @NonNull
+    private BigInteger bigIntegerValue(int peeked) {
+        BigInteger argument = BigInteger.valueOf(mPeekedArgument).add(BigInteger.ONE.shiftLeft(64));
+        return peeked == PEEKED_UNSIGNED ? argument : argument.not();
+    }
+
+    /**
+     * Reads the peeked text string, whose length is in {@link #mPeekedArgument}.
+     */
+    @NonNull
+    private String nextText() throws IOException {
+        long length = mPeekedArgument;
+        if (length == INDEFINITE) {
+            return nextChunkedText();
+        }
+        int n = textLength(length);
+        require(n);
+        String result = new String(mBuffer, mPos, n, StandardCharsets.UTF_8);
+        mPos += n;
+        return result;
+    }
+
+    /**
+     * As {@link #nextText()}, but looks definite length strings up in {@code cache} by their raw bytes.
+     */
+    @NonNull
+    private String nextText(@NonNull StringCache cache) throws IOException {
+        long length = mPeekedArgument;
+        if (length == INDEFINITE || length > cache.maxLength()) {
+            return cache.intern(nextText());
+        }
+        int n = (int) length;
+        require(n);
+        String result = cache.get(mBuffer, mPos, n, hash(n));
+        mPos += n;
+        return result;
+    }
+
+    /**
+     * Returns the index in {@code options} of the peeked text string, or -1 if it is not one of them.
+     */
+    private int selectText(@NonNull JsonOptions options) throws IOException {
+        long length = mPeekedArgument;
+        if (length == INDEFINITE) {
+            return options.indexOf(nextChunkedText());
+        } else if (length > options.maxLength()) {
+            skipText();
+            return -1;
+        }
+        int n = (int) length;
+        require(n);
+        int index = options.indexOf(mBuffer, mPos, n, hash(n));
+        mPos += n;
+        return index;
+    }
+
+    private void skipText() throws IOException {
+        long length = mPeekedArgument;
+        if (length == INDEFINITE) {
+            nextChunkedText();
+            return;
+        }
+        long remaining = length;
+        while (remaining > 0) {
+            if (mPos == mLimit && !fill(1)) {
+                throw new EOFException("Unterminated string at " + locationString());
+            }
+            int skipped = (int) Math.min(remaining, mLimit - mPos);
+            mPos += skipped;
+            remaining -= skipped;
+        }
+    }
+
+    /**
+     * Reads an indefinite length text string, made up of definite length chunks ended by a break.
+     */
+    @NonNull
+    private String nextChunkedText() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        while (true) {
+            require(1);
+            int initial = mBuffer[mPos++] & 0xff;
+            if (initial == BREAK) {
+                return builder.toString();
+            } else if ((initial & 0xe0) != MAJOR_TEXT) {
+                throw syntaxError("Expected a text chunk");
+            }
+            long length = readArgument(initial);
+            if (length == INDEFINITE) {
+                throw syntaxError("Nested indefinite length text");
+            }
+            int n = textLength(length);
+            require(n);
+            builder.append(new String(mBuffer, mPos, n, StandardCharsets.UTF_8));
+            mPos += n;
+        }
+    }
+
+    private int textLength(long length) throws IOException {
+        if (length < 0 || length > Integer.MAX_VALUE - 8) {
+            throw syntaxError("Text too long: " + length);
+        }
+        return (int) length;
+    }
+
+    /**
+     * Returns the {@link JsonOptions#hash(int, byte)} of the next {@code length} bytes, which must be
+     * buffered.
+     */
+    private int hash(int length) {
+        byte[] buffer = mBuffer;
+        int hash = 0;
+        for (int i = mPos, end = mPos + length; i < end; i++) {
+            hash = JsonOptions.hash(hash, buffer[i]);
+        }
+        return hash;
+    }
+
+    /**
+     * Reads a big-endian int. The bytes must be buffered.
+     */
+    private int readInt() {
+        byte[] buffer = mBuffer;
+        int p = mPos;
+        mPos = p + 4;
+        return ((buffer[p] & 0xff) << 24) | ((buffer[p + 1] & 0xff) << 16) | ((buffer[p + 2] & 0xff) << 8)
+                | (buffer[p + 3] & 0xff);
+    }
+
+    private static float halfToFloat(int half) {
+        int exponent = (half >> 10) & 0x1f;
+        int mantissa = half & 0x3ff;
+        float value;
+        if (exponent == 0) {
+            value = mantissa * 0x1p-24f;
+        } else if (exponent == 31) {
+            value = mantissa == 0 ? Float.POSITIVE_INFINITY : Float.NaN;
+        } else {
+            value = (mantissa + 1024) * (float) Math.pow(2, exponent - 25);
+        }
+        return (half & 0x8000) != 0 ? -value : value;
+    }
+
+    private void push(int context, long remaining) {
+        if (mStackSize == mStack.length) {
+            int[] newStack = new int[mStackSize * 2];
+            long[] newRemaining = new long[mStackSize * 2];
+            System.arraycopy(mStack, 0, newStack, 0, mStackSize);
+            System.arraycopy(mRemaining, 0, newRemaining, 0, mStackSize);
+            mStack = newStack;
+            mRemaining = newRemaining;
+        }
+        mStack[mStackSize] = context;
+        mRemaining[mStackSize] = remaining;
+        mStackSize++;
+    }
+
+    private void require(int minimum) throws IOException {
+        if (mLimit - mPos < minimum && !fill(minimum)) {
+            throw new EOFException("End of input at " + locationString());
+        }
+    }
+
+    /**
+     * Returns true once {@code minimum} bytes are buffered from {@link #mPos}, shifting them to the start
+     * of the buffer and growing it if need be.
+     */
+    private boolean fill(int minimum) throws IOException {
+        if (mSource == null) {
+            return mLimit - mPos >= minimum;
+        }
+
+        byte[] buffer = mBuffer;
+        mBufferOffset += mPos;
+        mLimit -= mPos;
+        if (minimum > buffer.length) {
+            byte[] grown = new byte[Math.max(minimum, buffer.length * 2)];
+            System.arraycopy(buffer, mPos, grown, 0, mLimit);
+            mBuffer = buffer = grown;
+        } else if (mLimit != 0) {
+            System.arraycopy(buffer, mPos, buffer, 0, mLimit);
+        }
+        mPos = 0;
+
+        int total;
+        while ((total = mSource.read(buffer, mLimit, buffer.length - mLimit)) != -1) {
+            mLimit += total;
+            if (mLimit >= minimum) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @NonNull
+    private String locationString() {
+        return "offset " + (mBufferOffset + mPos);
+    }
+
+    @NonNull
+    private IllegalStateException unexpected(@NonNull JsonToken expected) throws IOException {
+        return new IllegalStateException("Expected " + expected + " but was " + peek() + " at " + locationString());
+    }
+
+    @NonNull
+    private MalformedJsonException syntaxError(@NonNull String message) {
+        return new MalformedJsonException(message + " at " + locationString());
+    }
+}
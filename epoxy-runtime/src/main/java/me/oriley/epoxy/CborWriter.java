@@ -0,0 +1,522 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link JsonWriter} that encodes the same token stream as CBOR (RFC 7049) instead of JSON text, so
+ * generated and core adapters can write a compact binary form without any changes. Numbers are
+ * written as binary integers or floats in their smallest exact encoding. Arrays and objects use
+ * indefinite lengths, so nothing needs to be counted or buffered ahead.
+ * <p>
+ * As with {@link Utf8JsonWriter}, without a sink the whole document is kept in memory and can be
+ * retrieved with {@link #toByteArray()}.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class CborWriter extends JsonWriter {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Major types, already shifted into the top three bits of an initial byte.
+     */
+    static final int MAJOR_UNSIGNED = 0x00;
+    static final int MAJOR_NEGATIVE = 0x20;
+    static final int MAJOR_BYTES = 0x40;
+    static final int MAJOR_TEXT = 0x60;
+    static final int MAJOR_ARRAY = 0x80;
+    static final int MAJOR_MAP = 0xa0;
+    static final int MAJOR_TAG = 0xc0;
+    static final int MAJOR_SIMPLE = 0xe0;
+
+    /**
+     * Additional information values that say how the argument of an initial byte is encoded.
+     */
+    static final int INFO_ONE_BYTE = 24;
+    static final int INFO_TWO_BYTES = 25;
+    static final int INFO_FOUR_BYTES = 26;
+    static final int INFO_EIGHT_BYTES = 27;
+    static final int INFO_INDEFINITE = 31;
+
+    static final int FALSE = 0xf4;
+    static final int TRUE = 0xf5;
+    static final int NULL = 0xf6;
+    static final int UNDEFINED = 0xf7;
+    static final int FLOAT16 = 0xf9;
+    static final int FLOAT32 = 0xfa;
+    static final int FLOAT64 = 0xfb;
+    static final int BREAK = 0xff;
+
+    private static final int EMPTY_DOCUMENT = 1;
+    private static final int NONEMPTY_DOCUMENT = 2;
+    private static final int ARRAY = 3;
+    private static final int OBJECT = 4;
+    private static final int DANGLING_NAME = 5;
+    private static final int CLOSED = 6;
+
+    @Nullable
+    private OutputStream mSink;
+
+    @NonNull
+    private byte[] mBuffer = new byte[BUFFER_SIZE];
+
+    private int mCount;
+
+    /**
+     * Bytes already flushed to the sink.
+     */
+    private long mFlushed;
+
+    @NonNull
+    private int[] mStack = new int[32];
+    private int mStackSize;
+
+
+    public CborWriter() {
+        this(null);
+    }
+
+    public CborWriter(@Nullable OutputStream sink) {
+        mSink = sink;
+        mStack[mStackSize++] = EMPTY_DOCUMENT;
+    }
+
+
+    @NonNull
+    @Override
+    public JsonWriter beginArray() throws IOException {
+        beforeValue();
+        push(ARRAY);
+        writeByte(MAJOR_ARRAY | INFO_INDEFINITE);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter endArray() throws IOException {
+        return close(ARRAY);
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter beginObject() throws IOException {
+        beforeValue();
+        push(OBJECT);
+        writeByte(MAJOR_MAP | INFO_INDEFINITE);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter endObject() throws IOException {
+        return close(OBJECT);
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter name(@NonNull String name) throws IOException {
+        //noinspection ConstantConditions
+        if (name == null) {
+            throw new NullPointerException("name == null");
+        }
+        beforeName();
+        text(name);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter name(@NonNull JsonOptions options, int index) throws IOException {
+        beforeName();
+        encodedText(options.encoded(index));
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter value(@Nullable String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        text(value);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter value(@NonNull JsonOptions options, int index) throws IOException {
+        beforeValue();
+        encodedText(options.encoded(index));
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter nullValue() throws IOException {
+        beforeValue();
+        writeByte(NULL);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter value(boolean value) throws IOException {
+        beforeValue();
+        writeByte(value ? TRUE : FALSE);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter value(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("Numeric values must be finite, but was " + value);
+        }
+        beforeValue();
+        float narrowed = (float) value;
+        if (narrowed == value) {
+            float32(narrowed);
+        } else {
+            ensure(9);
+            mBuffer[mCount++] = (byte) FLOAT64;
+            writeLong(Double.doubleToLongBits(value));
+        }
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter value(float value) throws IOException {
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            throw new IllegalArgumentException("Numeric values must be finite, but was " + value);
+        }
+        beforeValue();
+        float32(value);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter value(long value) throws IOException {
+        beforeValue();
+        integer(value);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter value(@Nullable Number value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+                || value instanceof AtomicInteger || value instanceof AtomicLong) {
+            return value(value.longValue());
+        } else if (value instanceof Float) {
+            return value(value.floatValue());
+        } else if (value instanceof BigInteger || value instanceof BigDecimal) {
+            // Written as binary when that's exact, and as decimal text that readers parse back otherwise
+            String string = value.toString();
+            try {
+                return value(Long.parseLong(string));
+            } catch (NumberFormatException e) {
+                double asDouble = value.doubleValue();
+                if (!Double.isInfinite(asDouble) && new BigDecimal(asDouble).compareTo(new BigDecimal(string)) == 0) {
+                    return value(asDouble);
+                }
+                return value(string);
+            }
+        }
+        return value(value.doubleValue());
+    }
+
+    /**
+     * Returns the number of bytes written so far, including any already flushed to the sink.
+     */
+    public long size() {
+        return mFlushed + mCount;
+    }
+
+    /**
+     * Returns a copy of the buffered bytes.
+     */
+    @NonNull
+    public byte[] toByteArray() {
+        byte[] result = new byte[mCount];
+        System.arraycopy(mBuffer, 0, result, 0, mCount);
+        return result;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (mSink != null) {
+            flushBuffer();
+            mSink.flush();
+        }
+    }
+
+    @Override
+    public long bytesWritten() {
+        return size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        int size = mStackSize;
+        if (size > 1 || size == 1 && mStack[0] != NONEMPTY_DOCUMENT) {
+            throw new IOException("Incomplete document");
+        }
+        mStackSize = 0;
+        mStack[0] = CLOSED;
+        if (mSink != null) {
+            flushBuffer();
+            mSink.close();
+        }
+    }
+
+    /**
+     * Writes {@code value} as a text string, measuring its UTF-8 length first since CBOR puts it in the
+     * header. Unpaired surrogates are replaced with '?', as {@link Utf8JsonWriter} does.
+     */
+    private void text(@NonNull String value) throws IOException {
+        int length = value.length();
+        int encodedLength = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                encodedLength = utf8Length(value, i, encodedLength);
+                break;
+            }
+        }
+
+        head(MAJOR_TEXT, encodedLength);
+        ensure(encodedLength);
+        byte[] buffer = mBuffer;
+        int count = mCount;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer[count++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[count++] = (byte) (0xc0 | (c >> 6));
+                buffer[count++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                char low = i + 1 < length ? value.charAt(i + 1) : 0;
+                if (Character.isHighSurrogate(c) && Character.isLowSurrogate(low)) {
+                    int codePoint = Character.toCodePoint(c, low);
+                    buffer[count++] = (byte) (0xf0 | (codePoint >> 18));
+                    buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                    buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                    buffer[count++] = (byte) (0x80 | (codePoint & 0x3f));
+                    i++;
+                } else {
+                    buffer[count++] = '?';
+                }
+            } else {
+                buffer[count++] = (byte) (0xe0 | (c >> 12));
+                buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buffer[count++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        mCount = count;
+    }
+
+    /**
+     * Returns the UTF-8 length of {@code value}, given that the {@code start} chars before {@code start}
+     * are ASCII and it is {@code length} bytes long if all the rest are too.
+     */
+    private static int utf8Length(@NonNull String value, int start, int length) {
+        for (int i = start, end = value.length(); i < end; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                continue;
+            } else if (c < 0x800) {
+                length += 1;
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(value.charAt(i + 1))) {
+                // Four bytes for the pair
+                length += 2;
+                i++;
+            } else if (!Character.isSurrogate(c)) {
+                length += 2;
+            }
+        }
+        return length;
+    }
+
+    private void encodedText(@NonNull byte[] encoded) throws IOException {
+        head(MAJOR_TEXT, encoded.length);
+        ensure(encoded.length);
+        System.arraycopy(encoded, 0, mBuffer, mCount, encoded.length);
+        mCount += encoded.length;
+    }
+
+    private void integer(long value) throws IOException {
+        if (value >= 0) {
+            head(MAJOR_UNSIGNED, value);
+        } else {
+            // Negative integers are encoded as -1 - n, which is never negative itself
+            head(MAJOR_NEGATIVE, ~value);
+        }
+    }
+
+    private void float32(float value) throws IOException {
+        ensure(5);
+        mBuffer[mCount++] = (byte) FLOAT32;
+        writeInt(Float.floatToIntBits(value));
+    }
+
+    /**
+     * Writes an initial byte of {@code major} type with {@code argument} in its shortest encoding.
+     */
+    private void head(int major, long argument) throws IOException {
+        ensure(9);
+        byte[] buffer = mBuffer;
+        if (argument < INFO_ONE_BYTE) {
+            buffer[mCount++] = (byte) (major | argument);
+        } else if (argument <= 0xff) {
+            buffer[mCount++] = (byte) (major | INFO_ONE_BYTE);
+            buffer[mCount++] = (byte) argument;
+        } else if (argument <= 0xffff) {
+            buffer[mCount++] = (byte) (major | INFO_TWO_BYTES);
+            buffer[mCount++] = (byte) (argument >> 8);
+            buffer[mCount++] = (byte) argument;
+        } else if (argument <= 0xffffffffL) {
+            buffer[mCount++] = (byte) (major | INFO_FOUR_BYTES);
+            writeInt((int) argument);
+        } else {
+            buffer[mCount++] = (byte) (major | INFO_EIGHT_BYTES);
+            writeLong(argument);
+        }
+    }
+
+    /**
+     * Writes {@code value} big-endian. Room must already have been made.
+     */
+    private void writeInt(int value) {
+        byte[] buffer = mBuffer;
+        int count = mCount;
+        buffer[count++] = (byte) (value >> 24);
+        buffer[count++] = (byte) (value >> 16);
+        buffer[count++] = (byte) (value >> 8);
+        buffer[count++] = (byte) value;
+        mCount = count;
+    }
+
+    /**
+     * Writes {@code value} big-endian. Room must already have been made.
+     */
+    private void writeLong(long value) {
+        writeInt((int) (value >> 32));
+        writeInt((int) value);
+    }
+
+    private void writeByte(int b) throws IOException {
+        ensure(1);
+        mBuffer[mCount++] = (byte) b;
+    }
+
+    private JsonWriter close(int context) throws IOException {
+        if (peek() != context) {
+            throw new IllegalStateException("Nesting problem");
+        }
+        mStackSize--;
+        writeByte(BREAK);
+        return this;
+    }
+
+    private void push(int newTop) {
+        if (mStackSize == mStack.length) {
+            int[] newStack = new int[mStackSize * 2];
+            System.arraycopy(mStack, 0, newStack, 0, mStackSize);
+            mStack = newStack;
+        }
+        mStack[mStackSize++] = newTop;
+    }
+
+    private int peek() {
+        if (mStackSize == 0) {
+            throw new IllegalStateException("JsonWriter is closed");
+        }
+        return mStack[mStackSize - 1];
+    }
+
+    /**
+     * Checks that a property name may be written here.
+     */
+    private void beforeName() {
+        if (peek() != OBJECT) {
+            throw new IllegalStateException("Nesting problem");
+        }
+        mStack[mStackSize - 1] = DANGLING_NAME;
+    }
+
+    /**
+     * Checks that a value may be written here. Unlike JSON, there are no separators to insert.
+     */
+    private void beforeValue() {
+        switch (peek()) {
+            case NONEMPTY_DOCUMENT:
+                throw new IllegalStateException("JSON must have only one top-level value");
+            case EMPTY_DOCUMENT:
+                mStack[mStackSize - 1] = NONEMPTY_DOCUMENT;
+                break;
+            case ARRAY:
+                break;
+            case DANGLING_NAME:
+                mStack[mStackSize - 1] = OBJECT;
+                break;
+            default:
+                throw new IllegalStateException("Nesting problem");
+        }
+    }
+
+    /**
+     * Makes room for at least {@code needed} more bytes, flushing to the sink if there is one and
+     * growing the buffer otherwise.
+     */
+    private void ensure(int needed) throws IOException {
+        if (mCount + needed <= mBuffer.length) {
+            return;
+        }
+        if (mSink != null) {
+            flushBuffer();
+            if (needed <= mBuffer.length) {
+                return;
+            }
+        }
+        byte[] grown = new byte[Math.max(mBuffer.length * 2, mCount + needed)];
+        System.arraycopy(mBuffer, 0, grown, 0, mCount);
+        mBuffer = grown;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (mSink != null && mCount > 0) {
+            mSink.write(mBuffer, 0, mCount);
+            mFlushed += mCount;
+            mCount = 0;
+        }
+    }
+}
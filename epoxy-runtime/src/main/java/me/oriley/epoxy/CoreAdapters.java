@@ -18,8 +18,6 @@ package me.oriley.epoxy;
 
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.util.JsonReader;
-import android.util.JsonWriter;
 
 import java.io.IOException;
 import java.lang.reflect.Array;
@@ -111,8 +109,8 @@ final class CoreAdapters {
             if (value == null) {
                 throw new NullPointerException();
             }
-            // Use the Number overload so we write out float precision instead of double precision.
-            writer.value(value);
+            // Use the float overload so we write out float precision instead of double precision.
+            writer.value(value.floatValue());
         }
 
         @Override
@@ -191,6 +189,259 @@ final class CoreAdapters {
     };
 
 
+    /**
+     * Starting size of the growable buffers arrays are decoded into, which are trimmed once at the end.
+     */
+    private static final int INITIAL_ARRAY_CAPACITY = 16;
+
+    static final JsonAdapter<boolean[]> BOOLEAN_ARRAY_ADAPTER = new JsonAdapter<boolean[]>() {
+        @Override
+        public boolean[] fromJson(@NonNull Epoxy epoxy, @NonNull JsonReader reader) throws IOException {
+            boolean[] buffer = new boolean[INITIAL_ARRAY_CAPACITY];
+            int size = 0;
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (size == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, size * 2);
+                }
+                buffer[size++] = reader.nextBoolean();
+            }
+            reader.endArray();
+            return size == buffer.length ? buffer : Arrays.copyOf(buffer, size);
+        }
+
+        @Override
+        public void toJson(@NonNull Epoxy epoxy, @NonNull JsonWriter writer, boolean[] value) throws IOException {
+            writer.beginArray();
+            for (boolean element : value) {
+                writer.value(element);
+            }
+            writer.endArray();
+        }
+
+        @Override
+        public String toString() {
+            return "JsonAdapter(boolean[])";
+        }
+    };
+
+    static final JsonAdapter<byte[]> BYTE_ARRAY_ADAPTER = new JsonAdapter<byte[]>() {
+        @Override
+        public byte[] fromJson(@NonNull Epoxy epoxy, @NonNull JsonReader reader) throws IOException {
+            byte[] buffer = new byte[INITIAL_ARRAY_CAPACITY];
+            int size = 0;
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (size == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, size * 2);
+                }
+                buffer[size++] = (byte) rangeCheckNextInt(reader, "a byte", Byte.MIN_VALUE, 0xff);
+            }
+            reader.endArray();
+            return size == buffer.length ? buffer : Arrays.copyOf(buffer, size);
+        }
+
+        @Override
+        public void toJson(@NonNull Epoxy epoxy, @NonNull JsonWriter writer, byte[] value) throws IOException {
+            writer.beginArray();
+            for (byte element : value) {
+                writer.value(element & 0xff);
+            }
+            writer.endArray();
+        }
+
+        @Override
+        public String toString() {
+            return "JsonAdapter(byte[])";
+        }
+    };
+
+    static final JsonAdapter<char[]> CHARACTER_ARRAY_ADAPTER = new JsonAdapter<char[]>() {
+        @Override
+        public char[] fromJson(@NonNull Epoxy epoxy, @NonNull JsonReader reader) throws IOException {
+            char[] buffer = new char[INITIAL_ARRAY_CAPACITY];
+            int size = 0;
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (size == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, size * 2);
+                }
+                buffer[size++] = lengthCheckNextChar(reader);
+            }
+            reader.endArray();
+            return size == buffer.length ? buffer : Arrays.copyOf(buffer, size);
+        }
+
+        @Override
+        public void toJson(@NonNull Epoxy epoxy, @NonNull JsonWriter writer, char[] value) throws IOException {
+            writer.beginArray();
+            for (char element : value) {
+                writer.value(String.valueOf(element));
+            }
+            writer.endArray();
+        }
+
+        @Override
+        public String toString() {
+            return "JsonAdapter(char[])";
+        }
+    };
+
+    static final JsonAdapter<double[]> DOUBLE_ARRAY_ADAPTER = new JsonAdapter<double[]>() {
+        @Override
+        public double[] fromJson(@NonNull Epoxy epoxy, @NonNull JsonReader reader) throws IOException {
+            double[] buffer = new double[INITIAL_ARRAY_CAPACITY];
+            int size = 0;
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (size == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, size * 2);
+                }
+                buffer[size++] = reader.nextDouble();
+            }
+            reader.endArray();
+            return size == buffer.length ? buffer : Arrays.copyOf(buffer, size);
+        }
+
+        @Override
+        public void toJson(@NonNull Epoxy epoxy, @NonNull JsonWriter writer, double[] value) throws IOException {
+            writer.beginArray();
+            for (double element : value) {
+                writer.value(element);
+            }
+            writer.endArray();
+        }
+
+        @Override
+        public String toString() {
+            return "JsonAdapter(double[])";
+        }
+    };
+
+    static final JsonAdapter<float[]> FLOAT_ARRAY_ADAPTER = new JsonAdapter<float[]>() {
+        @Override
+        public float[] fromJson(@NonNull Epoxy epoxy, @NonNull JsonReader reader) throws IOException {
+            float[] buffer = new float[INITIAL_ARRAY_CAPACITY];
+            int size = 0;
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (size == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, size * 2);
+                }
+                buffer[size++] = (float) reader.nextDouble();
+            }
+            reader.endArray();
+            return size == buffer.length ? buffer : Arrays.copyOf(buffer, size);
+        }
+
+        @Override
+        public void toJson(@NonNull Epoxy epoxy, @NonNull JsonWriter writer, float[] value) throws IOException {
+            writer.beginArray();
+            for (float element : value) {
+                writer.value(element);
+            }
+            writer.endArray();
+        }
+
+        @Override
+        public String toString() {
+            return "JsonAdapter(float[])";
+        }
+    };
+
+    static final JsonAdapter<int[]> INTEGER_ARRAY_ADAPTER = new JsonAdapter<int[]>() {
+        @Override
+        public int[] fromJson(@NonNull Epoxy epoxy, @NonNull JsonReader reader) throws IOException {
+            int[] buffer = new int[INITIAL_ARRAY_CAPACITY];
+            int size = 0;
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (size == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, size * 2);
+                }
+                buffer[size++] = reader.nextInt();
+            }
+            reader.endArray();
+            return size == buffer.length ? buffer : Arrays.copyOf(buffer, size);
+        }
+
+        @Override
+        public void toJson(@NonNull Epoxy epoxy, @NonNull JsonWriter writer, int[] value) throws IOException {
+            writer.beginArray();
+            for (int element : value) {
+                writer.value(element);
+            }
+            writer.endArray();
+        }
+
+        @Override
+        public String toString() {
+            return "JsonAdapter(int[])";
+        }
+    };
+
+    static final JsonAdapter<long[]> LONG_ARRAY_ADAPTER = new JsonAdapter<long[]>() {
+        @Override
+        public long[] fromJson(@NonNull Epoxy epoxy, @NonNull JsonReader reader) throws IOException {
+            long[] buffer = new long[INITIAL_ARRAY_CAPACITY];
+            int size = 0;
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (size == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, size * 2);
+                }
+                buffer[size++] = reader.nextLong();
+            }
+            reader.endArray();
+            return size == buffer.length ? buffer : Arrays.copyOf(buffer, size);
+        }
+
+        @Override
+        public void toJson(@NonNull Epoxy epoxy, @NonNull JsonWriter writer, long[] value) throws IOException {
+            writer.beginArray();
+            for (long element : value) {
+                writer.value(element);
+            }
+            writer.endArray();
+        }
+
+        @Override
+        public String toString() {
+            return "JsonAdapter(long[])";
+        }
+    };
+
+    static final JsonAdapter<short[]> SHORT_ARRAY_ADAPTER = new JsonAdapter<short[]>() {
+        @Override
+        public short[] fromJson(@NonNull Epoxy epoxy, @NonNull JsonReader reader) throws IOException {
+            short[] buffer = new short[INITIAL_ARRAY_CAPACITY];
+            int size = 0;
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (size == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, size * 2);
+                }
+                buffer[size++] = (short) rangeCheckNextInt(reader, "a short", Short.MIN_VALUE, Short.MAX_VALUE);
+            }
+            reader.endArray();
+            return size == buffer.length ? buffer : Arrays.copyOf(buffer, size);
+        }
+
+        @Override
+        public void toJson(@NonNull Epoxy epoxy, @NonNull JsonWriter writer, short[] value) throws IOException {
+            writer.beginArray();
+            for (short element : value) {
+                writer.value(element);
+            }
+            writer.endArray();
+        }
+
+        @Override
+        public String toString() {
+            return "JsonAdapter(short[])";
+        }
+    };
+
     private CoreAdapters() {
         throw new IllegalAccessError("no instances");
     }
@@ -219,14 +470,22 @@ final class CoreAdapters {
         Class<?> rawType = Types.getRawType(type);
         if (rawType.isEnum()) {
             //noinspection unchecked
-            return enumAdapter((Class<? extends Enum>) rawType).nullSafe();
+            return new EnumJsonAdapter(rawType, epoxy.enumFallback(rawType)).nullSafe();
         } else if (rawType == Map.class) {
             Type[] keyAndValue = Types.mapKeyAndValueTypes(type, rawType);
-            // TODO: Support non-String keys
+            Class<?> keyType = Types.getRawType(keyAndValue[0]);
+            if (keyType == Integer.class || keyType == Long.class) {
+                return new NumberKeyMapJsonAdapter<>(epoxy, keyType == Integer.class, keyAndValue[1]).nullSafe();
+            } else if (keyType.isEnum()) {
+                //noinspection unchecked
+                return new EnumKeyMapJsonAdapter(epoxy, keyType, keyAndValue[1]).nullSafe();
+            }
             return new MapJsonAdapter<>(epoxy, keyAndValue[1]).nullSafe();
         } else if (rawType == List.class) {
             Type elementType = Types.collectionElementType(type, Collection.class);
             return new ListJsonAdapter<>(epoxy, elementType).nullSafe();
+        } else if (rawType == Lazy.class) {
+            return new LazyJsonAdapter<>(epoxy, Types.lazyValueType(type)).nullSafe();
         }
 
         Type elementType = Types.arrayComponentType(type);
@@ -234,76 +493,157 @@ final class CoreAdapters {
             return null;
         }
         Class<?> elementClass = Types.getRawType(elementType);
+        if (elementClass.isPrimitive()) {
+            return primitiveArrayAdapter(elementClass).nullSafe();
+        }
         JsonAdapter<Object> elementAdapter = epoxy.typeAdapter(elementType);
         return new ArrayJsonAdapter(elementClass, elementAdapter).nullSafe();
     }
 
     @NonNull
-    static <T extends Enum<T>> JsonAdapter<T> enumAdapter(@NonNull final Class<T> enumType) {
-        return new JsonAdapter<T>() {
-            @Override
-            public T fromJson(@NonNull Epoxy epoxy, @NonNull JsonReader reader) throws IOException {
-                String name = reader.nextString();
-                try {
-                    return Enum.valueOf(enumType, name);
-                } catch (IllegalArgumentException e) {
-                    throw new JsonException("Expected one of "
-                            + Arrays.toString(enumType.getEnumConstants()) + " but was " + name + " in " +
-                            reader.toString());
-                }
-            }
+    private static JsonAdapter<?> primitiveArrayAdapter(@NonNull Class<?> elementClass) {
+        if (elementClass == boolean.class) return BOOLEAN_ARRAY_ADAPTER;
+        if (elementClass == byte.class) return BYTE_ARRAY_ADAPTER;
+        if (elementClass == char.class) return CHARACTER_ARRAY_ADAPTER;
+        if (elementClass == double.class) return DOUBLE_ARRAY_ADAPTER;
+        if (elementClass == float.class) return FLOAT_ARRAY_ADAPTER;
+        if (elementClass == int.class) return INTEGER_ARRAY_ADAPTER;
+        if (elementClass == long.class) return LONG_ARRAY_ADAPTER;
+        if (elementClass == short.class) return SHORT_ARRAY_ADAPTER;
+        throw new IllegalArgumentException("Not a primitive type: " + elementClass);
+    }
+
+    /**
+     * Adapter for enums, built once per type. Constants are matched by their encoded name and looked up
+     * by ordinal, and written from their pre-escaped names. Unknown names decode to the fallback constant
+     * if there is one.
+     */
+    static final class EnumJsonAdapter<T extends Enum<T>> extends JsonAdapter<T> {
+
+        @NonNull
+        private final Class<T> mEnumType;
+
+        @NonNull
+        private final T[] mConstants;
 
-            @Override
-            public void toJson(@NonNull Epoxy epoxy, @NonNull JsonWriter writer, T value) throws IOException {
-                writer.value(value.name());
+        /**
+         * The constant names, indexed by ordinal.
+         */
+        @NonNull
+        private final JsonOptions mNames;
+
+        @Nullable
+        private final T mFallback;
+
+
+        EnumJsonAdapter(@NonNull Class<T> enumType, @Nullable T fallback) {
+            mEnumType = enumType;
+            mConstants = enumType.getEnumConstants();
+            String[] names = new String[mConstants.length];
+            for (T constant : mConstants) {
+                names[constant.ordinal()] = constant.name();
             }
+            mNames = JsonOptions.of(names);
+            mFallback = fallback;
+        }
+
+
+        @Override
+        public T fromJson(@NonNull Epoxy epoxy, @NonNull JsonReader reader) throws IOException {
+            return constant(reader.selectString(mNames), reader);
+        }
+
+        @Override
+        public void toJson(@NonNull Epoxy epoxy, @NonNull JsonWriter writer, T value) throws IOException {
+            writer.value(mNames, value.ordinal());
+        }
 
-            @Override
-            public String toString() {
-                return "JsonAdapter(" + enumType.getName() + ")";
+        /**
+         * Reads a property name as a constant, for maps keyed on this enum.
+         */
+        @NonNull
+        T nextName(@NonNull JsonReader reader) throws IOException {
+            return constant(reader.selectName(mNames), reader);
+        }
+
+        /**
+         * Writes a constant as a property name, for maps keyed on this enum.
+         */
+        void name(@NonNull JsonWriter writer, @NonNull T value) throws IOException {
+            writer.name(mNames, value.ordinal());
+        }
+
+        /**
+         * Returns whether unknown names decode to {@code value}.
+         */
+        boolean isFallback(@NonNull T value) {
+            return value == mFallback;
+        }
+
+        @NonNull
+        private T constant(int ordinal, @NonNull JsonReader reader) {
+            if (ordinal != -1) {
+                return mConstants[ordinal];
+            } else if (mFallback != null) {
+                return mFallback;
             }
-        };
+            throw new JsonException("Expected one of " + Arrays.toString(mConstants) + " in " + reader.toString());
+        }
+
+        @Override
+        public String toString() {
+            return "JsonAdapter(" + mEnumType.getName() + ")";
+        }
     }
 
-    static final class ArrayJsonAdapter extends JsonAdapter<Object> {
+    /**
+     * Adapter for arrays of objects, decoded into a growable array of the element type which is
+     * trimmed once at the end.
+     */
+    static final class ArrayJsonAdapter extends JsonAdapter<Object[]> {
 
         @NonNull
-        private final Class<?> mElementClass;
+        private final Object[] mEmpty;
 
         @NonNull
         private final JsonAdapter<Object> mElementAdapter;
 
 
         ArrayJsonAdapter(@NonNull Class<?> elementClass, @NonNull JsonAdapter<Object> elementAdapter) {
-            mElementClass = elementClass;
+            mEmpty = (Object[]) Array.newInstance(elementClass, 0);
             mElementAdapter = elementAdapter;
         }
 
 
         @Override
         @NonNull
-        public Object fromJson(@NonNull Epoxy epoxy, @NonNull JsonReader reader) throws IOException {
-            List<Object> list = new ArrayList<>();
+        public Object[] fromJson(@NonNull Epoxy epoxy, @NonNull JsonReader reader) throws IOException {
+            Object[] buffer = mEmpty;
+            int size = 0;
             reader.beginArray();
             while (reader.hasNext()) {
-                list.add(mElementAdapter.fromJson(epoxy, reader));
+                if (size == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, Math.max(size * 2, INITIAL_ARRAY_CAPACITY));
+                }
+                buffer[size++] = mElementAdapter.fromJson(epoxy, reader);
             }
             reader.endArray();
-            Object array = Array.newInstance(mElementClass, list.size());
-            for (int i = 0; i < list.size(); i++) {
-                Array.set(array, i, list.get(i));
-            }
-            return array;
+            return size == buffer.length ? buffer : Arrays.copyOf(buffer, size);
         }
 
         @Override
-        public void toJson(@NonNull Epoxy epoxy, @NonNull JsonWriter writer, Object value) throws IOException {
+        public void toJson(@NonNull Epoxy epoxy, @NonNull JsonWriter writer, Object[] value) throws IOException {
             writer.beginArray();
-            for (int i = 0, size = Array.getLength(value); i < size; i++) {
-                mElementAdapter.toJson(epoxy, writer, Array.get(value, i));
+            for (Object element : value) {
+                mElementAdapter.toJson(epoxy, writer, element);
             }
             writer.endArray();
         }
+
+        @Override
+        public String toString() {
+            return mElementAdapter + ".array()";
+        }
     }
 
     static final class ListJsonAdapter<T> extends JsonAdapter<List<T>> {
@@ -343,6 +683,43 @@ final class CoreAdapters {
         }
     }
 
+    /**
+     * Adapter for {@link Lazy} values, which captures their raw JSON when reading and copies it back when
+     * writing values that were never decoded.
+     */
+    static final class LazyJsonAdapter<T> extends JsonAdapter<Lazy<T>> {
+
+        @NonNull
+        private final JsonAdapter<T> mValueAdapter;
+
+
+        LazyJsonAdapter(@NonNull Epoxy epoxy, @NonNull Type valueType) {
+            mValueAdapter = epoxy.typeAdapter(valueType);
+        }
+
+
+        @Override
+        @NonNull
+        public Lazy<T> fromJson(@NonNull Epoxy epoxy, @NonNull JsonReader reader) throws IOException {
+            return new Lazy<>(epoxy, mValueAdapter, reader.nextRawValue());
+        }
+
+        @Override
+        public void toJson(@NonNull Epoxy epoxy, @NonNull JsonWriter writer, Lazy<T> value) throws IOException {
+            byte[] raw = value.raw();
+            if (raw != null) {
+                writer.rawValue(raw);
+            } else {
+                mValueAdapter.toJson(epoxy, writer, value.get());
+            }
+        }
+
+        @Override
+        public String toString() {
+            return mValueAdapter + ".lazy()";
+        }
+    }
+
     static final class MapJsonAdapter<V> extends JsonAdapter<Map<String, V>> {
 
         @NonNull
@@ -371,9 +748,10 @@ final class CoreAdapters {
         @NonNull
         public Map<String, V> fromJson(@NonNull Epoxy epoxy, @NonNull JsonReader reader) throws IOException {
             LinkedHashMap<String, V> result = new LinkedHashMap<>();
+            StringCache cache = epoxy.stringCache();
             reader.beginObject();
             while (reader.hasNext()) {
-                String name = reader.nextName();
+                String name = cache != null ? reader.nextName(cache) : reader.nextName();
                 V value = mValueAdapter.fromJson(epoxy, reader);
                 if (result.put(name, value) != null) {
                     throw new JsonException("Map key '" + name + "' has multiple values in " + reader.toString());
@@ -389,6 +767,160 @@ final class CoreAdapters {
         }
     }
 
+    /**
+     * Adapter for maps keyed on {@code Integer} or {@code Long}, parsing keys straight from the property
+     * names. When the Epoxy instance uses primitive key maps these decode to an {@link IntKeyMap} or
+     * {@link LongKeyMap}, which never box the keys.
+     */
+    static final class NumberKeyMapJsonAdapter<K extends Number, V> extends JsonAdapter<Map<K, V>> {
+
+        @NonNull
+        private final JsonAdapter<V> mValueAdapter;
+
+        private final boolean mIntKeys;
+
+        private final boolean mPrimitiveKeyMaps;
+
+
+        NumberKeyMapJsonAdapter(@NonNull Epoxy epoxy, boolean intKeys, @NonNull Type valueType) {
+            mValueAdapter = epoxy.typeAdapter(valueType);
+            mIntKeys = intKeys;
+            mPrimitiveKeyMaps = epoxy.primitiveKeyMaps();
+        }
+
+
+        @Override
+        public void toJson(@NonNull Epoxy epoxy, @NonNull JsonWriter writer, Map<K, V> map) throws IOException {
+            writer.beginObject();
+            if (map instanceof PrimitiveKeyMap) {
+                PrimitiveKeyMap<K, V> primitiveMap = (PrimitiveKeyMap<K, V>) map;
+                for (int i = 0, size = primitiveMap.size(); i < size; i++) {
+                    writer.name(Long.toString(primitiveMap.keyAt(i)));
+                    mValueAdapter.toJson(epoxy, writer, primitiveMap.valueAt(i));
+                }
+            } else {
+                for (Map.Entry<K, V> entry : map.entrySet()) {
+                    if (entry.getKey() == null) {
+                        throw new JsonException("Map key is null");
+                    }
+                    writer.name(entry.getKey().toString());
+                    mValueAdapter.toJson(epoxy, writer, entry.getValue());
+                }
+            }
+            writer.endObject();
+        }
+
+        @Override
+        @NonNull
+        @SuppressWarnings("unchecked")
+        public Map<K, V> fromJson(@NonNull Epoxy epoxy, @NonNull JsonReader reader) throws IOException {
+            if (mPrimitiveKeyMaps) {
+                PrimitiveKeyMap<K, V> result = (PrimitiveKeyMap<K, V>) (mIntKeys ? new IntKeyMap<V>()
+                        : new LongKeyMap<V>());
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    long key = nextKey(reader);
+                    int size = result.size();
+                    result.putKey(key, mValueAdapter.fromJson(epoxy, reader));
+                    if (result.size() == size) {
+                        throw new JsonException("Map key '" + key + "' has multiple values in " + reader.toString());
+                    }
+                }
+                reader.endObject();
+                return result;
+            }
+
+            LinkedHashMap<K, V> result = new LinkedHashMap<>();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                long key = nextKey(reader);
+                K boxed = (K) (mIntKeys ? (Number) Integer.valueOf((int) key) : Long.valueOf(key));
+                V value = mValueAdapter.fromJson(epoxy, reader);
+                if (result.put(boxed, value) != null) {
+                    throw new JsonException("Map key '" + key + "' has multiple values in " + reader.toString());
+                }
+            }
+            reader.endObject();
+            return result;
+        }
+
+        private long nextKey(@NonNull JsonReader reader) throws IOException {
+            long key = reader.nextLongName();
+            if (mIntKeys && (int) key != key) {
+                throw new JsonException(String.format(ERROR_FORMAT, "an int key", key, reader.toString()));
+            }
+            return key;
+        }
+
+        @Override
+        public String toString() {
+            return "NumberKeyMapJsonAdapter(" + (mIntKeys ? "int, " : "long, ") + mValueAdapter + ")";
+        }
+    }
+
+    /**
+     * Adapter for maps keyed on an enum, matching keys by their encoded names. When the Epoxy instance
+     * uses primitive key maps these decode to an {@link EnumMap}.
+     */
+    static final class EnumKeyMapJsonAdapter<K extends Enum<K>, V> extends JsonAdapter<Map<K, V>> {
+
+        @NonNull
+        private final Class<K> mKeyType;
+
+        @NonNull
+        private final EnumJsonAdapter<K> mKeyAdapter;
+
+        @NonNull
+        private final JsonAdapter<V> mValueAdapter;
+
+        private final boolean mEnumMaps;
+
+
+        @SuppressWarnings("unchecked")
+        EnumKeyMapJsonAdapter(@NonNull Epoxy epoxy, @NonNull Class<K> keyType, @NonNull Type valueType) {
+            mKeyType = keyType;
+            mKeyAdapter = new EnumJsonAdapter<>(keyType, (K) epoxy.enumFallback(keyType));
+            mValueAdapter = epoxy.typeAdapter(valueType);
+            mEnumMaps = epoxy.primitiveKeyMaps();
+        }
+
+
+        @Override
+        public void toJson(@NonNull Epoxy epoxy, @NonNull JsonWriter writer, Map<K, V> map) throws IOException {
+            writer.beginObject();
+            for (Map.Entry<K, V> entry : map.entrySet()) {
+                if (entry.getKey() == null) {
+                    throw new JsonException("Map key is null");
+                }
+                mKeyAdapter.name(writer, entry.getKey());
+                mValueAdapter.toJson(epoxy, writer, entry.getValue());
+            }
+            writer.endObject();
+        }
+
+        @Override
+        @NonNull
+        public Map<K, V> fromJson(@NonNull Epoxy epoxy, @NonNull JsonReader reader) throws IOException {
+            Map<K, V> result = mEnumMaps ? new EnumMap<K, V>(mKeyType) : new LinkedHashMap<K, V>();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                K key = mKeyAdapter.nextName(reader);
+                V value = mValueAdapter.fromJson(epoxy, reader);
+                // Any number of unknown keys may decode to the fallback, the last of them wins
+                if (result.put(key, value) != null && !mKeyAdapter.isFallback(key)) {
+                    throw new JsonException("Map key '" + key + "' has multiple values in " + reader.toString());
+                }
+            }
+            reader.endObject();
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "EnumKeyMapJsonAdapter(" + mKeyType.getName() + ", " + mValueAdapter + ")";
+        }
+    }
+
     /**
      * This adapter is used when the declared type is {@code java.lang.Object}. Typically the runtime
      * type is something else, and when encoding JSON this delegates to the runtime type's adapter.
@@ -413,9 +945,11 @@ final class CoreAdapters {
 
                 case BEGIN_OBJECT:
                     Map<String, Object> map = new LinkedHashMap<>();
+                    StringCache cache = epoxy.stringCache();
                     reader.beginObject();
                     while (reader.hasNext()) {
-                        map.put(reader.nextName(), fromJson(epoxy, reader));
+                        String name = cache != null ? reader.nextName(cache) : reader.nextName();
+                        map.put(name, fromJson(epoxy, reader));
                     }
                     reader.endObject();
                     return map;
@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+
+import java.math.BigInteger;
+
+/**
+ * Converts JSON numbers to doubles straight from their encoded bytes, without creating a string.
+ * Numbers of up to 19 significant digits are converted exactly, either by one floating point operation
+ * when the digits and the power of ten are both exact doubles, or by the Eisel-Lemire algorithm, which
+ * multiplies the digits by a 128 bit approximation of the power of ten. The rare numbers neither can
+ * decide are left to {@link Double#parseDouble(String)}.
+ */
+final class DoubleParser {
+
+    private static final int MAX_DIGITS = 19;
+
+    /**
+     * Decimal exponents below which every value rounds to zero, and above which every value overflows.
+     */
+    private static final int MIN_EXPONENT = -342;
+    private static final int MAX_EXPONENT = 308;
+
+    /**
+     * Powers of ten that are exact doubles.
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * The high and low halves of 5^q normalized to 128 bits, for q from {@link #MIN_EXPONENT}, truncated
+     * for positive powers and rounded up for negative ones.
+     */
+    private static final long[] POWERS_OF_FIVE = new long[(MAX_EXPONENT - MIN_EXPONENT + 1) * 2];
+
+    static {
+        BigInteger five = BigInteger.valueOf(5);
+        BigInteger power = BigInteger.ONE;
+        for (int q = -1; q >= MIN_EXPONENT; q--) {
+            power = power.multiply(five);
+            int z = power.bitLength();
+            int b = q >= -27 ? z + 127 : 2 * z + 128;
+            BigInteger c = BigInteger.ONE.shiftLeft(b).divide(power).add(BigInteger.ONE);
+            setPowerOfFive(q, c.shiftRight(Math.max(c.bitLength() - 128, 0)));
+        }
+        power = BigInteger.ONE;
+        for (int q = 0; q <= MAX_EXPONENT; q++) {
+            setPowerOfFive(q, power.bitLength() <= 128 ? power.shiftLeft(128 - power.bitLength())
+                    : power.shiftRight(power.bitLength() - 128));
+            power = power.multiply(five);
+        }
+    }
+
+    private DoubleParser() {
+        throw new IllegalAccessError("no instances");
+    }
+
+
+    private static void setPowerOfFive(int q, @NonNull BigInteger value) {
+        int index = (q - MIN_EXPONENT) * 2;
+        POWERS_OF_FIVE[index] = value.shiftRight(64).longValue();
+        POWERS_OF_FIVE[index + 1] = value.longValue();
+    }
+
+    /**
+     * Returns the value of the JSON number in {@code length} bytes of {@code buffer} from {@code offset},
+     * which must already be known to be well formed, or NaN if it needs a slower exact conversion.
+     * Values too large for a double are infinite.
+     */
+    static double parse(@NonNull byte[] buffer, int offset, int length) {
+        int p = offset;
+        int end = offset + length;
+        boolean negative = buffer[p] == '-';
+        if (negative) {
+            p++;
+        }
+
+        // Digits are accumulated as an unsigned long, which holds any 19 of them. Beyond that it wraps,
+        // possibly to zero, so significant digits are counted from the first nonzero one instead
+        long digits = 0;
+        int significant = 0;
+        int exponent = 0;
+        int b;
+        for (; p < end && (b = buffer[p] - '0') >= 0 && b <= 9; p++) {
+            digits = digits * 10 + b;
+            if (significant != 0 || b != 0) {
+                significant++;
+            }
+        }
+        if (p < end && buffer[p] == '.') {
+            for (p++; p < end && (b = buffer[p] - '0') >= 0 && b <= 9; p++) {
+                digits = digits * 10 + b;
+                if (significant != 0 || b != 0) {
+                    significant++;
+                }
+                exponent--;
+            }
+        }
+        if (significant > MAX_DIGITS) {
+            return Double.NaN;
+        }
+        if (p < end) {
+            // An exponent, which is saturated well beyond the range of doubles
+            boolean negativeExponent = buffer[++p] == '-';
+            if (negativeExponent || buffer[p] == '+') {
+                p++;
+            }
+            int value = 0;
+            for (; p < end; p++) {
+                if (value < 10000) {
+                    value = value * 10 + buffer[p] - '0';
+                }
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+
+        double result;
+        if (digits == 0 || exponent < MIN_EXPONENT) {
+            result = 0;
+        } else if (exponent > MAX_EXPONENT) {
+            result = Double.POSITIVE_INFINITY;
+        } else if (exponent >= -22 && exponent <= 22 && digits >= 0 && digits <= 1L << 53) {
+            // Both operands are exact, so the one rounding of the operation is correct
+            result = exponent < 0 ? digits / POWERS_OF_TEN[-exponent] : digits * POWERS_OF_TEN[exponent];
+        } else {
+            result = eiselLemire(digits, exponent);
+        }
+        return negative ? -result : result;
+    }
+
+    /**
+     * Returns {@code digits * 10^exponent} correctly rounded, or NaN if the approximation of the power
+     * of ten is not precise enough to tell.
+     */
+    private static double eiselLemire(long digits, int exponent) {
+        int shift = Long.numberOfLeadingZeros(digits);
+        long w = digits << shift;
+        int index = (exponent - MIN_EXPONENT) * 2;
+
+        long low = w * POWERS_OF_FIVE[index];
+        long high = multiplyHigh(w, POWERS_OF_FIVE[index]);
+        if ((high & 0x1ff) == 0x1ff) {
+            // The bits below the mantissa may be off by the low half of the power, so add it in
+            long carry = multiplyHigh(w, POWERS_OF_FIVE[index + 1]);
+            long sum = low + carry;
+            if ((sum ^ Long.MIN_VALUE) < (low ^ Long.MIN_VALUE)) {
+                high++;
+            }
+            low = sum;
+            if (low == -1 && (exponent < -27 || exponent > 55)) {
+                return Double.NaN;
+            }
+        }
+
+        int upperBit = (int) (high >>> 63);
+        long mantissa = high >>> (upperBit + 9);
+        int power2 = ((217706 * exponent) >> 16) + 63 + upperBit - shift + 1023;
+
+        if (power2 <= 0) {
+            // Subnormal, or too small even for that
+            if (-power2 + 1 >= 64) {
+                return 0;
+            }
+            mantissa >>>= -power2 + 1;
+            mantissa += mantissa & 1;
+            mantissa >>>= 1;
+            power2 = mantissa < 1L << 52 ? 0 : 1;
+            return Double.longBitsToDouble(mantissa | (long) power2 << 52);
+        }
+
+        // Halfway between two doubles, which rounds to even rather than up
+        if ((low == 0 || low == 1) && exponent >= -4 && exponent <= 23 && (mantissa & 3) == 1
+                && mantissa << (upperBit + 9) == high) {
+            mantissa &= ~1L;
+        }
+        mantissa += mantissa & 1;
+        mantissa >>>= 1;
+        if (mantissa >= 2L << 52) {
+            mantissa = 1L << 52;
+            power2++;
+        }
+        mantissa &= ~(1L << 52);
+        if (power2 >= 0x7ff) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Double.longBitsToDouble(mantissa | (long) power2 << 52);
+    }
+
+    /**
+     * Returns the high 64 bits of the unsigned 128 bit product of {@code x} and {@code y}.
+     */
+    private static long multiplyHigh(long x, long y) {
+        long x0 = x & 0xffffffffL;
+        long x1 = x >>> 32;
+        long y0 = y & 0xffffffffL;
+        long y1 = y >>> 32;
+        long p01 = x0 * y1;
+        long middle = x1 * y0 + (x0 * y0 >>> 32) + (p01 & 0xffffffffL);
+        return x1 * y1 + (middle >>> 32) + (p01 >>> 32);
+    }
+}
@@ -16,19 +16,103 @@
 package me.oriley.epoxy;
 
 import android.support.annotation.NonNull;
-import android.util.JsonReader;
-import android.util.JsonWriter;
+import android.support.annotation.Nullable;
 
 import java.io.*;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Type;
-import java.util.LinkedHashMap;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
 
 @SuppressWarnings("WeakerAccess")
 public final class Epoxy {
 
+    private static final int DEFAULT_MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Fewest elements decoded by a single parallel task, so that tiny elements aren't swamped by
+     * scheduling.
+     */
+    private static final int MIN_PARALLEL_BATCH = 64;
+
+    @NonNull
+    private final ConcurrentMap<Type, JsonAdapter<?>> mAdapterCache = new ConcurrentHashMap<>();
+
+    /**
+     * Classes known to have no generated adapter, so we only pay for the failed class lookup once.
+     */
+    @NonNull
+    private final Set<Class<?>> mMissingGeneratedAdapters =
+            Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+
+    /**
+     * Types for which no adapter could be found at all.
+     */
+    @NonNull
+    private final Set<Type> mUnsupportedTypes = Collections.newSetFromMap(new ConcurrentHashMap<Type, Boolean>());
+
+    /**
+     * The adapter currently being created by this thread, if any.
+     */
+    @NonNull
+    private final ThreadLocal<PendingAdapter<?>> mBuilding = new ThreadLocal<>();
+
+    /**
+     * The placeholder each building thread is waiting on, used to spot threads that would wait on each
+     * other. Guarded by itself.
+     */
     @NonNull
-    private final Map<Type, JsonAdapter<?>> mAdapterCache = new LinkedHashMap<>();
+    private final Map<Thread, PendingAdapter<?>> mWaiting = new HashMap<>();
+
+    @Nullable
+    private final EpoxyListener mListener;
+
+    /**
+     * Readers and writers reused by the convenience methods, or null if pooling is disabled.
+     */
+    @Nullable
+    private final JsonPool mPool;
+
+    /**
+     * Canonical instances of map keys, or null if keys aren't deduplicated.
+     */
+    @Nullable
+    private final StringCache mStringCache;
+
+    /**
+     * Constants that unknown names of each enum type decode to.
+     */
+    @NonNull
+    private final Map<Class<?>, Enum<?>> mEnumFallbacks;
+
+    private final boolean mPrimitiveKeyMaps;
+
+
+    public Epoxy() {
+        this(new Builder());
+    }
+
+    private Epoxy(@NonNull Builder builder) {
+        mListener = builder.mListener;
+        mPool = builder.mPoolSize > 0 ? new JsonPool(builder.mPoolSize, builder.mMaxRetainedBufferSize) : null;
+        mStringCache = builder.mStringCache;
+        mEnumFallbacks = new HashMap<>(builder.mEnumFallbacks);
+        mPrimitiveKeyMaps = builder.mPrimitiveKeyMaps;
+    }
 
 
     @SuppressWarnings("unchecked")
@@ -36,51 +120,379 @@ public final class Epoxy {
         return (T) typeAdapter(type).fromJson(this, reader);
     }
 
+    /**
+     * Decodes a value of {@code type}, binding only the wanted {@code fields} of it and leaving the rest
+     * unset. See {@link FieldSet}.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T fromJson(@NonNull JsonReader reader, @NonNull Type type, @NonNull FieldSet fields)
+            throws IOException {
+        return (T) typeAdapter(type).fromJson(this, reader, fields);
+    }
+
+    public <T> T fromJson(@NonNull InputStream source, @NonNull Class<T> c) throws IOException {
+        Utf8JsonReader reader = acquireReader();
+        try {
+            reader.reset(source);
+            return fromJson(reader, c);
+        } finally {
+            release(reader);
+        }
+    }
+
+    public <T> T fromJson(@NonNull byte[] bytes, @NonNull Class<T> c) throws IOException {
+        Utf8JsonReader reader = acquireReader();
+        try {
+            reader.reset(bytes, 0, bytes.length);
+            return fromJson(reader, c);
+        } finally {
+            release(reader);
+        }
+    }
+
+    public <T> T fromJson(@NonNull byte[] bytes, @NonNull Class<T> c, @NonNull FieldSet fields) throws IOException {
+        Utf8JsonReader reader = acquireReader();
+        try {
+            reader.reset(bytes, 0, bytes.length);
+            return fromJson(reader, c, fields);
+        } finally {
+            release(reader);
+        }
+    }
+
     public <T> T fromJson(@NonNull Reader source, @NonNull Class<T> c) throws IOException {
-        return fromJson(new JsonReader(source), c);
+        return fromJson(new ReaderInputStream(source), c);
     }
 
     public <T> T fromJson(@NonNull String string, @NonNull Class<T> c) throws IOException {
-        return fromJson(new StringReader(string), c);
+        Utf8JsonReader reader = acquireReader();
+        try {
+            reader.reset(string);
+            return fromJson(reader, c);
+        } finally {
+            release(reader);
+        }
+    }
+
+    /**
+     * Reads a document of {@code type} from the file at {@code path}, a buffer at a time rather than
+     * loading it onto the heap, so files of any size can be bound.
+     */
+    public <T> T fromJson(@NonNull Path path, @NonNull Type type) throws IOException {
+        Utf8JsonReader reader = acquireReader();
+        try (InputStream source = Files.newInputStream(path)) {
+            reader.reset(source);
+            return fromJson(reader, type);
+        } finally {
+            release(reader);
+        }
+    }
+
+    /**
+     * Returns a reader over the file at {@code path}, for streaming through documents too large to bind
+     * at once. Closing the reader closes the file.
+     */
+    @NonNull
+    public JsonReader newJsonReader(@NonNull Path path) throws IOException {
+        return new Utf8JsonReader(Files.newInputStream(path));
+    }
+
+    /**
+     * Decodes the top level array in {@code json} into a list of {@code elementType}, decoding elements
+     * in parallel on a shared pool sized to the number of processors.
+     *
+     * @see #fromJsonArrayParallel(byte[], Type, ForkJoinPool)
+     */
+    @NonNull
+    public <T> List<T> fromJsonArrayParallel(@NonNull byte[] json, @NonNull Type elementType) throws IOException {
+        return fromJsonArrayParallel(json, elementType, SharedPool.POOL);
+    }
+
+    /**
+     * Decodes the top level array in {@code json} into a list of {@code elementType}, decoding elements
+     * in parallel on {@code pool}. A scan over the raw bytes finds where each element starts and ends,
+     * then batches of elements are decoded concurrently and stored in document order. Arrays too small
+     * to split are decoded on the calling thread.
+     * <p>
+     * Element adapters must be safe to use from several threads at once, as generated and built in
+     * adapters are. Failures in an element are thrown as {@link JsonException} naming its index.
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    public <T> List<T> fromJsonArrayParallel(@NonNull byte[] json, @NonNull Type elementType,
+                                             @NonNull ForkJoinPool pool) throws IOException {
+        JsonAdapter<?> adapter = typeAdapter(elementType).nullSafe();
+        int[] bounds = ArrayScanner.scan(json, 0, json.length);
+        int count = bounds.length / 2;
+        Object[] results = new Object[count];
+        // A few batches per worker lets fast workers pick up the slack from slow ones
+        int batch = Math.max(MIN_PARALLEL_BATCH, count / (pool.getParallelism() * 4));
+        if (count <= batch || pool.getParallelism() == 1) {
+            ParallelArrayDecoder.decode(this, adapter, json, bounds, results, 0, count);
+        } else {
+            pool.invoke(new ParallelArrayDecoder(this, adapter, json, bounds, results, 0, count, batch));
+        }
+        return new ArrayList<>((List<T>) Arrays.asList(results));
+    }
+
+    /**
+     * Decodes a CBOR encoded value through the same adapters as JSON.
+     */
+    public <T> T fromCbor(@NonNull byte[] bytes, @NonNull Class<T> c) throws IOException {
+        return fromJson(new CborReader(bytes), c);
+    }
+
+    /**
+     * Decodes a CBOR encoded value through the same adapters as JSON.
+     */
+    public <T> T fromCbor(@NonNull InputStream source, @NonNull Class<T> c) throws IOException {
+        return fromJson(new CborReader(source), c);
+    }
+
+    /**
+     * Returns an iterator over the newline delimited JSON records in {@code source}, each bound as
+     * {@code type}. Close it to release the source early; it closes itself once exhausted.
+     */
+    @NonNull
+    public <T> NdjsonReader<T> newNdjsonReader(@NonNull InputStream source, @NonNull Type type) {
+        JsonAdapter<T> adapter = typeAdapter(type);
+        Utf8JsonReader reader = acquireReader();
+        reader.reset(source);
+        return new NdjsonReader<>(this, adapter, reader);
     }
 
     public <T> void toJson(@NonNull JsonWriter writer, @NonNull T value, @NonNull Type type) throws IOException {
         typeAdapter(type).toJson(this, writer, value);
     }
 
+    public <T> void toJson(@NonNull OutputStream sink, @NonNull T value, @NonNull Class<T> c) throws IOException {
+        Utf8JsonWriter writer = acquireWriter(sink);
+        try {
+            toJson(writer, value, c);
+            writer.flush();
+        } finally {
+            release(writer);
+        }
+    }
+
     public <T> void toJson(@NonNull Writer sink, @NonNull T value, @NonNull Class<T> c) throws IOException {
-        JsonWriter writer = new JsonWriter(sink);
-        toJson(writer, value, c);
+        sink.write(toJson(value, c));
+    }
+
+    @NonNull
+    public <T> byte[] toJsonBytes(@NonNull T value, @NonNull Class<T> c) throws IOException {
+        Utf8JsonWriter writer = acquireWriter(null);
+        try {
+            toJson(writer, value, c);
+            return writer.toByteArray();
+        } finally {
+            release(writer);
+        }
     }
 
     @NonNull
     public <T> String toJson(@NonNull T value, @NonNull Class<T> c) throws IOException {
-        StringWriter writer = new StringWriter();
+        Utf8JsonWriter writer = acquireWriter(null);
+        try {
+            toJson(writer, value, c);
+            return writer.toString();
+        } finally {
+            release(writer);
+        }
+    }
+
+    /**
+     * Encodes {@code value} as CBOR through the same adapters as JSON, with numbers in binary.
+     */
+    public <T> void toCbor(@NonNull OutputStream sink, @NonNull T value, @NonNull Class<T> c) throws IOException {
+        CborWriter writer = new CborWriter(sink);
         toJson(writer, value, c);
-        return writer.getBuffer().toString();
+        writer.flush();
     }
 
+    /**
+     * Encodes {@code value} as CBOR through the same adapters as JSON, with numbers in binary.
+     */
     @NonNull
-    @SuppressWarnings("unchecked")
-    <T> JsonAdapter<T> typeAdapter(@NonNull Type type) {
-        JsonAdapter result;
+    public <T> byte[] toCbor(@NonNull T value, @NonNull Class<T> c) throws IOException {
+        CborWriter writer = new CborWriter();
+        toJson(writer, value, c);
+        return writer.toByteArray();
+    }
+
+    /**
+     * Returns a writer of {@code type} values as newline delimited JSON records to {@code sink}.
+     */
+    @NonNull
+    public <T> NdjsonWriter<T> newNdjsonWriter(@NonNull OutputStream sink, @NonNull Type type) {
+        JsonAdapter<T> adapter = typeAdapter(type);
+        return new NdjsonWriter<>(this, adapter, sink, acquireWriter(sink));
+    }
+
+    /**
+     * Writes each of {@code values} as a newline delimited JSON record to {@code sink}, and flushes it.
+     * Returns the number of bytes written.
+     */
+    public <T> long toNdjson(@NonNull OutputStream sink, @NonNull Iterable<? extends T> values, @NonNull Type type)
+            throws IOException {
+        return toNdjson(sink, values.iterator(), type);
+    }
+
+    /**
+     * Writes the remaining {@code values} as newline delimited JSON records to {@code sink}, and flushes
+     * it. Returns the number of bytes written.
+     */
+    public <T> long toNdjson(@NonNull OutputStream sink, @NonNull Iterator<? extends T> values, @NonNull Type type)
+            throws IOException {
+        JsonAdapter<T> adapter = typeAdapter(type);
+        Utf8JsonWriter writer = acquireWriter(sink);
+        try {
+            while (values.hasNext()) {
+                adapter.toJson(this, writer, values.next());
+                writer.endRecord();
+            }
+            writer.flush();
+            return writer.size();
+        } finally {
+            release(writer);
+        }
+    }
+
+    @NonNull
+    Utf8JsonReader acquireReader() {
+        return mPool != null ? mPool.acquireReader() : new Utf8JsonReader();
+    }
 
-        synchronized (mAdapterCache) {
-            result = mAdapterCache.get(type);
+    void release(@NonNull Utf8JsonReader reader) {
+        if (mPool != null) {
+            mPool.release(reader);
+        }
+    }
+
+    @NonNull
+    Utf8JsonWriter acquireWriter(@Nullable OutputStream sink) {
+        if (mPool == null) {
+            return new Utf8JsonWriter(sink);
+        }
+        Utf8JsonWriter writer = mPool.acquireWriter();
+        writer.reset(sink);
+        return writer;
+    }
+
+    void release(@NonNull Utf8JsonWriter writer) {
+        if (mPool != null) {
+            mPool.release(writer);
+        }
+    }
+
+    /**
+     * Returns the adapter for {@code type}, creating and caching it on first use. Lookups of cached
+     * adapters never block; when several threads race to create the same adapter only one of them
+     * builds it while the others wait for the result.
+     * <p>
+     * Generated adapters call this once per nested type when they are created, and then invoke the
+     * returned adapters directly.
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    public <T> JsonAdapter<T> typeAdapter(@NonNull Type type) {
+        JsonAdapter<?> result = mAdapterCache.get(type);
+        if (mListener != null) {
             if (result != null) {
-                return (JsonAdapter<T>) result;
+                mListener.adapterCacheHit(type);
+            } else {
+                mListener.adapterCacheMiss(type);
             }
         }
+        if (result == null) {
+            PendingAdapter<?> pending = new PendingAdapter<>(type);
+            result = mAdapterCache.putIfAbsent(type, pending);
+            if (result == null) {
+                result = buildAdapter(type, pending);
+            }
+        }
+        if (result instanceof PendingAdapter) {
+            PendingAdapter<?> pending = (PendingAdapter<?>) result;
+            if (pending.mOwner != Thread.currentThread()) {
+                result = awaitUnlessCycle(pending);
+            }
+        }
+        return (JsonAdapter<T>) result;
+    }
 
-        if (type instanceof Class) {
-            Class<?> typeClass = (Class) type;
-            try {
-                Class<?> adapterClass = Class.forName(typeClass.getName() + JsonAdapter.CLASS_SUFFIX);
-                //noinspection unchecked
-                result = (JsonAdapter) adapterClass.newInstance();
-            } catch (Exception e) {
-                // Ignore, move along
+    /**
+     * Waits for another thread to build the adapter {@code pending} stands in for, unless that thread
+     * is itself waiting, directly or through others, on an adapter this thread is building. Waiting
+     * then would deadlock, so the placeholder is returned instead, as it is for cycles within a thread.
+     */
+    @NonNull
+    private JsonAdapter<?> awaitUnlessCycle(@NonNull PendingAdapter<?> pending) {
+        Thread current = Thread.currentThread();
+        if (mBuilding.get() == null) {
+            // Builds nothing that anyone could be waiting on
+            return pending.await();
+        }
+        synchronized (mWaiting) {
+            for (PendingAdapter<?> next = pending; next != null && !next.isDone(); next = mWaiting.get(next.mOwner)) {
+                if (next.mOwner == current) {
+                    return pending;
+                }
             }
+            mWaiting.put(current, pending);
+        }
+        try {
+            return pending.await();
+        } finally {
+            synchronized (mWaiting) {
+                mWaiting.remove(current);
+            }
+        }
+    }
+
+    @NonNull
+    private JsonAdapter<?> buildAdapter(@NonNull Type type, @NonNull PendingAdapter<?> pending) {
+        PendingAdapter<?> previous = mBuilding.get();
+        mBuilding.set(pending);
+        JsonAdapter<?> result;
+        try {
+            if (mListener != null) {
+                long startNanos = System.nanoTime();
+                result = instrument(type, createAdapter(type), mListener);
+                mListener.adapterCreated(type, System.nanoTime() - startNanos);
+            } else {
+                result = createAdapter(type);
+            }
+        } catch (RuntimeException | Error e) {
+            mAdapterCache.remove(type, pending);
+            pending.fail(e);
+            throw e;
+        } finally {
+            if (previous != null) {
+                mBuilding.set(previous);
+            } else {
+                mBuilding.remove();
+            }
+        }
+        mAdapterCache.replace(type, pending, result);
+        pending.complete(result);
+        return result;
+    }
+
+    @NonNull
+    private static <T> JsonAdapter<T> instrument(@NonNull Type type, @NonNull JsonAdapter<T> adapter,
+                                                 @NonNull EpoxyListener listener) {
+        return new InstrumentedJsonAdapter<>(type, adapter, listener);
+    }
+
+    @NonNull
+    private JsonAdapter<?> createAdapter(@NonNull Type type) {
+        if (mUnsupportedTypes.contains(type)) {
+            throw new IllegalArgumentException("No JsonAdapter for " + type);
+        }
+
+        JsonAdapter<?> result = null;
+        if (type instanceof Class) {
+            result = generatedAdapter((Class<?>) type);
         }
 
         if (result == null) {
@@ -88,13 +500,314 @@ public final class Epoxy {
             result = CoreAdapters.createAdapter(type, this);
         }
 
-        if (result != null) {
-            synchronized (mAdapterCache) {
-                mAdapterCache.put(type, result);
+        if (result == null) {
+            mUnsupportedTypes.add(type);
+            throw new IllegalArgumentException("No JsonAdapter for " + type);
+        }
+        return result;
+    }
+
+    @Nullable
+    private JsonAdapter<?> generatedAdapter(@NonNull Class<?> typeClass) {
+        if (typeClass.isPrimitive() || typeClass.isArray() || mMissingGeneratedAdapters.contains(typeClass)) {
+            return null;
+        }
+
+        RegistryEntry entry = Registries.ENTRIES.get(typeClass.getName());
+        if (entry != null) {
+            return entry.mRegistry.create(entry.mIndex, this);
+        }
+
+        // Adapters generated without a registry are still found by name
+        Constructor<?> constructor;
+        try {
+            Class<?> adapterClass = Class.forName(typeClass.getName() + JsonAdapter.CLASS_SUFFIX);
+            constructor = adapterClass.getConstructor(Epoxy.class);
+        } catch (Exception e) {
+            // Ignore, move along
+            mMissingGeneratedAdapters.add(typeClass);
+            return null;
+        }
+        try {
+            return (JsonAdapter<?>) constructor.newInstance(this);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new JsonException("Failed to create adapter for " + typeClass, cause);
+        } catch (Exception e) {
+            throw new JsonException("Failed to create adapter for " + typeClass, e);
+        }
+    }
+
+    /**
+     * Returns the cache that map keys are read through, or null if none was set.
+     */
+    @Nullable
+    public StringCache stringCache() {
+        return mStringCache;
+    }
+
+    /**
+     * Returns the constant that unknown names of {@code enumType} decode to, or null if they are an error.
+     */
+    @Nullable
+    Enum<?> enumFallback(@NonNull Class<?> enumType) {
+        return mEnumFallbacks.get(enumType);
+    }
+
+    /**
+     * Returns whether maps with integral or enum keys decode to maps specialized for those keys.
+     */
+    boolean primitiveKeyMaps() {
+        return mPrimitiveKeyMaps;
+    }
+
+    public static final class Builder {
+
+        @Nullable
+        private EpoxyListener mListener;
+
+        @Nullable
+        private StringCache mStringCache;
+
+        @NonNull
+        private final Map<Class<?>, Enum<?>> mEnumFallbacks = new HashMap<>();
+
+        private boolean mPrimitiveKeyMaps;
+
+        private int mPoolSize = Runtime.getRuntime().availableProcessors() * 2;
+
+        private int mMaxRetainedBufferSize = DEFAULT_MAX_RETAINED_BUFFER_SIZE;
+
+
+        /**
+         * Reports adapter lookups and the time spent reading and writing each type to {@code listener}.
+         */
+        @NonNull
+        public Builder listener(@Nullable EpoxyListener listener) {
+            mListener = listener;
+            return this;
+        }
+
+        /**
+         * Sets how many readers and writers of each kind the convenience methods keep for reuse. Zero
+         * disables pooling, so that every call allocates its own.
+         */
+        @NonNull
+        public Builder poolSize(int poolSize) {
+            if (poolSize < 0) {
+                throw new IllegalArgumentException("poolSize < 0: " + poolSize);
             }
-            return (JsonAdapter<T>) result;
+            mPoolSize = poolSize;
+            return this;
         }
 
-        throw new IllegalArgumentException("No JsonAdapter for " + type);
+        /**
+         * Sets the largest buffer, in bytes, that a pooled reader or writer may keep. Ones that grew
+         * beyond it for a large document are dropped rather than pooled.
+         */
+        @NonNull
+        public Builder maxRetainedBufferSize(int maxRetainedBufferSize) {
+            if (maxRetainedBufferSize < 0) {
+                throw new IllegalArgumentException("maxRetainedBufferSize < 0: " + maxRetainedBufferSize);
+            }
+            mMaxRetainedBufferSize = maxRetainedBufferSize;
+            return this;
+        }
+
+        /**
+         * Reads the keys of maps, including those decoded for {@code Object} values, through {@code cache}
+         * so that keys repeated across a document or between documents share one instance.
+         */
+        @NonNull
+        public Builder stringCache(@Nullable StringCache cache) {
+            mStringCache = cache;
+            return this;
+        }
+
+        /**
+         * Decodes names that aren't constants of {@code enumType} to {@code fallback}, rather than failing,
+         * so that documents from a newer schema can still be read.
+         */
+        @NonNull
+        public <T extends Enum<T>> Builder enumFallback(@NonNull Class<T> enumType, @Nullable T fallback) {
+            if (fallback == null) {
+                mEnumFallbacks.remove(enumType);
+            } else {
+                mEnumFallbacks.put(enumType, fallback);
+            }
+            return this;
+        }
+
+        /**
+         * Decodes {@code Map<Integer, V>} and {@code Map<Long, V>} to an {@link IntKeyMap} or {@link LongKeyMap},
+         * which hold keys unboxed with no entry objects, and maps keyed on an enum to an {@link java.util.EnumMap}.
+         * Otherwise they decode to a {@link java.util.LinkedHashMap} like other maps.
+         */
+        @NonNull
+        public Builder primitiveKeyMaps(boolean primitiveKeyMaps) {
+            mPrimitiveKeyMaps = primitiveKeyMaps;
+            return this;
+        }
+
+        @NonNull
+        public Epoxy build() {
+            return new Epoxy(this);
+        }
+    }
+
+    /**
+     * Pool for parallel decoding when the caller doesn't supply one, created on first use.
+     */
+    private static final class SharedPool {
+
+        @NonNull
+        static final ForkJoinPool POOL = new ForkJoinPool();
+
+
+        private SharedPool() {
+            throw new IllegalAccessError("no instances");
+        }
+    }
+
+    /**
+     * Generated adapter registries on the classpath, loaded once on first use.
+     */
+    private static final class Registries {
+
+        @NonNull
+        static final Map<String, RegistryEntry> ENTRIES = load();
+
+
+        private Registries() {
+            throw new IllegalAccessError("no instances");
+        }
+
+
+        @NonNull
+        private static Map<String, RegistryEntry> load() {
+            Map<String, RegistryEntry> entries = new HashMap<>();
+            for (JsonAdapterRegistry registry : ServiceLoader.load(JsonAdapterRegistry.class,
+                    Epoxy.class.getClassLoader())) {
+                String[] typeNames = registry.typeNames();
+                for (int i = 0; i < typeNames.length; i++) {
+                    entries.put(typeNames[i], new RegistryEntry(registry, i));
+                }
+            }
+            return entries;
+        }
+    }
+
+    private static final class RegistryEntry {
+
+        @NonNull
+        final JsonAdapterRegistry mRegistry;
+
+        final int mIndex;
+
+
+        RegistryEntry(@NonNull JsonAdapterRegistry registry, int index) {
+            mRegistry = registry;
+            mIndex = index;
+        }
+    }
+
+    /**
+     * Placeholder cached while an adapter is being created. Other threads wait for the real adapter,
+     * while the building thread gets the placeholder, for instance when a model contains a list of
+     * itself. The placeholder delegates to the real adapter once complete.
+     */
+    private static final class PendingAdapter<T> extends JsonAdapter<T> {
+
+        @NonNull
+        private final Type mType;
+
+        /**
+         * The thread that created the placeholder, which is the one that builds the adapter.
+         */
+        @NonNull
+        final Thread mOwner = Thread.currentThread();
+
+        @NonNull
+        private final CountDownLatch mLatch = new CountDownLatch(1);
+
+        @Nullable
+        private volatile JsonAdapter<T> mDelegate;
+
+        @Nullable
+        private volatile Throwable mFailure;
+
+
+        PendingAdapter(@NonNull Type type) {
+            mType = type;
+        }
+
+
+        @SuppressWarnings("unchecked")
+        void complete(@NonNull JsonAdapter<?> delegate) {
+            mDelegate = (JsonAdapter<T>) delegate;
+            mLatch.countDown();
+        }
+
+        void fail(@NonNull Throwable failure) {
+            mFailure = failure;
+            mLatch.countDown();
+        }
+
+        boolean isDone() {
+            return mLatch.getCount() == 0;
+        }
+
+        @NonNull
+        JsonAdapter<T> await() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    mLatch.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            JsonAdapter<T> delegate = mDelegate;
+            if (delegate == null) {
+                throw new IllegalArgumentException("No JsonAdapter for " + mType, mFailure);
+            }
+            return delegate;
+        }
+
+        @NonNull
+        private JsonAdapter<T> delegate() {
+            JsonAdapter<T> delegate = mDelegate;
+            return delegate != null ? delegate : await();
+        }
+
+        @Override
+        public T fromJson(@NonNull Epoxy epoxy, @NonNull JsonReader reader) throws IOException {
+            return delegate().fromJson(epoxy, reader);
+        }
+
+        @Override
+        public T fromJson(@NonNull Epoxy epoxy, @NonNull JsonReader reader, @NonNull FieldSet fields)
+                throws IOException {
+            return delegate().fromJson(epoxy, reader, fields);
+        }
+
+        @Override
+        public void toJson(@NonNull Epoxy epoxy, @NonNull JsonWriter writer, @Nullable T value) throws IOException {
+            delegate().toJson(epoxy, writer, value);
+        }
+
+        @Override
+        public String toString() {
+            return "PendingAdapter(" + mType + ")";
+        }
     }
 }
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+
+import java.lang.reflect.Type;
+
+/**
+ * Receives timings and counts from an {@link Epoxy} instance, installed with
+ * {@link Epoxy.Builder#listener(EpoxyListener)}. Override only the callbacks of interest.
+ * <p>
+ * Callbacks are made on the thread doing the work, from inside the parse or write, so implementations
+ * must be thread safe and fast. Decode and encode timings are reported for every adapter, including
+ * nested ones, and include the time spent in nested adapters.
+ * <p>
+ * Without a listener, adapters are not wrapped and the only remaining cost is a null check when an
+ * adapter is created.
+ */
+@SuppressWarnings("WeakerAccess")
+public abstract class EpoxyListener {
+
+    /**
+     * {@link Epoxy#typeAdapter(Type)} found {@code type} in its cache.
+     */
+    public void adapterCacheHit(@NonNull Type type) {
+    }
+
+    /**
+     * {@link Epoxy#typeAdapter(Type)} did not find {@code type} in its cache.
+     */
+    public void adapterCacheMiss(@NonNull Type type) {
+    }
+
+    /**
+     * The adapter for {@code type} was created, taking {@code nanos} including any nested adapters it
+     * created in turn.
+     */
+    public void adapterCreated(@NonNull Type type, long nanos) {
+    }
+
+    /**
+     * A value of {@code type} was read, consuming {@code bytes} of input in {@code nanos}. Bytes are -1
+     * if the reader does not count them, and may be off by the token the caller peeked before reading.
+     */
+    public void decoded(@NonNull Type type, long bytes, long nanos) {
+    }
+
+    /**
+     * A value of {@code type} was written, producing {@code bytes} of output in {@code nanos}. Bytes are
+     * -1 if the writer does not count them.
+     */
+    public void encoded(@NonNull Type type, long bytes, long nanos) {
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An {@link EpoxyListener} which aggregates counts, bytes and latency histograms per type, for export
+ * to a metrics system or for logging with {@link #toString()}. Counters are striped by thread, so
+ * threads decoding the same type on different cores don't contend on them.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class EpoxyMetrics extends EpoxyListener {
+
+    private static final int BYTES_READ = 0;
+    private static final int BYTES_WRITTEN = 1;
+    private static final int CACHE_HITS = 2;
+    private static final int CACHE_MISSES = 3;
+
+    @NonNull
+    private final ConcurrentMap<Type, TypeMetrics> mMetrics = new ConcurrentHashMap<>();
+
+
+    /**
+     * Returns the metrics recorded for {@code type}, or null if nothing was recorded for it.
+     */
+    @Nullable
+    public TypeMetrics forType(@NonNull Type type) {
+        return mMetrics.get(type);
+    }
+
+    /**
+     * Returns a snapshot of the types recorded so far and their metrics, which keep updating.
+     */
+    @NonNull
+    public Map<Type, TypeMetrics> all() {
+        return Collections.unmodifiableMap(new HashMap<>(mMetrics));
+    }
+
+    @Override
+    public void adapterCacheHit(@NonNull Type type) {
+        metrics(type).mCounters.add(CACHE_HITS, 1);
+    }
+
+    @Override
+    public void adapterCacheMiss(@NonNull Type type) {
+        metrics(type).mCounters.add(CACHE_MISSES, 1);
+    }
+
+    @Override
+    public void adapterCreated(@NonNull Type type, long nanos) {
+        metrics(type).mCreationNanos.addAndGet(nanos);
+    }
+
+    @Override
+    public void decoded(@NonNull Type type, long bytes, long nanos) {
+        TypeMetrics metrics = metrics(type);
+        metrics.mDecodeLatency.record(nanos);
+        if (bytes > 0) {
+            metrics.mCounters.add(BYTES_READ, bytes);
+        }
+    }
+
+    @Override
+    public void encoded(@NonNull Type type, long bytes, long nanos) {
+        TypeMetrics metrics = metrics(type);
+        metrics.mEncodeLatency.record(nanos);
+        if (bytes > 0) {
+            metrics.mCounters.add(BYTES_WRITTEN, bytes);
+        }
+    }
+
+    @NonNull
+    private TypeMetrics metrics(@NonNull Type type) {
+        TypeMetrics metrics = mMetrics.get(type);
+        if (metrics == null) {
+            TypeMetrics created = new TypeMetrics();
+            metrics = mMetrics.putIfAbsent(type, created);
+            if (metrics == null) {
+                metrics = created;
+            }
+        }
+        return metrics;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("EpoxyMetrics");
+        for (Map.Entry<Type, TypeMetrics> entry : mMetrics.entrySet()) {
+            builder.append("\n  ").append(entry.getKey()).append(": ").append(entry.getValue());
+        }
+        return builder.toString();
+    }
+
+    public static final class TypeMetrics {
+
+        @NonNull
+        private final LatencyHistogram mDecodeLatency = new LatencyHistogram();
+
+        @NonNull
+        private final LatencyHistogram mEncodeLatency = new LatencyHistogram();
+
+        @NonNull
+        private final StripedCounters mCounters = new StripedCounters(CACHE_MISSES + 1);
+
+        /**
+         * Only added to once per adapter, so not worth striping.
+         */
+        @NonNull
+        private final AtomicLong mCreationNanos = new AtomicLong();
+
+
+        TypeMetrics() {
+        }
+
+
+        /**
+         * Latency of reads, whose count is the number of values read.
+         */
+        @NonNull
+        public LatencyHistogram decodeLatency() {
+            return mDecodeLatency;
+        }
+
+        /**
+         * Latency of writes, whose count is the number of values written.
+         */
+        @NonNull
+        public LatencyHistogram encodeLatency() {
+            return mEncodeLatency;
+        }
+
+        public long bytesRead() {
+            return mCounters.sum(BYTES_READ);
+        }
+
+        public long bytesWritten() {
+            return mCounters.sum(BYTES_WRITTEN);
+        }
+
+        public long cacheHits() {
+            return mCounters.sum(CACHE_HITS);
+        }
+
+        public long cacheMisses() {
+            return mCounters.sum(CACHE_MISSES);
+        }
+
+        public long creationNanos() {
+            return mCreationNanos.get();
+        }
+
+        @Override
+        public String toString() {
+            return "decoded {" + mDecodeLatency + ", bytes=" + bytesRead() + "}, encoded {" + mEncodeLatency
+                    + ", bytes=" + bytesWritten() + "}, cache hits=" + cacheHits() + ", misses=" + cacheMisses()
+                    + ", created in " + creationNanos() + "ns";
+        }
+    }
+}
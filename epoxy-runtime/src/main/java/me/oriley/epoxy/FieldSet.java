@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@link JsonField} names to decode from an object, for consumers that only need a few fields of a
+ * large model. Generated adapters skip the values of all other fields without binding them, and leave
+ * those fields unset. Only the fields of the top level object are projected; the wanted values are
+ * decoded in full.
+ * <p>
+ * A field set resolves to a bitmask of the wanted fields once per model type, so create it once and
+ * reuse it. It is safe to share between threads.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class FieldSet {
+
+    @NonNull
+    private final String[] mNames;
+
+    private final boolean mStopEarly;
+
+    /**
+     * Bitmask of the wanted names in each table of names seen so far, keyed by identity.
+     */
+    @NonNull
+    private final ConcurrentHashMap<JsonOptions, long[]> mMasks = new ConcurrentHashMap<>();
+
+
+    private FieldSet(@NonNull String[] names, boolean stopEarly) {
+        mNames = names;
+        mStopEarly = stopEarly;
+    }
+
+
+    /**
+     * Returns a field set of the fields with the given JSON names. Names that a model doesn't have are
+     * ignored.
+     */
+    @NonNull
+    public static FieldSet of(@NonNull String... names) {
+        return new FieldSet(names.clone(), false);
+    }
+
+    /**
+     * Returns a copy of this field set that stops reading an object as soon as all of the wanted fields
+     * present in the model have been read, rather than skipping the rest of it. The reader is left
+     * inside the object, so only use this when nothing more will be read from it.
+     */
+    @NonNull
+    public FieldSet stopEarly() {
+        return mStopEarly ? this : new FieldSet(mNames, true);
+    }
+
+    /**
+     * Returns whether decoding may stop once all of the wanted fields have been read.
+     */
+    public boolean stopsEarly() {
+        return mStopEarly;
+    }
+
+    /**
+     * Returns the bitmask of the wanted names in {@code options}, by index. Called by generated adapters,
+     * which must not modify it.
+     */
+    @NonNull
+    public long[] mask(@NonNull JsonOptions options) {
+        long[] mask = mMasks.get(options);
+        if (mask == null) {
+            mask = new long[Math.max((options.size() + Long.SIZE - 1) / Long.SIZE, 1)];
+            for (String name : mNames) {
+                int index = options.indexOf(name);
+                if (index != -1) {
+                    mask[index / Long.SIZE] |= 1L << index;
+                }
+            }
+            long[] previous = mMasks.putIfAbsent(options, mask);
+            if (previous != null) {
+                mask = previous;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Returns whether bit {@code index} of {@code mask} is set.
+     */
+    public static boolean contains(@NonNull long[] mask, int index) {
+        return (mask[index / Long.SIZE] & 1L << index) != 0;
+    }
+
+    /**
+     * Clears bit {@code index} of {@code mask}, and returns whether no bits are left set.
+     */
+    public static boolean clear(@NonNull long[] mask, int index) {
+        mask[index / Long.SIZE] &= ~(1L << index);
+        for (long word : mask) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "FieldSet" + Arrays.toString(mNames) + (mStopEarly ? ".stopEarly()" : "");
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+
+/**
+ * A {@link JsonReader} that forwards every call to another, for readers that observe or adjust a stream
+ * of tokens, such as to count or trace them. Subclasses override only the methods they care about.
+ * <p>
+ * The name and string lookups are forwarded too, so a wrapped reader keeps its allocation free paths
+ * for {@link JsonOptions} and {@link StringCache}.
+ */
+@SuppressWarnings("WeakerAccess")
+public abstract class ForwardingJsonReader extends JsonReader {
+
+    @NonNull
+    private final JsonReader mDelegate;
+
+
+    protected ForwardingJsonReader(@NonNull JsonReader delegate) {
+        mDelegate = delegate;
+    }
+
+
+    @NonNull
+    protected final JsonReader delegate() {
+        return mDelegate;
+    }
+
+    @Override
+    public void beginArray() throws IOException {
+        mDelegate.beginArray();
+    }
+
+    @Override
+    public void endArray() throws IOException {
+        mDelegate.endArray();
+    }
+
+    @Override
+    public void beginObject() throws IOException {
+        mDelegate.beginObject();
+    }
+
+    @Override
+    public void endObject() throws IOException {
+        mDelegate.endObject();
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        return mDelegate.hasNext();
+    }
+
+    @NonNull
+    @Override
+    public JsonToken peek() throws IOException {
+        return mDelegate.peek();
+    }
+
+    @NonNull
+    @Override
+    public String nextName() throws IOException {
+        return mDelegate.nextName();
+    }
+
+    @Override
+    public int selectName(@NonNull JsonOptions options) throws IOException {
+        return mDelegate.selectName(options);
+    }
+
+    @NonNull
+    @Override
+    public String nextName(@NonNull StringCache cache) throws IOException {
+        return mDelegate.nextName(cache);
+    }
+
+    @Override
+    public long nextLongName() throws IOException {
+        return mDelegate.nextLongName();
+    }
+
+    @Override
+    public long bytesRead() {
+        return mDelegate.bytesRead();
+    }
+
+    @NonNull
+    @Override
+    public String nextString() throws IOException {
+        return mDelegate.nextString();
+    }
+
+    @NonNull
+    @Override
+    public String nextString(@NonNull StringCache cache) throws IOException {
+        return mDelegate.nextString(cache);
+    }
+
+    @Override
+    public int selectString(@NonNull JsonOptions options) throws IOException {
+        return mDelegate.selectString(options);
+    }
+
+    @Override
+    public boolean nextBoolean() throws IOException {
+        return mDelegate.nextBoolean();
+    }
+
+    @Override
+    public void nextNull() throws IOException {
+        mDelegate.nextNull();
+    }
+
+    @Override
+    public double nextDouble() throws IOException {
+        return mDelegate.nextDouble();
+    }
+
+    @Override
+    public long nextLong() throws IOException {
+        return mDelegate.nextLong();
+    }
+
+    @Override
+    public int nextInt() throws IOException {
+        return mDelegate.nextInt();
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        mDelegate.skipValue();
+    }
+
+    @NonNull
+    @Override
+    public byte[] nextRawValue() throws IOException {
+        return mDelegate.nextRawValue();
+    }
+
+    @Override
+    public void close() throws IOException {
+        mDelegate.close();
+    }
+
+    @Override
+    public String toString() {
+        return mDelegate.toString();
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+
+/**
+ * A {@link JsonWriter} that forwards every call to another, for writers that observe or adjust a stream
+ * of tokens, such as to count or trace them. Subclasses override only the methods they care about.
+ * <p>
+ * Names and values from {@link JsonOptions} are forwarded too, so a wrapped writer keeps copying their
+ * pre-encoded forms.
+ */
+@SuppressWarnings("WeakerAccess")
+public abstract class ForwardingJsonWriter extends JsonWriter {
+
+    @NonNull
+    private final JsonWriter mDelegate;
+
+
+    protected ForwardingJsonWriter(@NonNull JsonWriter delegate) {
+        mDelegate = delegate;
+    }
+
+
+    @NonNull
+    protected final JsonWriter delegate() {
+        return mDelegate;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter beginArray() throws IOException {
+        mDelegate.beginArray();
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter endArray() throws IOException {
+        mDelegate.endArray();
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter beginObject() throws IOException {
+        mDelegate.beginObject();
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter endObject() throws IOException {
+        mDelegate.endObject();
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter name(@NonNull String name) throws IOException {
+        mDelegate.name(name);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter name(@NonNull JsonOptions options, int index) throws IOException {
+        mDelegate.name(options, index);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter value(@Nullable String value) throws IOException {
+        mDelegate.value(value);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter value(@NonNull JsonOptions options, int index) throws IOException {
+        mDelegate.value(options, index);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter nullValue() throws IOException {
+        mDelegate.nullValue();
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter value(boolean value) throws IOException {
+        mDelegate.value(value);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter value(double value) throws IOException {
+        mDelegate.value(value);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter value(long value) throws IOException {
+        mDelegate.value(value);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter value(float value) throws IOException {
+        mDelegate.value(value);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter value(@Nullable Number value) throws IOException {
+        mDelegate.value(value);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter rawValue(@NonNull byte[] json) throws IOException {
+        mDelegate.rawValue(json);
+        return this;
+    }
+
+    @Override
+    public long bytesWritten() {
+        return mDelegate.bytesWritten();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        mDelegate.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        mDelegate.close();
+    }
+
+    @Override
+    public String toString() {
+        return mDelegate.toString();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * Reports each read and write of its delegate to an {@link EpoxyListener}. Only used when a listener
+ * is installed.
+ */
+final class InstrumentedJsonAdapter<T> extends JsonAdapter<T> {
+
+    @NonNull
+    private final Type mType;
+
+    @NonNull
+    private final JsonAdapter<T> mDelegate;
+
+    @NonNull
+    private final EpoxyListener mListener;
+
+
+    InstrumentedJsonAdapter(@NonNull Type type, @NonNull JsonAdapter<T> delegate, @NonNull EpoxyListener listener) {
+        mType = type;
+        mDelegate = delegate;
+        mListener = listener;
+    }
+
+
+    @Nullable
+    @Override
+    public T fromJson(@NonNull Epoxy epoxy, @NonNull JsonReader reader) throws IOException {
+        long startBytes = reader.bytesRead();
+        long startNanos = System.nanoTime();
+        T value = mDelegate.fromJson(epoxy, reader);
+        long nanos = System.nanoTime() - startNanos;
+        mListener.decoded(mType, startBytes < 0 ? -1 : reader.bytesRead() - startBytes, nanos);
+        return value;
+    }
+
+    @Nullable
+    @Override
+    public T fromJson(@NonNull Epoxy epoxy, @NonNull JsonReader reader, @NonNull FieldSet fields) throws IOException {
+        long startBytes = reader.bytesRead();
+        long startNanos = System.nanoTime();
+        T value = mDelegate.fromJson(epoxy, reader, fields);
+        long nanos = System.nanoTime() - startNanos;
+        mListener.decoded(mType, startBytes < 0 ? -1 : reader.bytesRead() - startBytes, nanos);
+        return value;
+    }
+
+    @Override
+    public void toJson(@NonNull Epoxy epoxy, @NonNull JsonWriter writer, @Nullable T value) throws IOException {
+        long startBytes = writer.bytesWritten();
+        long startNanos = System.nanoTime();
+        mDelegate.toJson(epoxy, writer, value);
+        long nanos = System.nanoTime() - startNanos;
+        mListener.encoded(mType, startBytes < 0 ? -1 : writer.bytesWritten() - startBytes, nanos);
+    }
+
+    @Override
+    public String toString() {
+        return mDelegate.toString();
+    }
+}
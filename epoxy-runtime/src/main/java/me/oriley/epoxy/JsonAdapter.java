@@ -18,9 +18,6 @@ package me.oriley.epoxy;
 
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.util.JsonReader;
-import android.util.JsonToken;
-import android.util.JsonWriter;
 
 import java.io.IOException;
 
@@ -39,6 +36,16 @@ public abstract class JsonAdapter<T> {
 
     public abstract void toJson(@NonNull Epoxy epoxy, @NonNull JsonWriter writer, @Nullable T value) throws IOException;
 
+    /**
+     * Decodes a value, binding only the wanted {@code fields} of it. Generated adapters skip the values
+     * of the other fields; other adapters decode the whole value.
+     */
+    @Nullable
+    public T fromJson(@NonNull Epoxy epoxy, @NonNull JsonReader reader, @NonNull FieldSet fields)
+            throws IOException {
+        return fromJson(epoxy, reader);
+    }
+
     /**
      * Returns a JSON adapter equal to this JSON adapter, but with support for reading and writing
      * nulls.
@@ -57,6 +64,18 @@ public abstract class JsonAdapter<T> {
                 }
             }
 
+            @Override
+            @Nullable
+            public T fromJson(@NonNull Epoxy epoxy, @NonNull JsonReader reader, @NonNull FieldSet fields)
+                    throws IOException {
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    return null;
+                } else {
+                    return delegate.fromJson(epoxy, reader, fields);
+                }
+            }
+
             @Override
             public void toJson(@NonNull Epoxy epoxy, @NonNull JsonWriter writer, @Nullable T value) throws IOException {
                 if (value == null) {
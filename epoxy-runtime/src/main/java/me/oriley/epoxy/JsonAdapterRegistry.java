@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+
+/**
+ * A table of generated adapters, written by the processor for each module and discovered by
+ * {@link Epoxy} through {@link java.util.ServiceLoader}. Types are listed by binary name so that
+ * loading the table does not load every model class.
+ */
+public interface JsonAdapterRegistry {
+
+    /**
+     * Returns the binary names of the types this registry has adapters for, in index order.
+     */
+    @NonNull
+    String[] typeNames();
+
+    /**
+     * Creates the adapter for the type at {@code index} in {@link #typeNames()}.
+     */
+    @NonNull
+    JsonAdapter<?> create(int index, @NonNull Epoxy epoxy);
+}
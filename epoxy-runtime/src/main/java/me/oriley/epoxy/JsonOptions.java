@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A precomputed table of names, such as the {@code @JsonField} names of a model, that readers can
+ * match against and report by index instead of returning a new string, and that writers can copy
+ * already escaped.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class JsonOptions {
+
+    @NonNull
+    private final String[] mNames;
+
+    /**
+     * Open addressing table of name index + 1, keyed on the name's hash code. Zero marks a free slot.
+     */
+    @NonNull
+    private final int[] mTable;
+
+    /**
+     * The UTF-8 encoding of each name.
+     */
+    @NonNull
+    private final byte[][] mEncoded;
+
+    /**
+     * As {@link #mTable}, but keyed on {@link #hash(int, byte)} of the encoded name.
+     */
+    @NonNull
+    private final int[] mEncodedTable;
+
+    /**
+     * Each name as a quoted, escaped JSON string, ready to be copied straight into a writer's buffer.
+     */
+    @NonNull
+    private final byte[][] mQuoted;
+
+    /**
+     * Each name as a property name segment such as {@code ,"name":}, including the separator that
+     * precedes all but the first property of an object.
+     */
+    @NonNull
+    private final byte[][] mNameSegments;
+
+    private final int mMask;
+
+    /**
+     * Length of the longest encoded name, beyond which nothing can match.
+     */
+    private final int mMaxLength;
+
+
+    private JsonOptions(@NonNull String[] names) {
+        mNames = names;
+        int capacity = Integer.highestOneBit(Math.max(names.length, 1) * 2 - 1) << 1;
+        mTable = new int[capacity];
+        mEncoded = new byte[names.length][];
+        mEncodedTable = new int[capacity];
+        mQuoted = new byte[names.length][];
+        mNameSegments = new byte[names.length][];
+        mMask = capacity - 1;
+        int maxLength = 0;
+        Utf8JsonWriter writer = new Utf8JsonWriter();
+        for (int i = 0; i < names.length; i++) {
+            if (indexOf(names[i]) != -1) {
+                throw new IllegalArgumentException("Duplicate name '" + names[i] + "' in " + Arrays.toString(names));
+            }
+            insert(mTable, names[i].hashCode(), i);
+
+            byte[] encoded = names[i].getBytes(StandardCharsets.UTF_8);
+            int hash = 0;
+            for (byte b : encoded) {
+                hash = hash(hash, b);
+            }
+            mEncoded[i] = encoded;
+            maxLength = Math.max(maxLength, encoded.length);
+            insert(mEncodedTable, hash, i);
+
+            writer.reset(null);
+            try {
+                writer.value(names[i]);
+            } catch (IOException e) {
+                // Writing to memory doesn't throw
+                throw new AssertionError(e);
+            }
+            byte[] quoted = writer.toByteArray();
+            byte[] segment = new byte[quoted.length + 2];
+            segment[0] = ',';
+            System.arraycopy(quoted, 0, segment, 1, quoted.length);
+            segment[segment.length - 1] = ':';
+            mQuoted[i] = quoted;
+            mNameSegments[i] = segment;
+        }
+        mMaxLength = maxLength;
+    }
+
+
+    @NonNull
+    public static JsonOptions of(@NonNull String... names) {
+        return new JsonOptions(names.clone());
+    }
+
+    public int size() {
+        return mNames.length;
+    }
+
+    @NonNull
+    public String name(int index) {
+        return mNames[index];
+    }
+
+    /**
+     * Returns the index of {@code name}, or -1 if it is not one of these options.
+     */
+    public int indexOf(@NonNull String name) {
+        int slot = name.hashCode() & mMask;
+        int entry;
+        while ((entry = mTable[slot]) != 0) {
+            if (mNames[entry - 1].equals(name)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mMask;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the name whose UTF-8 encoding is {@code length} bytes of {@code buffer}
+     * starting at {@code offset}, or -1 if there is none. {@code hash} must be the {@link #hash(int, byte)}
+     * of those bytes.
+     */
+    int indexOf(@NonNull byte[] buffer, int offset, int length, int hash) {
+        int slot = hash & mMask;
+        int entry;
+        while ((entry = mEncodedTable[slot]) != 0) {
+            if (regionMatches(mEncoded[entry - 1], buffer, offset, length)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mMask;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the length in bytes of the longest encoded name.
+     */
+    int maxLength() {
+        return mMaxLength;
+    }
+
+    /**
+     * Returns the UTF-8 encoding of the name at {@code index}. Callers must not modify it.
+     */
+    @NonNull
+    byte[] encoded(int index) {
+        return mEncoded[index];
+    }
+
+    /**
+     * Returns the name at {@code index} as a quoted, escaped JSON string. Callers must not modify it.
+     */
+    @NonNull
+    byte[] quoted(int index) {
+        return mQuoted[index];
+    }
+
+    /**
+     * Returns the name at {@code index} as a property name segment, starting with a comma and ending with
+     * a colon. Callers must not modify it.
+     */
+    @NonNull
+    byte[] nameSegment(int index) {
+        return mNameSegments[index];
+    }
+
+    /**
+     * Accumulates one byte into the hash of an encoded name. Matches {@link String#hashCode()} for ASCII.
+     */
+    static int hash(int hash, byte b) {
+        return 31 * hash + (b & 0xff);
+    }
+
+    private void insert(@NonNull int[] table, int hash, int index) {
+        int slot = hash & mMask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mMask;
+        }
+        table[slot] = index + 1;
+    }
+
+    private static boolean regionMatches(@NonNull byte[] encoded, @NonNull byte[] buffer, int offset, int length) {
+        if (encoded.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (encoded[i] != buffer[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "JsonOptions" + Arrays.toString(mNames);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A small lock free pool of readers and writers, so that the convenience methods on {@link Epoxy}
+ * reuse their buffers instead of allocating them per call. Slots are claimed with a single atomic swap
+ * rather than held per thread, which keeps the pool bounded however many threads, virtual or not, pass
+ * through it.
+ */
+final class JsonPool {
+
+    @NonNull
+    private final AtomicReferenceArray<Utf8JsonReader> mReaders;
+
+    @NonNull
+    private final AtomicReferenceArray<Utf8JsonWriter> mWriters;
+
+    private final int mMask;
+
+    private final int mMaxRetainedSize;
+
+
+    JsonPool(int size, int maxRetainedSize) {
+        int capacity = Integer.highestOneBit(Math.max(size, 1) * 2 - 1);
+        mReaders = new AtomicReferenceArray<>(capacity);
+        mWriters = new AtomicReferenceArray<>(capacity);
+        mMask = capacity - 1;
+        mMaxRetainedSize = maxRetainedSize;
+    }
+
+
+    @NonNull
+    Utf8JsonReader acquireReader() {
+        Utf8JsonReader reader = poll(mReaders);
+        return reader != null ? reader : new Utf8JsonReader();
+    }
+
+    void release(@NonNull Utf8JsonReader reader) {
+        if (reader.recycle(mMaxRetainedSize)) {
+            offer(mReaders, reader);
+        }
+    }
+
+    @NonNull
+    Utf8JsonWriter acquireWriter() {
+        Utf8JsonWriter writer = poll(mWriters);
+        return writer != null ? writer : new Utf8JsonWriter();
+    }
+
+    void release(@NonNull Utf8JsonWriter writer) {
+        if (writer.recycle(mMaxRetainedSize)) {
+            offer(mWriters, writer);
+        }
+    }
+
+    @Nullable
+    private <T> T poll(@NonNull AtomicReferenceArray<T> slots) {
+        int start = startSlot();
+        for (int i = 0; i <= mMask; i++) {
+            int slot = (start + i) & mMask;
+            // Read before swapping so that empty slots aren't written to
+            if (slots.get(slot) != null) {
+                T item = slots.getAndSet(slot, null);
+                if (item != null) {
+                    return item;
+                }
+            }
+        }
+        return null;
+    }
+
+    private <T> void offer(@NonNull AtomicReferenceArray<T> slots, @NonNull T item) {
+        int start = startSlot();
+        for (int i = 0; i <= mMask; i++) {
+            int slot = (start + i) & mMask;
+            if (slots.get(slot) == null && slots.compareAndSet(slot, null, item)) {
+                return;
+            }
+        }
+        // Pool is full, let the item be collected
+    }
+
+    /**
+     * Spreads threads over the slots so that they rarely contend for the same one.
+     */
+    private int startSlot() {
+        return (int) Thread.currentThread().getId() & mMask;
+    }
+}
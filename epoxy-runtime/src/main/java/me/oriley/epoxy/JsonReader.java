@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2010 Google Inc.
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Reads a JSON encoded value as a stream of tokens. The API mirrors {@code android.util.JsonReader}
+ * so adapters read the same way regardless of the underlying source, and the {@code epoxy-android}
+ * module's {@code AndroidJsonReader} reads from the platform parser.
+ * <p>
+ * Generated and core adapters only ever read through this class, so other sources and formats plug in
+ * by extending it, as {@link Utf8JsonReader} and {@link CborReader} do, and wrappers by extending
+ * {@link ForwardingJsonReader}. Implementations should override the name and string lookups where they
+ * can match raw input, since the defaults here create a string for every call.
+ */
+@SuppressWarnings("WeakerAccess")
+public abstract class JsonReader implements Closeable {
+
+    /**
+     * Consumes the next token from the JSON stream and asserts that it is the beginning of a new array.
+     */
+    public abstract void beginArray() throws IOException;
+
+    /**
+     * Consumes the next token from the JSON stream and asserts that it is the end of the current array.
+     */
+    public abstract void endArray() throws IOException;
+
+    /**
+     * Consumes the next token from the JSON stream and asserts that it is the beginning of a new object.
+     */
+    public abstract void beginObject() throws IOException;
+
+    /**
+     * Consumes the next token from the JSON stream and asserts that it is the end of the current object.
+     */
+    public abstract void endObject() throws IOException;
+
+    /**
+     * Returns true if the current array or object has another element.
+     */
+    public abstract boolean hasNext() throws IOException;
+
+    /**
+     * Returns the type of the next token without consuming it.
+     */
+    @NonNull
+    public abstract JsonToken peek() throws IOException;
+
+    /**
+     * Returns the next token, a {@link JsonToken#NAME property name}, and consumes it.
+     */
+    @NonNull
+    public abstract String nextName() throws IOException;
+
+    /**
+     * Consumes the next {@link JsonToken#NAME property name} and returns its index in {@code options},
+     * or -1 if it is not one of the options. Implementations match the name without creating a string
+     * where they can.
+     */
+    public int selectName(@NonNull JsonOptions options) throws IOException {
+        return options.indexOf(nextName());
+    }
+
+    /**
+     * As {@link #nextName()}, but returns the instance held by {@code cache} for names it has seen before.
+     * Implementations look the name up without creating a string where they can.
+     */
+    @NonNull
+    public String nextName(@NonNull StringCache cache) throws IOException {
+        return cache.intern(nextName());
+    }
+
+    /**
+     * Consumes the next {@link JsonToken#NAME property name} and returns it parsed as a decimal long, as
+     * used for the keys of maps with numeric keys. Implementations parse the name without creating a
+     * string where they can.
+     *
+     * @throws NumberFormatException if the name is not a long.
+     */
+    public long nextLongName() throws IOException {
+        String name = nextName();
+        try {
+            return Long.parseLong(name);
+        } catch (NumberFormatException e) {
+            throw new NumberFormatException("Expected a long name but was " + name + " in " + toString());
+        }
+    }
+
+    /**
+     * Returns the number of bytes consumed from the source so far, or -1 if this reader does not count them.
+     */
+    public long bytesRead() {
+        return -1;
+    }
+
+    /**
+     * Returns the {@link JsonToken#STRING string} value of the next token, consuming it. If the next
+     * token is a number, this method will return its string form.
+     */
+    @NonNull
+    public abstract String nextString() throws IOException;
+
+    /**
+     * As {@link #nextString()}, but returns the instance held by {@code cache} for strings it has seen
+     * before. Implementations look the string up without creating one where they can.
+     */
+    @NonNull
+    public String nextString(@NonNull StringCache cache) throws IOException {
+        return cache.intern(nextString());
+    }
+
+    /**
+     * Consumes the next {@link JsonToken#STRING string} and returns its index in {@code options}, or -1
+     * if it is not one of the options. Implementations match the string without creating one where they can.
+     */
+    public int selectString(@NonNull JsonOptions options) throws IOException {
+        return options.indexOf(nextString());
+    }
+
+    /**
+     * Returns the {@link JsonToken#BOOLEAN boolean} value of the next token, consuming it.
+     */
+    public abstract boolean nextBoolean() throws IOException;
+
+    /**
+     * Consumes the next token from the JSON stream and asserts that it is a literal null.
+     */
+    public abstract void nextNull() throws IOException;
+
+    /**
+     * Returns the {@link JsonToken#NUMBER double} value of the next token, consuming it. If the next
+     * token is a string, this method will attempt to parse it as a double.
+     */
+    public abstract double nextDouble() throws IOException;
+
+    /**
+     * Returns the {@link JsonToken#NUMBER long} value of the next token, consuming it. If the next
+     * token is a string, this method will attempt to parse it as a long.
+     */
+    public abstract long nextLong() throws IOException;
+
+    /**
+     * Returns the {@link JsonToken#NUMBER int} value of the next token, consuming it. If the next
+     * token is a string, this method will attempt to parse it as an int.
+     */
+    public abstract int nextInt() throws IOException;
+
+    /**
+     * Skips the next value recursively. If it is an object or array, all nested elements are skipped.
+     */
+    public abstract void skipValue() throws IOException;
+
+    /**
+     * Consumes the next value, recursively, and returns it encoded as UTF-8 JSON, as {@link Lazy} values
+     * hold it. Implementations reading JSON copy the input bytes where they can, rather than re-encoding
+     * every token as the default does.
+     */
+    @NonNull
+    public byte[] nextRawValue() throws IOException {
+        Utf8JsonWriter writer = new Utf8JsonWriter();
+        copyValue(this, writer);
+        return writer.toByteArray();
+    }
+
+    /**
+     * Reads the next value from {@code reader}, recursively, and writes it to {@code writer}. Numbers go
+     * through their decimal form, so none lose precision.
+     */
+    static void copyValue(@NonNull JsonReader reader, @NonNull JsonWriter writer) throws IOException {
+        int depth = 0;
+        do {
+            JsonToken token = reader.peek();
+            switch (token) {
+                case BEGIN_ARRAY:
+                    reader.beginArray();
+                    writer.beginArray();
+                    depth++;
+                    break;
+                case END_ARRAY:
+                    reader.endArray();
+                    writer.endArray();
+                    depth--;
+                    break;
+                case BEGIN_OBJECT:
+                    reader.beginObject();
+                    writer.beginObject();
+                    depth++;
+                    break;
+                case END_OBJECT:
+                    reader.endObject();
+                    writer.endObject();
+                    depth--;
+                    break;
+                case NAME:
+                    writer.name(reader.nextName());
+                    break;
+                case STRING:
+                    writer.value(reader.nextString());
+                    break;
+                case NUMBER:
+                    writer.value(new BigDecimal(reader.nextString()));
+                    break;
+                case BOOLEAN:
+                    writer.value(reader.nextBoolean());
+                    break;
+                case NULL:
+                    reader.nextNull();
+                    writer.nullValue();
+                    break;
+                default:
+                    throw new IllegalStateException("Expected a value but was " + token + " in " + reader);
+            }
+        } while (depth != 0);
+    }
+}
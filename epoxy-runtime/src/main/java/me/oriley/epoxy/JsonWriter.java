@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2010 Google Inc.
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * Writes a JSON encoded value as a stream of tokens. The API mirrors {@code android.util.JsonWriter}
+ * so adapters write the same way regardless of the underlying sink, and the {@code epoxy-android}
+ * module's {@code AndroidJsonWriter} writes to the platform writer.
+ * <p>
+ * Generated and core adapters only ever write through this class, so other sinks and formats plug in
+ * by extending it, as {@link Utf8JsonWriter} and {@link CborWriter} do, and wrappers by extending
+ * {@link ForwardingJsonWriter}.
+ */
+@SuppressWarnings("WeakerAccess")
+public abstract class JsonWriter implements Closeable, Flushable {
+
+    /**
+     * Begins encoding a new array. Each call to this method must be paired with a call to {@link #endArray}.
+     */
+    @NonNull
+    public abstract JsonWriter beginArray() throws IOException;
+
+    /**
+     * Ends encoding the current array.
+     */
+    @NonNull
+    public abstract JsonWriter endArray() throws IOException;
+
+    /**
+     * Begins encoding a new object. Each call to this method must be paired with a call to {@link #endObject}.
+     */
+    @NonNull
+    public abstract JsonWriter beginObject() throws IOException;
+
+    /**
+     * Ends encoding the current object.
+     */
+    @NonNull
+    public abstract JsonWriter endObject() throws IOException;
+
+    /**
+     * Encodes the property name.
+     */
+    @NonNull
+    public abstract JsonWriter name(@NonNull String name) throws IOException;
+
+    /**
+     * Encodes the option at {@code index} as the property name. Implementations copy its precomputed
+     * encoding where they can.
+     */
+    @NonNull
+    public JsonWriter name(@NonNull JsonOptions options, int index) throws IOException {
+        return name(options.name(index));
+    }
+
+    /**
+     * Encodes {@code value}, or null if {@code value} is null.
+     */
+    @NonNull
+    public abstract JsonWriter value(@Nullable String value) throws IOException;
+
+    /**
+     * Encodes the option at {@code index} as a string. Implementations copy its precomputed encoding
+     * where they can.
+     */
+    @NonNull
+    public JsonWriter value(@NonNull JsonOptions options, int index) throws IOException {
+        return value(options.name(index));
+    }
+
+    /**
+     * Encodes {@code null}.
+     */
+    @NonNull
+    public abstract JsonWriter nullValue() throws IOException;
+
+    /**
+     * Encodes {@code value}.
+     */
+    @NonNull
+    public abstract JsonWriter value(boolean value) throws IOException;
+
+    /**
+     * Encodes {@code value}, which must be a finite number.
+     */
+    @NonNull
+    public abstract JsonWriter value(double value) throws IOException;
+
+    /**
+     * Encodes {@code value}.
+     */
+    @NonNull
+    public abstract JsonWriter value(long value) throws IOException;
+
+    /**
+     * Encodes {@code value} with float rather than double precision. It must be a finite number.
+     */
+    @NonNull
+    public JsonWriter value(float value) throws IOException {
+        return value((Number) value);
+    }
+
+    /**
+     * Encodes {@code json}, a complete UTF-8 JSON value such as {@link JsonReader#nextRawValue()} returns,
+     * as the next value. Implementations writing JSON copy the bytes as they are, rather than decoding and
+     * re-encoding every token as the default does.
+     */
+    @NonNull
+    public JsonWriter rawValue(@NonNull byte[] json) throws IOException {
+        Utf8JsonReader reader = new Utf8JsonReader(json);
+        JsonReader.copyValue(reader, this);
+        if (reader.peek() != JsonToken.END_DOCUMENT) {
+            throw new JsonException("Expected a single JSON value but was " + reader.peek() + " in " + reader);
+        }
+        return this;
+    }
+
+    /**
+     * Returns the number of bytes written so far, or -1 if this writer does not count them.
+     */
+    public long bytesWritten() {
+        return -1;
+    }
+
+    /**
+     * Encodes {@code value}, which must be a finite number, or null if {@code value} is null.
+     */
+    @NonNull
+    public abstract JsonWriter value(@Nullable Number value) throws IOException;
+}
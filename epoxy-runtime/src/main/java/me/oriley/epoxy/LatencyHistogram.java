@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+
+/**
+ * A lock free histogram of durations in power of two buckets, which bounds each percentile to within a
+ * factor of two. Recording a sample costs two atomic adds on counters striped by thread, so threads on
+ * different cores don't contend; reading sums the stripes.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class LatencyHistogram {
+
+    /**
+     * Bucket {@code i} counts durations of at least 2^(i-1) and less than 2^i nanoseconds; bucket 0
+     * counts zero.
+     */
+    private static final int BUCKETS = Long.SIZE + 1;
+
+    /**
+     * Index of the total duration, after the buckets.
+     */
+    private static final int TOTAL_NANOS = BUCKETS;
+
+    @NonNull
+    private final StripedCounters mCounters = new StripedCounters(BUCKETS + 1);
+
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        int stripe = mCounters.stripe();
+        mCounters.add(stripe, Long.SIZE - Long.numberOfLeadingZeros(nanos), 1);
+        mCounters.add(stripe, TOTAL_NANOS, nanos);
+    }
+
+    /**
+     * Returns the number of samples, the sum of the buckets.
+     */
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += mCounters.sum(i);
+        }
+        return count;
+    }
+
+    public long totalNanos() {
+        return mCounters.sum(TOTAL_NANOS);
+    }
+
+    public long meanNanos() {
+        long count = count();
+        return count == 0 ? 0 : totalNanos() / count;
+    }
+
+    /**
+     * Returns an upper bound for the duration below which {@code quantile} of the samples fall, for
+     * instance 0.99 for the 99th percentile, or 0 if there are no samples.
+     */
+    public long percentileNanos(double quantile) {
+        if (!(quantile >= 0 && quantile <= 1)) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1, was " + quantile);
+        }
+        long[] buckets = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = mCounters.sum(i);
+            count += buckets[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return i == 0 ? 0 : i == Long.SIZE ? Long.MAX_VALUE : (1L << i) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count() + ", mean=" + meanNanos() + "ns, p50<=" + percentileNanos(0.5) + "ns, p99<="
+                + percentileNanos(0.99) + "ns";
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A value decoded on first access. Declaring a {@link JsonField} as {@code Lazy<T>} makes its adapter
+ * keep the raw JSON of the value instead of decoding it, which pays off for large sub-documents that
+ * are rarely read. Until {@link #get()} is called, writing the value copies the original bytes as they
+ * are, without decoding them.
+ * <p>
+ * Once decoded, the value is written through its adapter like any other, since it may have been
+ * changed. It is safe to share between threads and decodes at most once.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class Lazy<T> {
+
+    @Nullable
+    private final Epoxy mEpoxy;
+
+    @Nullable
+    private final JsonAdapter<T> mAdapter;
+
+    /**
+     * The UTF-8 JSON of the value, or null once it has been decoded.
+     */
+    @Nullable
+    private volatile byte[] mRaw;
+
+    @Nullable
+    private T mValue;
+
+
+    Lazy(@NonNull Epoxy epoxy, @NonNull JsonAdapter<T> adapter, @NonNull byte[] raw) {
+        mEpoxy = epoxy;
+        mAdapter = adapter;
+        mRaw = raw;
+    }
+
+    private Lazy(@Nullable T value) {
+        mEpoxy = null;
+        mAdapter = null;
+        mValue = value;
+    }
+
+
+    /**
+     * Returns a lazy value that is already decoded, for building models in code.
+     */
+    @NonNull
+    public static <T> Lazy<T> of(@Nullable T value) {
+        return new Lazy<>(value);
+    }
+
+    /**
+     * Returns the value, decoding it on the first call. That call throws whatever decoding the value
+     * eagerly would have, with any {@link IOException} wrapped in a {@link JsonException}.
+     */
+    @Nullable
+    public T get() {
+        if (mRaw != null) {
+            synchronized (this) {
+                byte[] raw = mRaw;
+                if (raw != null) {
+                    mValue = decode(raw);
+                    mRaw = null;
+                }
+            }
+        }
+        return mValue;
+    }
+
+    /**
+     * Returns whether the value has been decoded, or was never encoded.
+     */
+    public boolean isDecoded() {
+        return mRaw == null;
+    }
+
+    /**
+     * Returns the UTF-8 JSON of the value, or null once it has been decoded.
+     */
+    @Nullable
+    byte[] raw() {
+        return mRaw;
+    }
+
+    @Nullable
+    private T decode(@NonNull byte[] raw) {
+        //noinspection ConstantConditions
+        Utf8JsonReader reader = mEpoxy.acquireReader();
+        try {
+            reader.reset(raw, 0, raw.length);
+            //noinspection ConstantConditions
+            return mAdapter.fromJson(mEpoxy, reader);
+        } catch (IOException e) {
+            throw new JsonException("Failed to decode lazy value " + this, e);
+        } finally {
+            mEpoxy.release(reader);
+        }
+    }
+
+    @Override
+    public String toString() {
+        byte[] raw = mRaw;
+        return raw != null ? "Lazy(" + new String(raw, StandardCharsets.UTF_8) + ")" : "Lazy[" + mValue + "]";
+    }
+}
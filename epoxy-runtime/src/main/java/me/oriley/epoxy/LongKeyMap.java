@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * A map of {@code long} keys that holds them unboxed, with no entry object per mapping. Iteration follows
+ * insertion order. The primitive accessors avoid boxing altogether.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class LongKeyMap<V> extends PrimitiveKeyMap<Long, V> {
+
+    public boolean containsKey(long key) {
+        return hasKey(key);
+    }
+
+    @Nullable
+    public V get(long key) {
+        return getKey(key);
+    }
+
+    @Nullable
+    public V put(long key, @Nullable V value) {
+        return putKey(key, value);
+    }
+
+    @Nullable
+    public V remove(long key) {
+        return removeKey(key);
+    }
+
+    @NonNull
+    @Override
+    Long box(long key) {
+        return key;
+    }
+
+    @Override
+    boolean isKey(@Nullable Object key) {
+        return key instanceof Long;
+    }
+}
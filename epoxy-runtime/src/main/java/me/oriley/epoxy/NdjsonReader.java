@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over the records of a newline delimited JSON stream, binding each with the same adapter and
+ * reading them all through one reader and buffer. Created by {@link Epoxy#newNdjsonReader}.
+ * <p>
+ * I/O and parse failures are thrown from {@link #hasNext()} and {@link #next()} as {@link JsonException},
+ * after which {@link #offset()} is the offset of the record that failed, so a batch can be resumed from
+ * there. The reader is closed, along with its source, once it is exhausted or fails.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class NdjsonReader<T> implements Iterator<T>, Closeable {
+
+    private static final long UNKNOWN = -2;
+
+    @NonNull
+    private final Epoxy mEpoxy;
+
+    @NonNull
+    private final JsonAdapter<T> mAdapter;
+
+    /**
+     * The reader, or null once closed.
+     */
+    @Nullable
+    private Utf8JsonReader mReader;
+
+    private long mOffset = -1;
+
+    private long mNextOffset = UNKNOWN;
+
+
+    NdjsonReader(@NonNull Epoxy epoxy, @NonNull JsonAdapter<T> adapter, @NonNull Utf8JsonReader reader) {
+        mEpoxy = epoxy;
+        // A record may be a bare null, which generated adapters don't accept at the top level
+        mAdapter = adapter.nullSafe();
+        mReader = reader;
+        reader.setMultipleDocuments(true);
+    }
+
+
+    /**
+     * Returns the offset in bytes, from the start of the source, of the record last returned by
+     * {@link #next()} or that failed to be read, or -1 before the first record.
+     */
+    public long offset() {
+        return mOffset;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (mNextOffset == UNKNOWN) {
+            Utf8JsonReader reader = mReader;
+            if (reader == null) {
+                return false;
+            }
+            try {
+                mNextOffset = reader.nextDocumentOffset();
+            } catch (IOException | RuntimeException e) {
+                // The next record is bad, rather than the one last returned
+                mOffset = reader.bytesRead();
+                throw failure(e);
+            }
+            if (mNextOffset == -1) {
+                closeQuietly();
+            }
+        }
+        return mNextOffset != -1;
+    }
+
+    @Override
+    @Nullable
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        mOffset = mNextOffset;
+        mNextOffset = UNKNOWN;
+        try {
+            //noinspection ConstantConditions
+            return mAdapter.fromJson(mEpoxy, mReader);
+        } catch (IOException | RuntimeException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+
+    @Override
+    public void close() throws IOException {
+        Utf8JsonReader reader = mReader;
+        if (reader != null) {
+            mReader = null;
+            mNextOffset = -1;
+            try {
+                reader.close();
+            } finally {
+                mEpoxy.release(reader);
+            }
+        }
+    }
+
+    @NonNull
+    private JsonException failure(@NonNull Exception e) {
+        closeQuietly();
+        return new JsonException("Failed to read record at offset " + mOffset, e);
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes values as newline delimited JSON records, one per line, through a single writer and buffer.
+ * Created by {@link Epoxy#newNdjsonWriter}.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class NdjsonWriter<T> implements Closeable, Flushable {
+
+    @NonNull
+    private final Epoxy mEpoxy;
+
+    @NonNull
+    private final JsonAdapter<T> mAdapter;
+
+    @NonNull
+    private final OutputStream mSink;
+
+    /**
+     * The writer, or null once closed.
+     */
+    @Nullable
+    private Utf8JsonWriter mWriter;
+
+
+    NdjsonWriter(@NonNull Epoxy epoxy, @NonNull JsonAdapter<T> adapter, @NonNull OutputStream sink,
+                 @NonNull Utf8JsonWriter writer) {
+        mEpoxy = epoxy;
+        mAdapter = adapter;
+        mSink = sink;
+        mWriter = writer;
+    }
+
+
+    /**
+     * Writes {@code value} as the next record and returns its offset in bytes from the start of the
+     * output. Records are buffered, so only those before the last {@link #flush()} are known to have
+     * reached the sink.
+     */
+    public long write(@Nullable T value) throws IOException {
+        Utf8JsonWriter writer = writer();
+        long offset = writer.size();
+        mAdapter.toJson(mEpoxy, writer, value);
+        writer.endRecord();
+        return offset;
+    }
+
+    /**
+     * Returns the number of bytes written so far, which is the offset of the next record.
+     */
+    public long size() {
+        Utf8JsonWriter writer = mWriter;
+        return writer != null ? writer.size() : -1;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer().flush();
+    }
+
+    /**
+     * Flushes any buffered records and closes the sink.
+     */
+    @Override
+    public void close() throws IOException {
+        Utf8JsonWriter writer = mWriter;
+        if (writer != null) {
+            mWriter = null;
+            try {
+                writer.flush();
+            } finally {
+                mEpoxy.release(writer);
+                mSink.close();
+            }
+        }
+    }
+
+    @NonNull
+    private Utf8JsonWriter writer() {
+        Utf8JsonWriter writer = mWriter;
+        if (writer == null) {
+            throw new IllegalStateException("NdjsonWriter is closed");
+        }
+        return writer;
+    }
+}
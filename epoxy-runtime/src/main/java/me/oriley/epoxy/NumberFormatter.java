@@ -0,0 +1,447 @@
+/*
+ * Copyright (C) 2018-2020 Raffaello Giulietti
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The conversion of doubles and floats to their shortest decimals is adapted from Raffaello Giulietti's
+ * reference implementation of Schubfach, which carries the following notice:
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+
+import java.math.BigInteger;
+
+/**
+ * Writes numbers as ASCII straight into a byte buffer, without creating strings. Doubles and floats are
+ * written with the fewest digits that read back as the same value, found with Giulietti's Schubfach
+ * algorithm as adapted from his reference implementation, and laid out as {@link Double#toString(double)}
+ * does: plain between 10^-3 and 10^7 and in computerized scientific notation otherwise. Longs are written
+ * two digits at a time.
+ * <p>
+ * Callers must finish checking that values are finite and make room for the maximum lengths first.
+ */
+final class NumberFormatter {
+
+    /**
+     * Longest output of each method, such as {@code -2.2250738585072014E-308}.
+     */
+    static final int MAX_DOUBLE_LENGTH = 24;
+    static final int MAX_FLOAT_LENGTH = 15;
+    static final int MAX_LONG_LENGTH = 20;
+
+    private static final int DOUBLE_Q_MIN = -1074;
+    private static final long DOUBLE_C_MIN = 1L << 52;
+    private static final long DOUBLE_C_TINY = 3;
+
+    private static final int FLOAT_Q_MIN = -149;
+    private static final int FLOAT_C_MIN = 1 << 23;
+    private static final int FLOAT_C_TINY = 8;
+
+    private static final long MASK_32 = 0xffffffffL;
+    private static final long MASK_63 = 0x7fffffffffffffffL;
+
+    /**
+     * Range of the decimal exponents k in the table of powers of ten.
+     */
+    private static final int K_MIN = -324;
+    private static final int K_MAX = 292;
+
+    /**
+     * For each k from {@link #K_MIN}, the 63 bit halves g1 and g0 of g = floor(10^-k 2^-r) + 1, where r
+     * is chosen so that 2^125 <= g < 2^126.
+     */
+    private static final long[] G = new long[(K_MAX - K_MIN + 1) * 2];
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    /**
+     * The ASCII digits of 00 to 99, two bytes each.
+     */
+    private static final byte[] DIGIT_PAIRS = new byte[200];
+
+    static {
+        BigInteger ten = BigInteger.TEN;
+        for (int k = K_MIN; k <= K_MAX; k++) {
+            BigInteger g;
+            if (k <= 0) {
+                BigInteger power = ten.pow(-k);
+                int shift = 126 - power.bitLength();
+                g = (shift >= 0 ? power.shiftLeft(shift) : power.shiftRight(-shift)).add(BigInteger.ONE);
+            } else {
+                BigInteger power = ten.pow(k);
+                g = BigInteger.ONE.shiftLeft(power.bitLength() + 125).divide(power).add(BigInteger.ONE);
+            }
+            int index = (k - K_MIN) * 2;
+            G[index] = g.shiftRight(63).longValue();
+            G[index + 1] = g.longValue() & MASK_63;
+        }
+
+        long power = 1;
+        for (int i = 0; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = power;
+            power *= 10;
+        }
+
+        for (int i = 0; i < 100; i++) {
+            DIGIT_PAIRS[i * 2] = (byte) ('0' + i / 10);
+            DIGIT_PAIRS[i * 2 + 1] = (byte) ('0' + i % 10);
+        }
+    }
+
+    private NumberFormatter() {
+        throw new IllegalAccessError("no instances");
+    }
+
+
+    /**
+     * Writes {@code value}, which must be finite, at {@code pos} and returns the position after it.
+     */
+    static int writeDouble(double value, @NonNull byte[] buffer, int pos) {
+        long bits = Double.doubleToRawLongBits(value);
+        long t = bits & DOUBLE_C_MIN - 1;
+        int bq = (int) (bits >>> 52) & 0x7ff;
+        if (bits < 0) {
+            buffer[pos++] = '-';
+        }
+        if (bq != 0) {
+            int mq = -DOUBLE_Q_MIN + 1 - bq;
+            long c = DOUBLE_C_MIN | t;
+            if (0 < mq && mq < 53) {
+                // Integers below 2^53 are their own shortest decimal
+                long f = c >> mq;
+                if (f << mq == c) {
+                    return writeDecimal(f, 0, buffer, pos);
+                }
+            }
+            return writeDouble(-mq, c, 0, buffer, pos);
+        }
+        if (t != 0) {
+            // Subnormal
+            return t < DOUBLE_C_TINY ? writeDouble(DOUBLE_Q_MIN, 10 * t, -1, buffer, pos)
+                    : writeDouble(DOUBLE_Q_MIN, t, 0, buffer, pos);
+        }
+        return writeDecimal(0, 0, buffer, pos);
+    }
+
+    /**
+     * Writes {@code value}, which must be finite, with float precision at {@code pos} and returns the
+     * position after it.
+     */
+    static int writeFloat(float value, @NonNull byte[] buffer, int pos) {
+        int bits = Float.floatToRawIntBits(value);
+        int t = bits & FLOAT_C_MIN - 1;
+        int bq = (bits >>> 23) & 0xff;
+        if (bits < 0) {
+            buffer[pos++] = '-';
+        }
+        if (bq != 0) {
+            int mq = -FLOAT_Q_MIN + 1 - bq;
+            int c = FLOAT_C_MIN | t;
+            if (0 < mq && mq < 24) {
+                int f = c >> mq;
+                if (f << mq == c) {
+                    return writeDecimal(f, 0, buffer, pos);
+                }
+            }
+            return writeFloat(-mq, c, 0, buffer, pos);
+        }
+        if (t != 0) {
+            return t < FLOAT_C_TINY ? writeFloat(FLOAT_Q_MIN, 10 * t, -1, buffer, pos)
+                    : writeFloat(FLOAT_Q_MIN, t, 0, buffer, pos);
+        }
+        return writeDecimal(0, 0, buffer, pos);
+    }
+
+    /**
+     * Writes {@code value} in decimal at {@code pos} and returns the position after it.
+     */
+    static int writeLong(long value, @NonNull byte[] buffer, int pos) {
+        if (value < 0) {
+            buffer[pos++] = '-';
+            if (value == Long.MIN_VALUE) {
+                // Has no positive counterpart; its digits are those of 2^63
+                int end = writeDigits(Long.MAX_VALUE, 19, buffer, pos);
+                buffer[end - 1] = '8';
+                return end;
+            }
+            value = -value;
+        }
+        return writeDigits(value, digitCount(value), buffer, pos);
+    }
+
+    /**
+     * Writes the shortest decimal within the rounding interval of the double c 2^q. The decimal
+     * exponent is adjusted by {@code dk} for subnormals whose significand was scaled by ten.
+     */
+    private static int writeDouble(int q, long c, int dk, @NonNull byte[] buffer, int pos) {
+        int out = (int) c & 1;
+        long cb = c << 2;
+        long cbr = cb + 2;
+        long cbl;
+        int k;
+        if (c != DOUBLE_C_MIN || q == DOUBLE_Q_MIN) {
+            cbl = cb - 2;
+            k = flog10pow2(q);
+        } else {
+            // The interval below a power of two is half as wide
+            cbl = cb - 1;
+            k = flog10threeQuartersPow2(q);
+        }
+        int h = q + flog2pow10(-k) + 2;
+
+        int index = (k - K_MIN) * 2;
+        long g1 = G[index];
+        long g0 = G[index + 1];
+
+        long vb = roundOdd(g1, g0, cb << h);
+        long vbl = roundOdd(g1, g0, cbl << h);
+        long vbr = roundOdd(g1, g0, cbr << h);
+
+        long s = vb >> 2;
+        if (s >= 100) {
+            // Prefer one digit fewer when either multiple of ten is inside the interval
+            long sp10 = 10 * multiplyHigh(s, 115292150460684698L << 4);
+            long tp10 = sp10 + 10;
+            boolean upin = vbl + out <= sp10 << 2;
+            boolean wpin = (tp10 << 2) + out <= vbr;
+            if (upin != wpin) {
+                return writeDecimal(upin ? sp10 : tp10, k, buffer, pos);
+            }
+        }
+
+        long t = s + 1;
+        boolean uin = vbl + out <= s << 2;
+        boolean win = (t << 2) + out <= vbr;
+        if (uin != win) {
+            return writeDecimal(uin ? s : t, k + dk, buffer, pos);
+        }
+        // Both are inside, take the closer one or the even one on a tie
+        long cmp = vb - (s + t << 1);
+        return writeDecimal(cmp < 0 || cmp == 0 && (s & 1) == 0 ? s : t, k + dk, buffer, pos);
+    }
+
+    /**
+     * As {@link #writeDouble(int, long, int, byte[], int)}, for floats.
+     */
+    private static int writeFloat(int q, int c, int dk, @NonNull byte[] buffer, int pos) {
+        int out = c & 1;
+        long cb = c << 2;
+        long cbr = cb + 2;
+        long cbl;
+        int k;
+        if (c != FLOAT_C_MIN || q == FLOAT_Q_MIN) {
+            cbl = cb - 2;
+            k = flog10pow2(q);
+        } else {
+            cbl = cb - 1;
+            k = flog10threeQuartersPow2(q);
+        }
+        int h = q + flog2pow10(-k) + 33;
+
+        long g = G[(k - K_MIN) * 2] + 1;
+
+        int vb = roundOdd(g, cb << h);
+        int vbl = roundOdd(g, cbl << h);
+        int vbr = roundOdd(g, cbr << h);
+
+        int s = vb >> 2;
+        if (s >= 100) {
+            int sp10 = 10 * (int) (s * 1717986919L >>> 34);
+            int tp10 = sp10 + 10;
+            boolean upin = vbl + out <= sp10 << 2;
+            boolean wpin = (tp10 << 2) + out <= vbr;
+            if (upin != wpin) {
+                return writeDecimal(upin ? sp10 : tp10, k, buffer, pos);
+            }
+        }
+
+        int t = s + 1;
+        boolean uin = vbl + out <= s << 2;
+        boolean win = (t << 2) + out <= vbr;
+        if (uin != win) {
+            return writeDecimal(uin ? s : t, k + dk, buffer, pos);
+        }
+        int cmp = vb - (s + t << 1);
+        return writeDecimal(cmp < 0 || cmp == 0 && (s & 1) == 0 ? s : t, k + dk, buffer, pos);
+    }
+
+    /**
+     * Writes f 10^e laid out as {@link Double#toString(double)} does.
+     */
+    private static int writeDecimal(long f, int e, @NonNull byte[] buffer, int pos) {
+        if (f == 0) {
+            buffer[pos] = '0';
+            buffer[pos + 1] = '.';
+            buffer[pos + 2] = '0';
+            return pos + 3;
+        }
+        while (f % 10 == 0) {
+            f /= 10;
+            e++;
+        }
+        int length = digitCount(f);
+        // The value is 0.ddd 10^exponent
+        int exponent = e + length;
+
+        if (0 < exponent && exponent <= 7) {
+            int end = writeDigits(f, length, buffer, pos);
+            if (length <= exponent) {
+                while (end < pos + exponent) {
+                    buffer[end++] = '0';
+                }
+                buffer[end++] = '.';
+                buffer[end++] = '0';
+                return end;
+            }
+            int point = pos + exponent;
+            System.arraycopy(buffer, point, buffer, point + 1, end - point);
+            buffer[point] = '.';
+            return end + 1;
+        } else if (-3 < exponent && exponent <= 0) {
+            buffer[pos++] = '0';
+            buffer[pos++] = '.';
+            for (int i = exponent; i < 0; i++) {
+                buffer[pos++] = '0';
+            }
+            return writeDigits(f, length, buffer, pos);
+        }
+
+        int end = writeDigits(f, length, buffer, pos + 1);
+        buffer[pos] = buffer[pos + 1];
+        buffer[pos + 1] = '.';
+        if (length == 1) {
+            buffer[end++] = '0';
+        }
+        buffer[end++] = 'E';
+        int scientific = exponent - 1;
+        if (scientific < 0) {
+            buffer[end++] = '-';
+            scientific = -scientific;
+        }
+        return writeDigits(scientific, digitCount(scientific), buffer, end);
+    }
+
+    /**
+     * Writes the {@code length} digits of {@code value}, which must not be negative, from {@code pos}
+     * and returns the position after them.
+     */
+    private static int writeDigits(long value, int length, @NonNull byte[] buffer, int pos) {
+        int end = pos + length;
+        int p = end;
+        while (value > Integer.MAX_VALUE) {
+            long quotient = value / 100;
+            int pair = (int) (value - quotient * 100) * 2;
+            buffer[--p] = DIGIT_PAIRS[pair + 1];
+            buffer[--p] = DIGIT_PAIRS[pair];
+            value = quotient;
+        }
+        int v = (int) value;
+        while (v >= 100) {
+            int quotient = v / 100;
+            int pair = (v - quotient * 100) * 2;
+            buffer[--p] = DIGIT_PAIRS[pair + 1];
+            buffer[--p] = DIGIT_PAIRS[pair];
+            v = quotient;
+        }
+        if (v >= 10) {
+            buffer[--p] = DIGIT_PAIRS[v * 2 + 1];
+            buffer[--p] = DIGIT_PAIRS[v * 2];
+        } else {
+            buffer[--p] = (byte) ('0' + v);
+        }
+        return end;
+    }
+
+    private static int digitCount(long value) {
+        int count = 1;
+        while (count < POWERS_OF_TEN.length && value >= POWERS_OF_TEN[count]) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns floor(q log10(2)).
+     */
+    private static int flog10pow2(int q) {
+        return (int) (q * 661971961083L >> 41);
+    }
+
+    /**
+     * Returns floor(log10(3/4 2^q)).
+     */
+    private static int flog10threeQuartersPow2(int q) {
+        return (int) (q * 661971961083L - 274743187321L >> 41);
+    }
+
+    /**
+     * Returns floor(e log2(10)).
+     */
+    private static int flog2pow10(int e) {
+        return (int) (e * 913124641741L >> 38);
+    }
+
+    /**
+     * Returns g cp 2^-127, with g = g1 2^63 + g0, rounded to odd.
+     */
+    private static long roundOdd(long g1, long g0, long cp) {
+        long x1 = multiplyHigh(g0, cp);
+        long y0 = g1 * cp;
+        long y1 = multiplyHigh(g1, cp);
+        long z = (y0 >>> 1) + x1;
+        long vbp = y1 + (z >>> 63);
+        return vbp | (z & MASK_63) + MASK_63 >>> 63;
+    }
+
+    /**
+     * Returns g cp 2^-95 rounded to odd.
+     */
+    private static int roundOdd(long g, long cp) {
+        long x1 = multiplyHigh(g, cp);
+        long vbp = x1 >>> 31;
+        return (int) (vbp | (x1 & MASK_32) + MASK_32 >>> 32);
+    }
+
+    /**
+     * Returns the high 64 bits of the unsigned 128 bit product of {@code x} and {@code y}.
+     */
+    private static long multiplyHigh(long x, long y) {
+        long x0 = x & MASK_32;
+        long x1 = x >>> 32;
+        long y0 = y & MASK_32;
+        long y1 = y >>> 32;
+        long p01 = x0 * y1;
+        long middle = x1 * y0 + (x0 * y0 >>> 32) + (p01 & MASK_32);
+        return x1 * y1 + (middle >>> 32) + (p01 >>> 32);
+    }
+}
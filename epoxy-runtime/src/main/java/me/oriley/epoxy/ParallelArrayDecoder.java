@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Decodes a range of array elements, found beforehand by {@link ArrayScanner}, splitting the range in
+ * half until it is small enough to decode on one thread. Each element is stored at its own index, so
+ * the results come out in document order whichever thread decoded them.
+ */
+@SuppressWarnings("serial")
+final class ParallelArrayDecoder extends RecursiveAction {
+
+    @NonNull
+    private final Epoxy mEpoxy;
+
+    @NonNull
+    private final JsonAdapter<?> mAdapter;
+
+    @NonNull
+    private final byte[] mBuffer;
+
+    /**
+     * Element boundaries as pairs of start and end offsets.
+     */
+    @NonNull
+    private final int[] mBounds;
+
+    @NonNull
+    private final Object[] mResults;
+
+    private final int mFrom;
+    private final int mTo;
+    private final int mThreshold;
+
+
+    ParallelArrayDecoder(@NonNull Epoxy epoxy, @NonNull JsonAdapter<?> adapter, @NonNull byte[] buffer,
+                         @NonNull int[] bounds, @NonNull Object[] results, int from, int to, int threshold) {
+        mEpoxy = epoxy;
+        mAdapter = adapter;
+        mBuffer = buffer;
+        mBounds = bounds;
+        mResults = results;
+        mFrom = from;
+        mTo = to;
+        mThreshold = threshold;
+    }
+
+
+    @Override
+    protected void compute() {
+        if (mTo - mFrom <= mThreshold) {
+            decode(mEpoxy, mAdapter, mBuffer, mBounds, mResults, mFrom, mTo);
+            return;
+        }
+        int middle = (mFrom + mTo) >>> 1;
+        invokeAll(new ParallelArrayDecoder(mEpoxy, mAdapter, mBuffer, mBounds, mResults, mFrom, middle, mThreshold),
+                new ParallelArrayDecoder(mEpoxy, mAdapter, mBuffer, mBounds, mResults, middle, mTo, mThreshold));
+    }
+
+    /**
+     * Decodes elements {@code from} until {@code to} on the calling thread, through a single reader.
+     */
+    static void decode(@NonNull Epoxy epoxy, @NonNull JsonAdapter<?> adapter, @NonNull byte[] buffer,
+                       @NonNull int[] bounds, @NonNull Object[] results, int from, int to) {
+        Utf8JsonReader reader = epoxy.acquireReader();
+        int index = from;
+        try {
+            for (; index < to; index++) {
+                int start = bounds[index * 2];
+                reader.reset(buffer, start, bounds[index * 2 + 1] - start);
+                results[index] = adapter.fromJson(epoxy, reader);
+                if (reader.peek() != JsonToken.END_DOCUMENT) {
+                    throw new MalformedJsonException("Expected end of element at offset " + reader.bytesRead());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new JsonException("Failed to decode element " + index + " at offset " + bounds[index * 2], e);
+        } finally {
+            epoxy.release(reader);
+        }
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Base of maps with integral keys, held unboxed in insertion order with their values in parallel arrays
+ * and found through an open addressing table of indices. Nothing is allocated per entry; keys are only
+ * boxed when read through the {@link Map} interface.
+ * <p>
+ * Removal shifts the later entries down, so it costs time linear in the size of the map.
+ */
+abstract class PrimitiveKeyMap<K, V> extends AbstractMap<K, V> {
+
+    private static final int MIN_CAPACITY = 8;
+
+    @NonNull
+    private long[] mKeys;
+
+    @NonNull
+    private Object[] mValues;
+
+    /**
+     * Open addressing table of entry index + 1, keyed on the mixed key. Zero marks a free slot.
+     */
+    @NonNull
+    private int[] mTable;
+
+    private int mMask;
+
+    private int mSize;
+
+    /**
+     * Incremented by every structural change, so iterators can detect concurrent modification.
+     */
+    private int mModCount;
+
+
+    PrimitiveKeyMap() {
+        mKeys = new long[MIN_CAPACITY];
+        mValues = new Object[MIN_CAPACITY];
+        mTable = new int[MIN_CAPACITY * 2];
+        mMask = mTable.length - 1;
+    }
+
+
+    /**
+     * Returns {@code key} boxed as this map's key type.
+     */
+    @NonNull
+    abstract K box(long key);
+
+    /**
+     * Returns whether {@code key} is of this map's key type.
+     */
+    abstract boolean isKey(@Nullable Object key);
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    @Override
+    public boolean containsKey(@Nullable Object key) {
+        return isKey(key) && indexOf(((Number) key).longValue()) != -1;
+    }
+
+    @Nullable
+    @Override
+    public V get(@Nullable Object key) {
+        return isKey(key) ? getKey(((Number) key).longValue()) : null;
+    }
+
+    @Nullable
+    @Override
+    public V put(@NonNull K key, @Nullable V value) {
+        if (!isKey(key)) {
+            throw new ClassCastException("Unsupported key " + key);
+        }
+        return putKey(((Number) key).longValue(), value);
+    }
+
+    @Nullable
+    @Override
+    public V remove(@Nullable Object key) {
+        return isKey(key) ? removeKey(((Number) key).longValue()) : null;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(mValues, 0, mSize, null);
+        Arrays.fill(mTable, 0);
+        mSize = 0;
+        mModCount++;
+    }
+
+    @NonNull
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @NonNull
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return mSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the key of the entry at {@code index}, in insertion order.
+     */
+    long keyAt(int index) {
+        return mKeys[index];
+    }
+
+    /**
+     * Returns the value of the entry at {@code index}, in insertion order.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    V valueAt(int index) {
+        return (V) mValues[index];
+    }
+
+    final boolean hasKey(long key) {
+        return indexOf(key) != -1;
+    }
+
+    @Nullable
+    final V getKey(long key) {
+        int index = indexOf(key);
+        return index != -1 ? valueAt(index) : null;
+    }
+
+    @Nullable
+    final V putKey(long key, @Nullable V value) {
+        int index = indexOf(key);
+        if (index != -1) {
+            V previous = valueAt(index);
+            mValues[index] = value;
+            return previous;
+        }
+
+        if (mSize == mKeys.length) {
+            mKeys = Arrays.copyOf(mKeys, mSize * 2);
+            mValues = Arrays.copyOf(mValues, mSize * 2);
+            mTable = new int[mKeys.length * 2];
+            mMask = mTable.length - 1;
+            for (int i = 0; i < mSize; i++) {
+                insert(mKeys[i], i);
+            }
+        }
+        mKeys[mSize] = key;
+        mValues[mSize] = value;
+        insert(key, mSize);
+        mSize++;
+        mModCount++;
+        return null;
+    }
+
+    @Nullable
+    final V removeKey(long key) {
+        int index = indexOf(key);
+        if (index == -1) {
+            return null;
+        }
+        V previous = valueAt(index);
+        removeAt(index);
+        return previous;
+    }
+
+    private void removeAt(int index) {
+        int moved = mSize - index - 1;
+        System.arraycopy(mKeys, index + 1, mKeys, index, moved);
+        System.arraycopy(mValues, index + 1, mValues, index, moved);
+        mValues[--mSize] = null;
+        mModCount++;
+
+        // Indices past the removed entry have all changed, so rebuild the table
+        Arrays.fill(mTable, 0);
+        for (int i = 0; i < mSize; i++) {
+            insert(mKeys[i], i);
+        }
+    }
+
+    private int indexOf(long key) {
+        int slot = mix(key) & mMask;
+        int entry;
+        while ((entry = mTable[slot]) != 0) {
+            if (mKeys[entry - 1] == key) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mMask;
+        }
+        return -1;
+    }
+
+    private void insert(long key, int index) {
+        int slot = mix(key) & mMask;
+        while (mTable[slot] != 0) {
+            slot = (slot + 1) & mMask;
+        }
+        mTable[slot] = index + 1;
+    }
+
+    /**
+     * Spreads sequential keys, such as IDs, across the table.
+     */
+    private static int mix(long key) {
+        long h = key * 0x9e3779b97f4a7c15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private final class EntryIterator implements Iterator<Entry<K, V>> {
+
+        private int mNext;
+        private int mLast = -1;
+        private int mExpectedModCount = mModCount;
+
+
+        @Override
+        public boolean hasNext() {
+            return mNext < mSize;
+        }
+
+        @NonNull
+        @Override
+        public Entry<K, V> next() {
+            if (mModCount != mExpectedModCount) {
+                throw new ConcurrentModificationException();
+            } else if (mNext >= mSize) {
+                throw new NoSuchElementException();
+            }
+            mLast = mNext++;
+            final int index = mLast;
+            return new SimpleEntry<K, V>(box(mKeys[index]), valueAt(index)) {
+                @Override
+                public V setValue(V value) {
+                    mValues[index] = value;
+                    return super.setValue(value);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (mLast == -1) {
+                throw new IllegalStateException();
+            } else if (mModCount != mExpectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeAt(mLast);
+            mNext = mLast;
+            mLast = -1;
+            mExpectedModCount = mModCount;
+        }
+    }
+}
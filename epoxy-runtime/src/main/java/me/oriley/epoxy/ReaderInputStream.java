@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes the characters of a {@link Reader} as UTF-8 so they can be fed to a {@link Utf8JsonReader}.
+ */
+final class ReaderInputStream extends InputStream {
+
+    @NonNull
+    private final Reader mReader;
+
+    @NonNull
+    private final CharsetEncoder mEncoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    @NonNull
+    private final CharBuffer mChars = CharBuffer.allocate(1024);
+
+    @NonNull
+    private final ByteBuffer mBytes = ByteBuffer.allocate(4096);
+
+    private boolean mEndOfInput;
+    private boolean mFlushed;
+
+
+    ReaderInputStream(@NonNull Reader reader) {
+        mReader = reader;
+        mChars.flip();
+        mBytes.flip();
+    }
+
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(@NonNull byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (!mBytes.hasRemaining()) {
+            if (mFlushed) {
+                return -1;
+            }
+            encode();
+        }
+        int count = Math.min(len, mBytes.remaining());
+        mBytes.get(b, off, count);
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mReader.close();
+    }
+
+    private void encode() throws IOException {
+        if (!mEndOfInput) {
+            mChars.compact();
+            if (mReader.read(mChars) == -1) {
+                mEndOfInput = true;
+            }
+            mChars.flip();
+        }
+
+        // Each char encodes to at most three bytes, so the output buffer never overflows here
+        mBytes.clear();
+        mEncoder.encode(mChars, mBytes, mEndOfInput);
+        if (mEndOfInput) {
+            mEncoder.flush(mBytes);
+            mFlushed = true;
+        }
+        mBytes.flip();
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A bounded cache of canonical strings, so that documents repeating the same keys or values share one
+ * instance of each instead of holding thousands of equal copies. Readers look strings up by their raw
+ * encoded bytes, so a hit allocates nothing at all.
+ * <p>
+ * The cache is a fixed size table where each string may live in the slot it hashes to or the one after.
+ * A new string takes the first of those slots and pushes the previous occupant into the second, so two
+ * strings that collide can both stay cached while rarely seen ones simply get replaced. It is safe to
+ * share between threads and readers.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class StringCache {
+
+    private static final int DEFAULT_MAX_LENGTH = 64;
+
+    @NonNull
+    private final Entry[] mEntries;
+
+    private final int mMask;
+
+    private final int mMaxLength;
+
+
+    /**
+     * Creates a cache of about {@code capacity} strings of up to 64 bytes each.
+     */
+    public StringCache(int capacity) {
+        this(capacity, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * Creates a cache of about {@code capacity} strings of up to {@code maxLength} encoded bytes each.
+     * Longer strings are unlikely to repeat and are never cached.
+     */
+    public StringCache(int capacity, int maxLength) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity <= 0: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity * 2 - 1);
+        mEntries = new Entry[size];
+        mMask = size - 1;
+        mMaxLength = maxLength;
+    }
+
+
+    /**
+     * Returns the length beyond which strings are never cached.
+     */
+    int maxLength() {
+        return mMaxLength;
+    }
+
+    /**
+     * Returns the cached string equal to {@code value}, caching {@code value} itself if there is none.
+     */
+    @NonNull
+    public String intern(@NonNull String value) {
+        if (value.length() > mMaxLength) {
+            return value;
+        }
+        // Equal to the hash of the encoded bytes for ASCII, so those share slots with byte lookups
+        int slot = value.hashCode() & mMask;
+        Entry[] entries = mEntries;
+        Entry entry = entries[slot];
+        if (entry != null && entry.mValue.equals(value)) {
+            return entry.mValue;
+        }
+        Entry next = entries[(slot + 1) & mMask];
+        if (next != null && next.mValue.equals(value)) {
+            return next.mValue;
+        }
+        insert(slot, entry, new Entry(value.getBytes(StandardCharsets.UTF_8), value));
+        return value;
+    }
+
+    /**
+     * Returns the string for {@code length} bytes of UTF-8 in {@code buffer} starting at {@code offset},
+     * which must not contain escapes. {@code hash} must be the {@link JsonOptions#hash(int, byte)} of
+     * those bytes.
+     */
+    @NonNull
+    String get(@NonNull byte[] buffer, int offset, int length, int hash) {
+        if (length > mMaxLength) {
+            return new String(buffer, offset, length, StandardCharsets.UTF_8);
+        }
+        int slot = hash & mMask;
+        Entry[] entries = mEntries;
+        Entry entry = entries[slot];
+        if (entry != null && entry.matches(buffer, offset, length)) {
+            return entry.mValue;
+        }
+        Entry next = entries[(slot + 1) & mMask];
+        if (next != null && next.matches(buffer, offset, length)) {
+            return next.mValue;
+        }
+        byte[] encoded = Arrays.copyOfRange(buffer, offset, offset + length);
+        String value = new String(encoded, StandardCharsets.UTF_8);
+        insert(slot, entry, new Entry(encoded, value));
+        return value;
+    }
+
+    private void insert(int slot, @Nullable Entry previous, @NonNull Entry entry) {
+        // Entries are immutable, so a racing reader sees either the old entry or the new one
+        if (previous != null) {
+            mEntries[(slot + 1) & mMask] = previous;
+        }
+        mEntries[slot] = entry;
+    }
+
+    private static final class Entry {
+
+        @NonNull
+        final byte[] mEncoded;
+
+        @NonNull
+        final String mValue;
+
+
+        Entry(@NonNull byte[] encoded, @NonNull String value) {
+            mEncoded = encoded;
+            mValue = value;
+        }
+
+
+        boolean matches(@NonNull byte[] buffer, int offset, int length) {
+            byte[] encoded = mEncoded;
+            if (encoded.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (encoded[i] != buffer[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed number of counters, each split into one stripe per group of threads so that threads on
+ * different cores rarely update the same cache line. Adding is one uncontended atomic operation;
+ * reading sums the stripes, so it is slower and not a consistent snapshot across counters.
+ */
+final class StripedCounters {
+
+    /**
+     * Longs of padding between stripes, a cache line's worth, so neighbouring stripes don't share one.
+     */
+    private static final int PADDING = 8;
+
+    /**
+     * Number of stripes, the next power of two from the number of processors.
+     */
+    private static final int STRIPES =
+            Integer.highestOneBit(Math.max(Runtime.getRuntime().availableProcessors() * 2 - 1, 1));
+
+    private final int mStride;
+
+    @NonNull
+    private final AtomicLongArray mCounts;
+
+
+    StripedCounters(int width) {
+        mStride = width + PADDING;
+        mCounts = new AtomicLongArray(STRIPES * mStride);
+    }
+
+
+    /**
+     * Returns the offset of the calling thread's stripe. Thread IDs are handed out in sequence, so
+     * threads started together land on different stripes.
+     */
+    int stripe() {
+        return (int) (Thread.currentThread().getId() & (STRIPES - 1)) * mStride;
+    }
+
+    /**
+     * Adds {@code delta} to counter {@code index} in the stripe at {@code stripe}.
+     */
+    void add(int stripe, int index, long delta) {
+        mCounts.addAndGet(stripe + index, delta);
+    }
+
+    void add(int index, long delta) {
+        add(stripe(), index, delta);
+    }
+
+    /**
+     * Returns the sum of counter {@code index} over all stripes.
+     */
+    long sum(int index) {
+        long sum = 0;
+        for (int stripe = 0; stripe < mCounts.length(); stripe += mStride) {
+            sum += mCounts.get(stripe + index);
+        }
+        return sum;
+    }
+}
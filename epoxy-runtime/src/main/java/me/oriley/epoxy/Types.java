@@ -268,6 +268,20 @@ public final class Types {
         return Object.class;
     }
 
+    /**
+     * Returns the type of the value held by {@code type}, a {@link Lazy}.
+     */
+    static Type lazyValueType(Type type) {
+        if (type instanceof ParameterizedType) {
+            Type valueType = ((ParameterizedType) type).getActualTypeArguments()[0];
+            if (valueType instanceof WildcardType) {
+                return ((WildcardType) valueType).getUpperBounds()[0];
+            }
+            return valueType;
+        }
+        return Object.class;
+    }
+
     /**
      * Returns a two element array containing this map's key and value types in positions 0 and 1
      * respectively.
@@ -0,0 +1,1427 @@
+/*
+ * Copyright (C) 2010 Google Inc.
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A {@link JsonReader} that works directly on UTF-8 encoded bytes, either from an array or buffered
+ * from an {@link InputStream}. Strings are only decoded when a value or name is actually requested,
+ * and property names can be matched against {@link JsonOptions} without being decoded at all.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class Utf8JsonReader extends JsonReader {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final byte[] EMPTY_BUFFER = new byte[0];
+    private static final long MIN_INCOMPLETE_INTEGER = Long.MIN_VALUE / 10;
+
+    /**
+     * Length of the longest decimal long, {@code -9223372036854775808}.
+     */
+    private static final int MAX_LONG_NAME_LENGTH = 20;
+
+    /**
+     * Numbers this short have at most 15 significant digits, too few for one that isn't whole to round
+     * to a whole double, so integral reads trust the double of any whole number below 2^53.
+     */
+    private static final int MAX_EXACT_NUMBER_LENGTH = 15;
+
+    private static final int PEEKED_NONE = 0;
+    private static final int PEEKED_BEGIN_OBJECT = 1;
+    private static final int PEEKED_END_OBJECT = 2;
+    private static final int PEEKED_BEGIN_ARRAY = 3;
+    private static final int PEEKED_END_ARRAY = 4;
+    private static final int PEEKED_TRUE = 5;
+    private static final int PEEKED_FALSE = 6;
+    private static final int PEEKED_NULL = 7;
+    private static final int PEEKED_DOUBLE_QUOTED = 8;
+    private static final int PEEKED_DOUBLE_QUOTED_NAME = 9;
+    private static final int PEEKED_LONG = 10;
+    private static final int PEEKED_NUMBER = 11;
+    private static final int PEEKED_EOF = 12;
+
+    private static final int NUMBER_CHAR_NONE = 0;
+    private static final int NUMBER_CHAR_SIGN = 1;
+    private static final int NUMBER_CHAR_DIGIT = 2;
+    private static final int NUMBER_CHAR_DECIMAL = 3;
+    private static final int NUMBER_CHAR_FRACTION_DIGIT = 4;
+    private static final int NUMBER_CHAR_EXP_E = 5;
+    private static final int NUMBER_CHAR_EXP_SIGN = 6;
+    private static final int NUMBER_CHAR_EXP_DIGIT = 7;
+
+    private static final int EMPTY_ARRAY = 1;
+    private static final int NONEMPTY_ARRAY = 2;
+    private static final int EMPTY_OBJECT = 3;
+    private static final int DANGLING_NAME = 4;
+    private static final int NONEMPTY_OBJECT = 5;
+    private static final int EMPTY_DOCUMENT = 6;
+    private static final int NONEMPTY_DOCUMENT = 7;
+    private static final int CLOSED = 8;
+
+    /**
+     * True for the bytes that {@link #skipContainer()} stops at: brackets and quotes.
+     */
+    private static final boolean[] SKIP_STOP_BYTES = new boolean[256];
+
+    static {
+        SKIP_STOP_BYTES['['] = true;
+        SKIP_STOP_BYTES[']'] = true;
+        SKIP_STOP_BYTES['{'] = true;
+        SKIP_STOP_BYTES['}'] = true;
+        SKIP_STOP_BYTES['"'] = true;
+    }
+
+    @Nullable
+    private InputStream mSource;
+
+    @NonNull
+    private byte[] mBuffer;
+
+    /**
+     * Whether {@link #mBuffer} was allocated by this reader, rather than handed in by the caller.
+     */
+    private boolean mBufferOwned;
+
+    /**
+     * A buffer kept from an earlier use of a recycled reader.
+     */
+    @Nullable
+    private byte[] mRetainedBuffer;
+
+    private int mPos;
+    private int mLimit;
+
+    /**
+     * Offset of {@code mBuffer[0]} within the whole input.
+     */
+    private long mBufferOffset;
+
+    private int mPeeked = PEEKED_NONE;
+
+    /**
+     * The value of a {@link #PEEKED_LONG} token.
+     */
+    private long mPeekedLong;
+
+    /**
+     * The number of bytes in a {@link #PEEKED_NUMBER} token, which still sits in the buffer at {@link #mPos},
+     * or in a {@link #PEEKED_LONG} token, which ends at {@link #mPos}.
+     */
+    private int mPeekedNumberLength;
+
+    /**
+     * Start of the value being captured by {@link #nextRawValue()}, which refills keep in the buffer, or -1.
+     */
+    private int mCaptureStart = -1;
+
+    @NonNull
+    private int[] mStack = new int[32];
+    private int mStackSize;
+
+    /**
+     * Whether further top level values may follow the first, as in newline delimited JSON.
+     */
+    private boolean mMultipleDocuments;
+
+    /**
+     * Scratch space for strings that contain escapes or span a buffer refill.
+     */
+    @NonNull
+    private char[] mChars = new char[64];
+
+
+    public Utf8JsonReader(@NonNull InputStream source) {
+        mSource = source;
+        mBuffer = new byte[BUFFER_SIZE];
+        mBufferOwned = true;
+        mStack[mStackSize++] = EMPTY_DOCUMENT;
+    }
+
+    public Utf8JsonReader(@NonNull byte[] bytes) {
+        this(bytes, 0, bytes.length);
+    }
+
+    public Utf8JsonReader(@NonNull byte[] bytes, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > bytes.length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + bytes.length);
+        }
+        mSource = null;
+        mBuffer = bytes;
+        mPos = offset;
+        mLimit = offset + length;
+        mBufferOffset = -offset;
+        mStack[mStackSize++] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Creates a reader with no input, to be {@link #reset(InputStream) reset} before use.
+     */
+    Utf8JsonReader() {
+        mBuffer = EMPTY_BUFFER;
+        mStack[mStackSize++] = EMPTY_DOCUMENT;
+    }
+
+
+    /**
+     * Prepares this reader to read a new document from {@code source}, keeping its buffers.
+     */
+    void reset(@NonNull InputStream source) {
+        mSource = source;
+        mBuffer = ownedBuffer(BUFFER_SIZE);
+        mBufferOwned = true;
+        mLimit = 0;
+        resetState(0);
+    }
+
+    /**
+     * Prepares this reader to read a new document from {@code length} bytes of {@code bytes} starting at
+     * {@code offset}, keeping its buffers.
+     */
+    void reset(@NonNull byte[] bytes, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > bytes.length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + bytes.length);
+        }
+        mSource = null;
+        mBuffer = bytes;
+        mBufferOwned = false;
+        mLimit = offset + length;
+        resetState(offset);
+    }
+
+    /**
+     * Prepares this reader to read a new document from {@code json}, encoding it into a buffer owned by
+     * this reader instead of allocating its bytes. Unpaired surrogates are encoded as '?', as
+     * {@link String#getBytes(java.nio.charset.Charset)} does.
+     */
+    void reset(@NonNull String json) {
+        int length = json.length();
+        // Every char takes at most three bytes, which also covers a surrogate pair taking four. Only
+        // measure the string when that bound doesn't fit the buffer we have
+        int retained = mRetainedBuffer != null ? mRetainedBuffer.length : 0;
+        byte[] buffer = ownedBuffer(length <= BUFFER_SIZE / 3 ? BUFFER_SIZE
+                : length <= retained / 3 ? retained : utf8Length(json));
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            char c = json.charAt(i);
+            if (c < 0x80) {
+                buffer[count++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[count++] = (byte) (0xc0 | c >> 6);
+                buffer[count++] = (byte) (0x80 | c & 0x3f);
+            } else if (!Character.isSurrogate(c)) {
+                buffer[count++] = (byte) (0xe0 | c >> 12);
+                buffer[count++] = (byte) (0x80 | c >> 6 & 0x3f);
+                buffer[count++] = (byte) (0x80 | c & 0x3f);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(json.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, json.charAt(++i));
+                buffer[count++] = (byte) (0xf0 | codePoint >> 18);
+                buffer[count++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+                buffer[count++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+                buffer[count++] = (byte) (0x80 | codePoint & 0x3f);
+            } else {
+                buffer[count++] = '?';
+            }
+        }
+        mSource = null;
+        mBuffer = buffer;
+        mBufferOwned = true;
+        mLimit = count;
+        resetState(0);
+    }
+
+    /**
+     * Allows any number of top level values, one after another, instead of just one.
+     */
+    void setMultipleDocuments(boolean multipleDocuments) {
+        mMultipleDocuments = multipleDocuments;
+    }
+
+    /**
+     * Skips whitespace up to the next top level value and returns its offset in the input, or -1 at the
+     * end of the input. Must only be called between top level values.
+     */
+    long nextDocumentOffset() throws IOException {
+        if (mPeeked == PEEKED_EOF) {
+            return -1;
+        }
+        if (mPeeked != PEEKED_NONE || mStackSize != 1) {
+            throw new IllegalStateException("Not between top level values at " + locationString());
+        }
+        if (nextNonWhitespace(false) == -1) {
+            return -1;
+        }
+        mPos--;
+        return mBufferOffset + mPos;
+    }
+
+    /**
+     * Drops the input so that the reader can be pooled, and returns whether the buffers it keeps are no
+     * larger than {@code maxRetainedSize} bytes.
+     */
+    boolean recycle(int maxRetainedSize) {
+        if (mBufferOwned) {
+            mRetainedBuffer = mBuffer;
+        }
+        mSource = null;
+        mBuffer = EMPTY_BUFFER;
+        mBufferOwned = false;
+        return (mRetainedBuffer == null || mRetainedBuffer.length <= maxRetainedSize)
+                && mChars.length * 2 <= maxRetainedSize;
+    }
+
+
+    @Override
+    public void beginArray() throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+        if (p != PEEKED_BEGIN_ARRAY) {
+            throw unexpected(JsonToken.BEGIN_ARRAY);
+        }
+        push(EMPTY_ARRAY);
+        mPeeked = PEEKED_NONE;
+    }
+
+    @Override
+    public void endArray() throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+        if (p != PEEKED_END_ARRAY) {
+            throw unexpected(JsonToken.END_ARRAY);
+        }
+        mStackSize--;
+        mPeeked = PEEKED_NONE;
+    }
+
+    @Override
+    public void beginObject() throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+        if (p != PEEKED_BEGIN_OBJECT) {
+            throw unexpected(JsonToken.BEGIN_OBJECT);
+        }
+        push(EMPTY_OBJECT);
+        mPeeked = PEEKED_NONE;
+    }
+
+    @Override
+    public void endObject() throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+        if (p != PEEKED_END_OBJECT) {
+            throw unexpected(JsonToken.END_OBJECT);
+        }
+        mStackSize--;
+        mPeeked = PEEKED_NONE;
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+        return p != PEEKED_END_OBJECT && p != PEEKED_END_ARRAY && p != PEEKED_EOF;
+    }
+
+    @NonNull
+    @Override
+    public JsonToken peek() throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+
+        switch (p) {
+            case PEEKED_BEGIN_OBJECT:
+                return JsonToken.BEGIN_OBJECT;
+            case PEEKED_END_OBJECT:
+                return JsonToken.END_OBJECT;
+            case PEEKED_BEGIN_ARRAY:
+                return JsonToken.BEGIN_ARRAY;
+            case PEEKED_END_ARRAY:
+                return JsonToken.END_ARRAY;
+            case PEEKED_DOUBLE_QUOTED_NAME:
+                return JsonToken.NAME;
+            case PEEKED_TRUE:
+            case PEEKED_FALSE:
+                return JsonToken.BOOLEAN;
+            case PEEKED_NULL:
+                return JsonToken.NULL;
+            case PEEKED_DOUBLE_QUOTED:
+                return JsonToken.STRING;
+            case PEEKED_LONG:
+            case PEEKED_NUMBER:
+                return JsonToken.NUMBER;
+            case PEEKED_EOF:
+                return JsonToken.END_DOCUMENT;
+            default:
+                throw new AssertionError();
+        }
+    }
+
+    @NonNull
+    @Override
+    public String nextName() throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+        if (p != PEEKED_DOUBLE_QUOTED_NAME) {
+            throw unexpected(JsonToken.NAME);
+        }
+        mPeeked = PEEKED_NONE;
+        return nextQuotedValue();
+    }
+
+    @Override
+    public int selectName(@NonNull JsonOptions options) throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+        if (p != PEEKED_DOUBLE_QUOTED_NAME) {
+            throw unexpected(JsonToken.NAME);
+        }
+        mPeeked = PEEKED_NONE;
+        return selectQuotedValue(options);
+    }
+
+    @Override
+    public int selectString(@NonNull JsonOptions options) throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+        if (p != PEEKED_DOUBLE_QUOTED) {
+            return options.indexOf(nextString());
+        }
+        mPeeked = PEEKED_NONE;
+        return selectQuotedValue(options);
+    }
+
+    /**
+     * Returns the index in {@code options} of the string up to the closing quote, or -1 if it is not
+     * one of them. The opening quote should already have been read.
+     */
+    private int selectQuotedValue(@NonNull JsonOptions options) throws IOException {
+        // Hash the raw bytes up to the closing quote, and only decode if the string is escaped
+        int maxLength = options.maxLength();
+        int hash = 0;
+        for (int i = 0; i <= maxLength; i++) {
+            if (mPos + i == mLimit && !fill(i + 1)) {
+                throw new EOFException("Unterminated string at " + locationString());
+            }
+            byte b = mBuffer[mPos + i];
+            if (b == '"') {
+                int index = options.indexOf(mBuffer, mPos, i, hash);
+                mPos += i + 1;
+                return index;
+            } else if (b == '\\') {
+                return options.indexOf(nextQuotedValue());
+            }
+            hash = JsonOptions.hash(hash, b);
+        }
+        // Longer than any option, so skip the rest without buffering it
+        skipQuotedValue();
+        return -1;
+    }
+
+    @Override
+    public long nextLongName() throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+        if (p != PEEKED_DOUBLE_QUOTED_NAME) {
+            throw unexpected(JsonToken.NAME);
+        }
+        mPeeked = PEEKED_NONE;
+
+        // Accumulate negatively, which has room for Long.MIN_VALUE
+        long value = 0;
+        boolean negative = false;
+        for (int i = 0; i <= MAX_LONG_NAME_LENGTH; i++) {
+            if (mPos + i == mLimit && !fill(i + 1)) {
+                throw new EOFException("Unterminated string at " + locationString());
+            }
+            int b = mBuffer[mPos + i];
+            if (b == '"' && i > (negative ? 1 : 0)) {
+                if (!negative && value == Long.MIN_VALUE) {
+                    // One past Long.MAX_VALUE, which only fits negated
+                    break;
+                }
+                mPos += i + 1;
+                return negative ? value : -value;
+            } else if (b == '-' && i == 0) {
+                negative = true;
+                continue;
+            } else if (b < '0' || b > '9') {
+                break;
+            }
+            int digit = b - '0';
+            if (value < MIN_INCOMPLETE_INTEGER || value * 10 < Long.MIN_VALUE + digit) {
+                break;
+            }
+            value = value * 10 - digit;
+        }
+
+        // Escaped, out of range or not a number at all
+        String name = nextQuotedValue();
+        try {
+            return Long.parseLong(name);
+        } catch (NumberFormatException e) {
+            throw new NumberFormatException("Expected a long name but was " + name + " at " + locationString());
+        }
+    }
+
+    @NonNull
+    @Override
+    public String nextName(@NonNull StringCache cache) throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+        if (p != PEEKED_DOUBLE_QUOTED_NAME) {
+            throw unexpected(JsonToken.NAME);
+        }
+        mPeeked = PEEKED_NONE;
+        return nextQuotedValue(cache);
+    }
+
+    @NonNull
+    @Override
+    public String nextString() throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+        String result;
+        if (p == PEEKED_DOUBLE_QUOTED) {
+            result = nextQuotedValue();
+        } else if (p == PEEKED_LONG) {
+            result = Long.toString(mPeekedLong);
+        } else if (p == PEEKED_NUMBER) {
+            result = new String(mBuffer, mPos, mPeekedNumberLength, StandardCharsets.ISO_8859_1);
+            mPos += mPeekedNumberLength;
+        } else {
+            throw unexpected(JsonToken.STRING);
+        }
+        mPeeked = PEEKED_NONE;
+        return result;
+    }
+
+    @NonNull
+    @Override
+    public String nextString(@NonNull StringCache cache) throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+        if (p != PEEKED_DOUBLE_QUOTED) {
+            // Numbers are read as usual, they rarely repeat
+            return cache.intern(nextString());
+        }
+        mPeeked = PEEKED_NONE;
+        return nextQuotedValue(cache);
+    }
+
+    @Override
+    public boolean nextBoolean() throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+        if (p == PEEKED_TRUE) {
+            mPeeked = PEEKED_NONE;
+            return true;
+        } else if (p == PEEKED_FALSE) {
+            mPeeked = PEEKED_NONE;
+            return false;
+        }
+        throw unexpected(JsonToken.BOOLEAN);
+    }
+
+    @Override
+    public void nextNull() throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+        if (p != PEEKED_NULL) {
+            throw unexpected(JsonToken.NULL);
+        }
+        mPeeked = PEEKED_NONE;
+    }
+
+    @Override
+    public double nextDouble() throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+
+        if (p == PEEKED_LONG) {
+            mPeeked = PEEKED_NONE;
+            return (double) mPeekedLong;
+        }
+
+        String string;
+        if (p == PEEKED_NUMBER) {
+            double result = DoubleParser.parse(mBuffer, mPos, mPeekedNumberLength);
+            if (!Double.isNaN(result) && !Double.isInfinite(result)) {
+                mPos += mPeekedNumberLength;
+                mPeeked = PEEKED_NONE;
+                return result;
+            }
+            // Converted exactly, or reported, from its string below
+            string = new String(mBuffer, mPos, mPeekedNumberLength, StandardCharsets.ISO_8859_1);
+            mPos += mPeekedNumberLength;
+        } else if (p == PEEKED_DOUBLE_QUOTED) {
+            string = nextQuotedValue();
+        } else {
+            throw unexpected(JsonToken.NUMBER);
+        }
+        mPeeked = PEEKED_NONE;
+
+        double result;
+        try {
+            result = Double.parseDouble(string);
+        } catch (NumberFormatException e) {
+            throw new NumberFormatException("Expected a double but was " + string + " at " + locationString());
+        }
+        if (Double.isNaN(result) || Double.isInfinite(result)) {
+            throw new MalformedJsonException("JSON forbids NaN and infinities: " + result + " at " + locationString());
+        }
+        return result;
+    }
+
+    @Override
+    public long nextLong() throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+
+        if (p == PEEKED_LONG) {
+            mPeeked = PEEKED_NONE;
+            return mPeekedLong;
+        }
+
+        String string;
+        if (p == PEEKED_NUMBER) {
+            double asDouble = mPeekedNumberLength <= MAX_EXACT_NUMBER_LENGTH
+                    ? DoubleParser.parse(mBuffer, mPos, mPeekedNumberLength) : Double.NaN;
+            long result = (long) asDouble;
+            if (result == asDouble && Math.abs(asDouble) < 0x1p53) {
+                mPos += mPeekedNumberLength;
+                mPeeked = PEEKED_NONE;
+                return result;
+            }
+            // Converted exactly, or reported, from its string below
+            string = new String(mBuffer, mPos, mPeekedNumberLength, StandardCharsets.ISO_8859_1);
+            mPos += mPeekedNumberLength;
+        } else if (p == PEEKED_DOUBLE_QUOTED) {
+            string = nextQuotedValue();
+            try {
+                long result = Long.parseLong(string);
+                mPeeked = PEEKED_NONE;
+                return result;
+            } catch (NumberFormatException ignored) {
+                // Fall back to an exact decimal below.
+            }
+        } else {
+            throw unexpected(JsonToken.NUMBER);
+        }
+        mPeeked = PEEKED_NONE;
+
+        // Exactly, as going through a double would round numbers beyond 2^53 to another whole number
+        try {
+            return new BigDecimal(string).longValueExact();
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new NumberFormatException("Expected a long but was " + string + " at " + locationString());
+        }
+    }
+
+    @Override
+    public int nextInt() throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+
+        if (p == PEEKED_LONG) {
+            int result = (int) mPeekedLong;
+            if (mPeekedLong != result) {
+                // Make sure no precision was lost casting to 'int'.
+                throw new NumberFormatException("Expected an int but was " + mPeekedLong + " at " + locationString());
+            }
+            mPeeked = PEEKED_NONE;
+            return result;
+        }
+
+        String string;
+        if (p == PEEKED_NUMBER) {
+            double asDouble = mPeekedNumberLength <= MAX_EXACT_NUMBER_LENGTH
+                    ? DoubleParser.parse(mBuffer, mPos, mPeekedNumberLength) : Double.NaN;
+            int result = (int) asDouble;
+            if (result == asDouble) {
+                mPos += mPeekedNumberLength;
+                mPeeked = PEEKED_NONE;
+                return result;
+            }
+            // Converted exactly, or reported, from its string below
+            string = new String(mBuffer, mPos, mPeekedNumberLength, StandardCharsets.ISO_8859_1);
+            mPos += mPeekedNumberLength;
+        } else if (p == PEEKED_DOUBLE_QUOTED) {
+            string = nextQuotedValue();
+            try {
+                int result = Integer.parseInt(string);
+                mPeeked = PEEKED_NONE;
+                return result;
+            } catch (NumberFormatException ignored) {
+                // Fall back to an exact decimal below.
+            }
+        } else {
+            throw unexpected(JsonToken.NUMBER);
+        }
+        mPeeked = PEEKED_NONE;
+
+        // Exactly, as going through a double would accept fractions too small for it to hold
+        try {
+            return new BigDecimal(string).intValueExact();
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new NumberFormatException("Expected an int but was " + string + " at " + locationString());
+        }
+    }
+
+    /**
+     * Skips the next value. Arrays and objects are skipped by scanning for their closing bracket, tracking
+     * only nesting depth and string state, so their contents are not validated.
+     */
+    @Override
+    public void skipValue() throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+
+        if (p == PEEKED_BEGIN_ARRAY || p == PEEKED_BEGIN_OBJECT) {
+            skipContainer();
+        } else if (p == PEEKED_DOUBLE_QUOTED || p == PEEKED_DOUBLE_QUOTED_NAME) {
+            skipQuotedValue();
+        } else if (p == PEEKED_NUMBER) {
+            mPos += mPeekedNumberLength;
+        } else if (p == PEEKED_END_ARRAY || p == PEEKED_END_OBJECT) {
+            throw new IllegalStateException("Expected a value but was " + peek() + " at " + locationString());
+        } else if (p == PEEKED_EOF) {
+            throw new EOFException("End of input at " + locationString());
+        }
+        mPeeked = PEEKED_NONE;
+    }
+
+    @NonNull
+    @Override
+    public byte[] nextRawValue() throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+
+        // Find where the peeked value starts; peeking consumes some tokens and not others
+        int start;
+        if (p == PEEKED_BEGIN_OBJECT || p == PEEKED_BEGIN_ARRAY || p == PEEKED_DOUBLE_QUOTED) {
+            start = mPos - 1;
+        } else if (p == PEEKED_TRUE || p == PEEKED_NULL) {
+            start = mPos - 4;
+        } else if (p == PEEKED_FALSE) {
+            start = mPos - 5;
+        } else if (p == PEEKED_LONG) {
+            start = mPos - mPeekedNumberLength;
+        } else if (p == PEEKED_NUMBER) {
+            start = mPos;
+        } else if (p == PEEKED_EOF) {
+            throw new EOFException("End of input at " + locationString());
+        } else {
+            throw new IllegalStateException("Expected a value but was " + peek() + " at " + locationString());
+        }
+
+        mCaptureStart = start;
+        try {
+            skipValue();
+            byte[] result = new byte[mPos - mCaptureStart];
+            System.arraycopy(mBuffer, mCaptureStart, result, 0, result.length);
+            return result;
+        } finally {
+            mCaptureStart = -1;
+        }
+    }
+
+    @Override
+    public long bytesRead() {
+        return mBufferOffset + mPos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mPeeked = PEEKED_NONE;
+        mStack[0] = CLOSED;
+        mStackSize = 1;
+        if (mSource != null) {
+            mSource.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Utf8JsonReader at " + locationString();
+    }
+
+    private int doPeek() throws IOException {
+        int peekStack = mStack[mStackSize - 1];
+        if (peekStack == EMPTY_ARRAY) {
+            mStack[mStackSize - 1] = NONEMPTY_ARRAY;
+        } else if (peekStack == NONEMPTY_ARRAY) {
+            // Look for a comma before the next element.
+            int c = nextNonWhitespace(true);
+            if (c == ']') {
+                return mPeeked = PEEKED_END_ARRAY;
+            } else if (c != ',') {
+                throw syntaxError("Unterminated array");
+            }
+        } else if (peekStack == EMPTY_OBJECT || peekStack == NONEMPTY_OBJECT) {
+            mStack[mStackSize - 1] = DANGLING_NAME;
+            // Look for a comma before the next element.
+            if (peekStack == NONEMPTY_OBJECT) {
+                int c = nextNonWhitespace(true);
+                if (c == '}') {
+                    return mPeeked = PEEKED_END_OBJECT;
+                } else if (c != ',') {
+                    throw syntaxError("Unterminated object");
+                }
+            }
+            int c = nextNonWhitespace(true);
+            if (c == '"') {
+                return mPeeked = PEEKED_DOUBLE_QUOTED_NAME;
+            } else if (c == '}' && peekStack != NONEMPTY_OBJECT) {
+                return mPeeked = PEEKED_END_OBJECT;
+            }
+            throw syntaxError("Expected name");
+        } else if (peekStack == DANGLING_NAME) {
+            mStack[mStackSize - 1] = NONEMPTY_OBJECT;
+            // Look for a colon before the value.
+            int c = nextNonWhitespace(true);
+            if (c != ':') {
+                throw syntaxError("Expected ':'");
+            }
+        } else if (peekStack == EMPTY_DOCUMENT) {
+            mStack[mStackSize - 1] = NONEMPTY_DOCUMENT;
+        } else if (peekStack == NONEMPTY_DOCUMENT) {
+            int c = nextNonWhitespace(false);
+            if (c == -1) {
+                return mPeeked = PEEKED_EOF;
+            }
+            if (!mMultipleDocuments) {
+                throw syntaxError("Expected end of document");
+            }
+            mPos--;
+        } else if (peekStack == CLOSED) {
+            throw new IllegalStateException("JsonReader is closed");
+        }
+
+        int c = nextNonWhitespace(true);
+        switch (c) {
+            case ']':
+                if (peekStack == EMPTY_ARRAY) {
+                    return mPeeked = PEEKED_END_ARRAY;
+                }
+                throw syntaxError("Unexpected value");
+            case '"':
+                return mPeeked = PEEKED_DOUBLE_QUOTED;
+            case '[':
+                return mPeeked = PEEKED_BEGIN_ARRAY;
+            case '{':
+                return mPeeked = PEEKED_BEGIN_OBJECT;
+            default:
+                mPos--; // Don't consume the first character in a literal value.
+        }
+
+        int result = peekKeyword();
+        if (result != PEEKED_NONE) {
+            return result;
+        }
+
+        result = peekNumber();
+        if (result != PEEKED_NONE) {
+            return result;
+        }
+
+        throw syntaxError("Expected value");
+    }
+
+    private int peekKeyword() throws IOException {
+        // Figure out which keyword we're matching against by its first character.
+        byte c = mBuffer[mPos];
+        String keyword;
+        int peeking;
+        if (c == 't') {
+            keyword = "true";
+            peeking = PEEKED_TRUE;
+        } else if (c == 'f') {
+            keyword = "false";
+            peeking = PEEKED_FALSE;
+        } else if (c == 'n') {
+            keyword = "null";
+            peeking = PEEKED_NULL;
+        } else {
+            return PEEKED_NONE;
+        }
+
+        // Confirm that chars [1..length) match the keyword.
+        int length = keyword.length();
+        for (int i = 1; i < length; i++) {
+            if (mPos + i >= mLimit && !fill(i + 1)) {
+                return PEEKED_NONE;
+            }
+            if (mBuffer[mPos + i] != keyword.charAt(i)) {
+                return PEEKED_NONE;
+            }
+        }
+
+        if ((mPos + length < mLimit || fill(length + 1)) && isLiteral(mBuffer[mPos + length])) {
+            return PEEKED_NONE; // Don't match trues, falsey or nullsoft!
+        }
+
+        // We've found the keyword followed either by EOF or by a non-literal character.
+        mPos += length;
+        return mPeeked = peeking;
+    }
+
+    private int peekNumber() throws IOException {
+        // Like nextNonWhitespace, this uses locals 'p' and 'l' to save inner-loop field access.
+        byte[] buffer = mBuffer;
+        int p = mPos;
+        int l = mLimit;
+
+        long value = 0; // Negative to accommodate Long.MIN_VALUE more easily.
+        boolean negative = false;
+        boolean fitsInLong = true;
+        int last = NUMBER_CHAR_NONE;
+
+        int i = 0;
+
+        charactersOfNumber:
+        for (; true; i++) {
+            if (p + i == l) {
+                if (!fill(i + 1)) {
+                    break;
+                }
+                buffer = mBuffer;
+                p = mPos;
+                l = mLimit;
+            }
+
+            byte c = buffer[p + i];
+            switch (c) {
+                case '-':
+                    if (last == NUMBER_CHAR_NONE) {
+                        negative = true;
+                        last = NUMBER_CHAR_SIGN;
+                        continue;
+                    } else if (last == NUMBER_CHAR_EXP_E) {
+                        last = NUMBER_CHAR_EXP_SIGN;
+                        continue;
+                    }
+                    return PEEKED_NONE;
+
+                case '+':
+                    if (last == NUMBER_CHAR_EXP_E) {
+                        last = NUMBER_CHAR_EXP_SIGN;
+                        continue;
+                    }
+                    return PEEKED_NONE;
+
+                case 'e':
+                case 'E':
+                    if (last == NUMBER_CHAR_DIGIT || last == NUMBER_CHAR_FRACTION_DIGIT) {
+                        last = NUMBER_CHAR_EXP_E;
+                        continue;
+                    }
+                    return PEEKED_NONE;
+
+                case '.':
+                    if (last == NUMBER_CHAR_DIGIT) {
+                        last = NUMBER_CHAR_DECIMAL;
+                        continue;
+                    }
+                    return PEEKED_NONE;
+
+                default:
+                    if (c < '0' || c > '9') {
+                        if (!isLiteral(c)) {
+                            break charactersOfNumber;
+                        }
+                        return PEEKED_NONE;
+                    }
+                    if (last == NUMBER_CHAR_SIGN || last == NUMBER_CHAR_NONE) {
+                        value = -(c - '0');
+                        last = NUMBER_CHAR_DIGIT;
+                    } else if (last == NUMBER_CHAR_DIGIT) {
+                        if (value == 0) {
+                            return PEEKED_NONE; // Leading '0' prefix is not allowed (since it could be octal).
+                        }
+                        long newValue = value * 10 - (c - '0');
+                        fitsInLong &= value > MIN_INCOMPLETE_INTEGER
+                                || (value == MIN_INCOMPLETE_INTEGER && newValue < value);
+                        value = newValue;
+                    } else if (last == NUMBER_CHAR_DECIMAL) {
+                        last = NUMBER_CHAR_FRACTION_DIGIT;
+                    } else if (last == NUMBER_CHAR_EXP_E || last == NUMBER_CHAR_EXP_SIGN) {
+                        last = NUMBER_CHAR_EXP_DIGIT;
+                    }
+            }
+        }
+
+        // We've read a complete number. Decide if it's a PEEKED_LONG or a PEEKED_NUMBER.
+        if (last == NUMBER_CHAR_DIGIT && fitsInLong && (value != Long.MIN_VALUE || negative)
+                && (value != 0 || !negative)) {
+            mPeekedLong = negative ? value : -value;
+            mPeekedNumberLength = i;
+            mPos += i;
+            return mPeeked = PEEKED_LONG;
+        } else if (last == NUMBER_CHAR_DIGIT || last == NUMBER_CHAR_FRACTION_DIGIT || last == NUMBER_CHAR_EXP_DIGIT) {
+            mPeekedNumberLength = i;
+            return mPeeked = PEEKED_NUMBER;
+        } else {
+            return PEEKED_NONE;
+        }
+    }
+
+    private static boolean isLiteral(byte c) {
+        switch (c) {
+            case '/':
+            case '\\':
+            case ';':
+            case '#':
+            case '=':
+            case '{':
+            case '}':
+            case '[':
+            case ']':
+            case ':':
+            case ',':
+            case ' ':
+            case '\t':
+            case '\f':
+            case '\r':
+            case '\n':
+            case '"':
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Returns the next character that isn't whitespace, consuming it, or -1 at the end of the input.
+     */
+    private int nextNonWhitespace(boolean throwOnEof) throws IOException {
+        // Copy the fields to locals so the loop can run without writing back each iteration.
+        byte[] buffer = mBuffer;
+        int p = mPos;
+        int l = mLimit;
+        while (true) {
+            if (p == l) {
+                mPos = p;
+                if (!fill(1)) {
+                    break;
+                }
+                buffer = mBuffer;
+                p = mPos;
+                l = mLimit;
+            }
+
+            int c = buffer[p++] & 0xff;
+            if (c == ' ' || c == '\n' || c == '\t' || c == '\r') {
+                continue;
+            }
+            mPos = p;
+            return c;
+        }
+        if (throwOnEof) {
+            throw new EOFException("End of input at " + locationString());
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the string up to but not including the closing quote, unescaping any escape sequences
+     * along the way. The opening quote should already have been read.
+     */
+    @NonNull
+    private String nextQuotedValue() throws IOException {
+        // Fast path: plain ASCII that ends within the buffer is copied straight into a string
+        byte[] buffer = mBuffer;
+        int start = mPos;
+        for (int p = start, l = mLimit; p < l; p++) {
+            byte b = buffer[p];
+            if (b == '"') {
+                mPos = p + 1;
+                return new String(buffer, start, p - start, StandardCharsets.ISO_8859_1);
+            } else if (b == '\\' || b < 0) {
+                break;
+            }
+        }
+        return nextQuotedValueSlow();
+    }
+
+    /**
+     * As {@link #nextQuotedValue()}, but looks unescaped strings up in {@code cache} by their raw bytes,
+     * so that a hit allocates nothing.
+     */
+    @NonNull
+    private String nextQuotedValue(@NonNull StringCache cache) throws IOException {
+        int maxLength = cache.maxLength();
+        int hash = 0;
+        for (int i = 0; i <= maxLength; i++) {
+            if (mPos + i == mLimit && !fill(i + 1)) {
+                throw new EOFException("Unterminated string at " + locationString());
+            }
+            byte b = mBuffer[mPos + i];
+            if (b == '"') {
+                String result = cache.get(mBuffer, mPos, i, hash);
+                mPos += i + 1;
+                return result;
+            } else if (b == '\\') {
+                return cache.intern(nextQuotedValue());
+            }
+            hash = JsonOptions.hash(hash, b);
+        }
+        // Too long to be cached, don't buffer any more of it than we have to
+        return nextQuotedValue();
+    }
+
+    @NonNull
+    private String nextQuotedValueSlow() throws IOException {
+        char[] chars = mChars;
+        int length = 0;
+        while (true) {
+            if (mPos == mLimit && !fill(1)) {
+                throw new EOFException("Unterminated string at " + locationString());
+            }
+            if (length + 2 > chars.length) {
+                char[] grown = new char[chars.length * 2];
+                System.arraycopy(chars, 0, grown, 0, length);
+                mChars = chars = grown;
+            }
+
+            int b = mBuffer[mPos++];
+            if (b == '"') {
+                return new String(chars, 0, length);
+            } else if (b == '\\') {
+                chars[length++] = readEscapeCharacter();
+            } else if (b >= 0) {
+                chars[length++] = (char) b;
+            } else {
+                length = decodeUtf8(b, chars, length);
+            }
+        }
+    }
+
+    /**
+     * Decodes a multi-byte UTF-8 sequence whose leading byte {@code b} has already been consumed,
+     * writing one or two chars into {@code chars} at {@code length}. Malformed input is replaced
+     * with U+FFFD.
+     */
+    private int decodeUtf8(int b, @NonNull char[] chars, int length) throws IOException {
+        int count;
+        int codePoint;
+        if ((b & 0xe0) == 0xc0) {
+            count = 1;
+            codePoint = b & 0x1f;
+        } else if ((b & 0xf0) == 0xe0) {
+            count = 2;
+            codePoint = b & 0x0f;
+        } else if ((b & 0xf8) == 0xf0) {
+            count = 3;
+            codePoint = b & 0x07;
+        } else {
+            chars[length++] = '\ufffd';
+            return length;
+        }
+
+        if (mLimit - mPos < count && !fill(count)) {
+            throw new EOFException("Unterminated string at " + locationString());
+        }
+        for (int i = 0; i < count; i++) {
+            int continuation = mBuffer[mPos];
+            if ((continuation & 0xc0) != 0x80) {
+                chars[length++] = '\ufffd';
+                return length;
+            }
+            codePoint = (codePoint << 6) | (continuation & 0x3f);
+            mPos++;
+        }
+
+        if (codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT && codePoint <= Character.MAX_CODE_POINT) {
+            chars[length++] = Character.highSurrogate(codePoint);
+            chars[length++] = Character.lowSurrogate(codePoint);
+        } else if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            chars[length++] = (char) codePoint;
+        } else {
+            chars[length++] = '\ufffd';
+        }
+        return length;
+    }
+
+    /**
+     * Unescapes the character identified by the character or characters that immediately follow a
+     * backslash. The backslash '\' should have already been read.
+     */
+    private char readEscapeCharacter() throws IOException {
+        if (mPos == mLimit && !fill(1)) {
+            throw syntaxError("Unterminated escape sequence");
+        }
+
+        byte escaped = mBuffer[mPos++];
+        switch (escaped) {
+            case 'u':
+                if (mPos + 4 > mLimit && !fill(4)) {
+                    throw syntaxError("Unterminated escape sequence");
+                }
+                // Equivalent to Integer.parseInt(stringPool.get(buffer, pos, 4), 16);
+                char result = 0;
+                for (int i = mPos, end = i + 4; i < end; i++) {
+                    byte c = mBuffer[i];
+                    result <<= 4;
+                    if (c >= '0' && c <= '9') {
+                        result += (c - '0');
+                    } else if (c >= 'a' && c <= 'f') {
+                        result += (c - 'a' + 10);
+                    } else if (c >= 'A' && c <= 'F') {
+                        result += (c - 'A' + 10);
+                    } else {
+                        throw syntaxError("\\u" + new String(mBuffer, mPos, 4, StandardCharsets.ISO_8859_1));
+                    }
+                }
+                mPos += 4;
+                return result;
+            case 't':
+                return '\t';
+            case 'b':
+                return '\b';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 'f':
+                return '\f';
+            case '"':
+            case '\\':
+            case '/':
+                return (char) escaped;
+            default:
+                throw syntaxError("Invalid escape sequence: \\" + (char) (escaped & 0xff));
+        }
+    }
+
+    /**
+     * Skips past the bracket closing the array or object whose opening bracket was just consumed. Only
+     * quotes and brackets are looked at, so a large subtree costs little more than a pass over its bytes.
+     */
+    private void skipContainer() throws IOException {
+        // Like nextNonWhitespace, this uses locals 'p' and 'l' to save inner-loop field access.
+        byte[] buffer = mBuffer;
+        int p = mPos;
+        int l = mLimit;
+        int depth = 1;
+        while (true) {
+            while (p < l && !SKIP_STOP_BYTES[buffer[p] & 0xff]) {
+                p++;
+            }
+            if (p == l) {
+                mPos = p;
+                if (!fill(1)) {
+                    throw new EOFException("End of input at " + locationString());
+                }
+                buffer = mBuffer;
+                p = mPos;
+                l = mLimit;
+                continue;
+            }
+
+            byte b = buffer[p++];
+            if (b == '"') {
+                mPos = p;
+                skipQuotedValue();
+                buffer = mBuffer;
+                p = mPos;
+                l = mLimit;
+            } else if (b == '[' || b == '{') {
+                depth++;
+            } else if (--depth == 0) {
+                mPos = p;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Skips past the closing quote of a string without decoding it.
+     */
+    private void skipQuotedValue() throws IOException {
+        while (true) {
+            byte[] buffer = mBuffer;
+            for (int p = mPos, l = mLimit; p < l; p++) {
+                byte b = buffer[p];
+                if (b == '"') {
+                    mPos = p + 1;
+                    return;
+                } else if (b == '\\') {
+                    mPos = p + 1;
+                    readEscapeCharacter();
+                    buffer = mBuffer;
+                    p = mPos - 1;
+                    l = mLimit;
+                }
+            }
+            mPos = mLimit;
+            if (!fill(1)) {
+                throw new EOFException("Unterminated string at " + locationString());
+            }
+        }
+    }
+
+    private void push(int newTop) {
+        if (mStackSize == mStack.length) {
+            int[] newStack = new int[mStackSize * 2];
+            System.arraycopy(mStack, 0, newStack, 0, mStackSize);
+            mStack = newStack;
+        }
+        mStack[mStackSize++] = newTop;
+    }
+
+    /**
+     * Returns true once {@code minimum} bytes are available from {@link #mPos}, reading from the
+     * source as needed. Unread bytes are moved to the front of the buffer, which may grow if it is
+     * too small to hold {@code minimum} bytes.
+     */
+    private boolean fill(int minimum) throws IOException {
+        if (mSource == null) {
+            return mLimit - mPos >= minimum;
+        }
+
+        // A value being captured stays in the buffer, so only the bytes before it can be dropped
+        int start = mCaptureStart != -1 ? mCaptureStart : mPos;
+        int needed = mPos - start + minimum;
+        byte[] buffer = mBuffer;
+        mBufferOffset += start;
+        mLimit -= start;
+        mPos -= start;
+        if (mCaptureStart != -1) {
+            mCaptureStart = 0;
+        }
+        if (needed > buffer.length) {
+            byte[] grown = new byte[Math.max(needed, buffer.length * 2)];
+            System.arraycopy(buffer, start, grown, 0, mLimit);
+            mBuffer = buffer = grown;
+        } else if (mLimit != 0 && start != 0) {
+            System.arraycopy(buffer, start, buffer, 0, mLimit);
+        }
+
+        int total;
+        while ((total = mSource.read(buffer, mLimit, buffer.length - mLimit)) != -1) {
+            mLimit += total;
+            if (mLimit - mPos >= minimum) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Takes the buffer kept by {@link #recycle(int)} if it holds {@code minimum} bytes, or allocates one.
+     */
+    @NonNull
+    private byte[] ownedBuffer(int minimum) {
+        byte[] buffer = mRetainedBuffer;
+        if (buffer == null || buffer.length < minimum) {
+            buffer = new byte[minimum];
+        }
+        mRetainedBuffer = null;
+        return buffer;
+    }
+
+    private void resetState(int offset) {
+        mPos = offset;
+        mBufferOffset = -offset;
+        mMultipleDocuments = false;
+        mPeeked = PEEKED_NONE;
+        mCaptureStart = -1;
+        mStackSize = 0;
+        mStack[mStackSize++] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Returns the UTF-8 length of {@code string}, or slightly more if it has unpaired surrogates.
+     */
+    private static int utf8Length(@NonNull String string) {
+        int length = string.length();
+        int count = length;
+        for (int i = 0; i < length; i++) {
+            char c = string.charAt(i);
+            if (c >= 0x800) {
+                // Surrogate pairs take four bytes for two chars
+                count += Character.isSurrogate(c) ? 1 : 2;
+            } else if (c >= 0x80) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @NonNull
+    private String locationString() {
+        return "offset " + (mBufferOffset + mPos);
+    }
+
+    @NonNull
+    private IllegalStateException unexpected(@NonNull JsonToken expected) throws IOException {
+        return new IllegalStateException("Expected " + expected + " but was " + peek() + " at " + locationString());
+    }
+
+    @NonNull
+    private IOException syntaxError(@NonNull String message) {
+        return new MalformedJsonException(message + " at " + locationString());
+    }
+}
@@ -0,0 +1,550 @@
+/*
+ * Copyright (C) 2010 Google Inc.
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A {@link JsonWriter} that encodes straight to UTF-8 bytes in a growable buffer. Without a sink the
+ * whole document is kept in memory and can be retrieved with {@link #toByteArray()} or
+ * {@link #toString()}; with a sink the buffer is flushed whenever it fills up.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class Utf8JsonWriter extends JsonWriter {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Strings are encoded in chunks of this many chars, so capacity only needs checking once per chunk.
+     */
+    private static final int CHUNK_SIZE = 1024;
+
+    /**
+     * The most bytes a single char can take once encoded, which is an escaped control character.
+     */
+    private static final int MAX_BYTES_PER_CHAR = 6;
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * For each ASCII character, zero if it can be written as is, otherwise the character that follows
+     * the backslash in its escape sequence.
+     */
+    private static final byte[] ESCAPES = new byte[128];
+
+    static {
+        for (int i = 0; i < 0x20; i++) {
+            ESCAPES[i] = 'u';
+        }
+        ESCAPES['"'] = '"';
+        ESCAPES['\\'] = '\\';
+        ESCAPES['\t'] = 't';
+        ESCAPES['\b'] = 'b';
+        ESCAPES['\n'] = 'n';
+        ESCAPES['\r'] = 'r';
+        ESCAPES['\f'] = 'f';
+    }
+
+    private static final int EMPTY_ARRAY = 1;
+    private static final int NONEMPTY_ARRAY = 2;
+    private static final int EMPTY_OBJECT = 3;
+    private static final int DANGLING_NAME = 4;
+    private static final int NONEMPTY_OBJECT = 5;
+    private static final int EMPTY_DOCUMENT = 6;
+    private static final int NONEMPTY_DOCUMENT = 7;
+    private static final int CLOSED = 8;
+
+    @Nullable
+    private OutputStream mSink;
+
+    @NonNull
+    private byte[] mBuffer = new byte[BUFFER_SIZE];
+    private int mCount;
+
+    /**
+     * Bytes already flushed to the sink.
+     */
+    private long mFlushed;
+
+    @NonNull
+    private int[] mStack = new int[32];
+    private int mStackSize;
+
+
+    public Utf8JsonWriter() {
+        this(null);
+    }
+
+    public Utf8JsonWriter(@Nullable OutputStream sink) {
+        mSink = sink;
+        mStack[mStackSize++] = EMPTY_DOCUMENT;
+    }
+
+
+    /**
+     * Prepares this writer to write a new document to {@code sink}, or to memory if it is null, keeping
+     * its buffer.
+     */
+    void reset(@Nullable OutputStream sink) {
+        mSink = sink;
+        mCount = 0;
+        mFlushed = 0;
+        mStackSize = 0;
+        mStack[mStackSize++] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Ends the top level value just written with a newline, so that another can follow it as the next
+     * record of newline delimited JSON.
+     */
+    void endRecord() throws IOException {
+        if (mStackSize != 1 || mStack[0] != NONEMPTY_DOCUMENT) {
+            throw new IllegalStateException("Nesting problem");
+        }
+        writeByte('\n');
+        mStack[0] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Drops the sink so that the writer can be pooled, and returns whether its buffer is no larger than
+     * {@code maxRetainedSize} bytes.
+     */
+    boolean recycle(int maxRetainedSize) {
+        mSink = null;
+        return mBuffer.length <= maxRetainedSize;
+    }
+
+
+    @NonNull
+    @Override
+    public JsonWriter beginArray() throws IOException {
+        beforeValue();
+        push(EMPTY_ARRAY);
+        writeByte('[');
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter endArray() throws IOException {
+        return close(EMPTY_ARRAY, NONEMPTY_ARRAY, ']');
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter beginObject() throws IOException {
+        beforeValue();
+        push(EMPTY_OBJECT);
+        writeByte('{');
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter endObject() throws IOException {
+        return close(EMPTY_OBJECT, NONEMPTY_OBJECT, '}');
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter name(@NonNull String name) throws IOException {
+        //noinspection ConstantConditions
+        if (name == null) {
+            throw new NullPointerException("name == null");
+        }
+        beforeName();
+        string(name);
+        writeByte(':');
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter name(@NonNull JsonOptions options, int index) throws IOException {
+        // The segment carries its own separator, which the first property of an object leaves off
+        byte[] segment = options.nameSegment(index);
+        int context = peek();
+        int start;
+        if (context == NONEMPTY_OBJECT) {
+            start = 0;
+        } else if (context == EMPTY_OBJECT) {
+            start = 1;
+        } else {
+            throw new IllegalStateException("Nesting problem");
+        }
+        mStack[mStackSize - 1] = DANGLING_NAME;
+
+        int length = segment.length - start;
+        ensure(length);
+        System.arraycopy(segment, start, mBuffer, mCount, length);
+        mCount += length;
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter value(@Nullable String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        string(value);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter value(@NonNull JsonOptions options, int index) throws IOException {
+        byte[] quoted = options.quoted(index);
+        beforeValue();
+        ensure(quoted.length);
+        System.arraycopy(quoted, 0, mBuffer, mCount, quoted.length);
+        mCount += quoted.length;
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter rawValue(@NonNull byte[] json) throws IOException {
+        // Trusted to be a single complete value, as captured by a reader
+        beforeValue();
+        ensure(json.length);
+        System.arraycopy(json, 0, mBuffer, mCount, json.length);
+        mCount += json.length;
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter nullValue() throws IOException {
+        beforeValue();
+        ensure(4);
+        byte[] buffer = mBuffer;
+        buffer[mCount++] = 'n';
+        buffer[mCount++] = 'u';
+        buffer[mCount++] = 'l';
+        buffer[mCount++] = 'l';
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter value(boolean value) throws IOException {
+        beforeValue();
+        ascii(value ? "true" : "false");
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter value(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("Numeric values must be finite, but was " + value);
+        }
+        beforeValue();
+        ensure(NumberFormatter.MAX_DOUBLE_LENGTH);
+        mCount = NumberFormatter.writeDouble(value, mBuffer, mCount);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter value(float value) throws IOException {
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            throw new IllegalArgumentException("Numeric values must be finite, but was " + value);
+        }
+        beforeValue();
+        ensure(NumberFormatter.MAX_FLOAT_LENGTH);
+        mCount = NumberFormatter.writeFloat(value, mBuffer, mCount);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter value(long value) throws IOException {
+        beforeValue();
+        ensure(NumberFormatter.MAX_LONG_LENGTH);
+        mCount = NumberFormatter.writeLong(value, mBuffer, mCount);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public JsonWriter value(@Nullable Number value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        } else if (value instanceof Double) {
+            return value(value.doubleValue());
+        } else if (value instanceof Float) {
+            return value(value.floatValue());
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short
+                || value instanceof Byte) {
+            return value(value.longValue());
+        }
+
+        String string = value.toString();
+        if (string.equals("-Infinity") || string.equals("Infinity") || string.equals("NaN")) {
+            throw new IllegalArgumentException("Numeric values must be finite, but was " + value);
+        }
+        beforeValue();
+        ascii(string);
+        return this;
+    }
+
+    /**
+     * Returns the number of bytes written so far, including any already flushed to the sink.
+     */
+    public long size() {
+        return mFlushed + mCount;
+    }
+
+    /**
+     * Returns a copy of the buffered bytes.
+     */
+    @NonNull
+    public byte[] toByteArray() {
+        byte[] result = new byte[mCount];
+        System.arraycopy(mBuffer, 0, result, 0, mCount);
+        return result;
+    }
+
+    /**
+     * Decodes the buffered bytes into a string.
+     */
+    @Override
+    public String toString() {
+        return new String(mBuffer, 0, mCount, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (mSink != null) {
+            flushBuffer();
+            mSink.flush();
+        }
+    }
+
+    @Override
+    public long bytesWritten() {
+        return size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (mStackSize > 1 || (mStackSize == 1 && mStack[0] != NONEMPTY_DOCUMENT)) {
+            throw new IOException("Incomplete document");
+        }
+        mStackSize = 0;
+        mStack[0] = CLOSED;
+        if (mSink != null) {
+            flushBuffer();
+            mSink.close();
+        }
+    }
+
+    /**
+     * Writes {@code value} as a quoted string. Runs of ASCII that need no escaping are copied
+     * straight into the buffer, with the escape table only consulted per character.
+     */
+    private void string(@NonNull String value) throws IOException {
+        int length = value.length();
+        ensure(2 + Math.min(length, CHUNK_SIZE));
+        mBuffer[mCount++] = '"';
+
+        int i = 0;
+        while (i < length) {
+            int chunkEnd = Math.min(length, i + CHUNK_SIZE);
+            ensure((chunkEnd - i) * MAX_BYTES_PER_CHAR + 1);
+            byte[] buffer = mBuffer;
+            int count = mCount;
+            while (i < chunkEnd) {
+                char c = value.charAt(i);
+
+                // Copy the run of safe ASCII characters
+                while (c < 0x80 && ESCAPES[c] == 0) {
+                    buffer[count++] = (byte) c;
+                    if (++i == chunkEnd) {
+                        break;
+                    }
+                    c = value.charAt(i);
+                }
+                if (i == chunkEnd) {
+                    break;
+                }
+
+                if (c < 0x80) {
+                    byte escape = ESCAPES[c];
+                    buffer[count++] = '\\';
+                    buffer[count++] = escape;
+                    if (escape == 'u') {
+                        buffer[count++] = '0';
+                        buffer[count++] = '0';
+                        buffer[count++] = HEX[c >> 4];
+                        buffer[count++] = HEX[c & 0xf];
+                    }
+                } else if (c < 0x800) {
+                    buffer[count++] = (byte) (0xc0 | (c >> 6));
+                    buffer[count++] = (byte) (0x80 | (c & 0x3f));
+                } else if (c == '\u2028' || c == '\u2029') {
+                    // Valid JSON, but these break JavaScript string literals
+                    buffer[count++] = '\\';
+                    buffer[count++] = 'u';
+                    buffer[count++] = '2';
+                    buffer[count++] = '0';
+                    buffer[count++] = '2';
+                    buffer[count++] = HEX[c & 0xf];
+                } else if (Character.isSurrogate(c)) {
+                    char low = i + 1 < length ? value.charAt(i + 1) : 0;
+                    if (Character.isHighSurrogate(c) && Character.isLowSurrogate(low)) {
+                        int codePoint = Character.toCodePoint(c, low);
+                        buffer[count++] = (byte) (0xf0 | (codePoint >> 18));
+                        buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                        buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                        buffer[count++] = (byte) (0x80 | (codePoint & 0x3f));
+                        i++;
+                    } else {
+                        // Unpaired surrogate
+                        buffer[count++] = '?';
+                    }
+                } else {
+                    buffer[count++] = (byte) (0xe0 | (c >> 12));
+                    buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                    buffer[count++] = (byte) (0x80 | (c & 0x3f));
+                }
+                i++;
+            }
+            mCount = count;
+        }
+
+        ensure(1);
+        mBuffer[mCount++] = '"';
+    }
+
+    /**
+     * Writes a string known to be plain ASCII, such as a number or literal.
+     */
+    private void ascii(@NonNull String value) throws IOException {
+        int length = value.length();
+        ensure(length);
+        byte[] buffer = mBuffer;
+        int count = mCount;
+        for (int i = 0; i < length; i++) {
+            buffer[count++] = (byte) value.charAt(i);
+        }
+        mCount = count;
+    }
+
+    private void writeByte(char c) throws IOException {
+        ensure(1);
+        mBuffer[mCount++] = (byte) c;
+    }
+
+    private JsonWriter close(int empty, int nonempty, char closeBracket) throws IOException {
+        int context = peek();
+        if (context != nonempty && context != empty) {
+            throw new IllegalStateException("Nesting problem");
+        }
+        mStackSize--;
+        writeByte(closeBracket);
+        return this;
+    }
+
+    private void push(int newTop) {
+        if (mStackSize == mStack.length) {
+            int[] newStack = new int[mStackSize * 2];
+            System.arraycopy(mStack, 0, newStack, 0, mStackSize);
+            mStack = newStack;
+        }
+        mStack[mStackSize++] = newTop;
+    }
+
+    private int peek() {
+        if (mStackSize == 0) {
+            throw new IllegalStateException("JsonWriter is closed");
+        }
+        return mStack[mStackSize - 1];
+    }
+
+    /**
+     * Inserts any necessary separators and prepares to write a property name.
+     */
+    private void beforeName() throws IOException {
+        int context = peek();
+        if (context == NONEMPTY_OBJECT) {
+            writeByte(',');
+        } else if (context != EMPTY_OBJECT) {
+            throw new IllegalStateException("Nesting problem");
+        }
+        mStack[mStackSize - 1] = DANGLING_NAME;
+    }
+
+    /**
+     * Inserts any necessary separators and prepares to write a literal value, string, array or object.
+     */
+    private void beforeValue() throws IOException {
+        switch (peek()) {
+            case NONEMPTY_DOCUMENT:
+                throw new IllegalStateException("JSON must have only one top-level value");
+            case EMPTY_DOCUMENT:
+                mStack[mStackSize - 1] = NONEMPTY_DOCUMENT;
+                break;
+            case EMPTY_ARRAY:
+                mStack[mStackSize - 1] = NONEMPTY_ARRAY;
+                break;
+            case NONEMPTY_ARRAY:
+                writeByte(',');
+                break;
+            case DANGLING_NAME:
+                mStack[mStackSize - 1] = NONEMPTY_OBJECT;
+                break;
+            default:
+                throw new IllegalStateException("Nesting problem");
+        }
+    }
+
+    /**
+     * Makes room for at least {@code needed} more bytes, flushing to the sink if there is one and
+     * growing the buffer otherwise.
+     */
+    private void ensure(int needed) throws IOException {
+        if (mCount + needed <= mBuffer.length) {
+            return;
+        }
+        if (mSink != null) {
+            flushBuffer();
+            if (needed <= mBuffer.length) {
+                return;
+            }
+        }
+        byte[] grown = new byte[Math.max(mBuffer.length * 2, mCount + needed)];
+        System.arraycopy(mBuffer, 0, grown, 0, mCount);
+        mBuffer = grown;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (mSink != null && mCount > 0) {
+            mSink.write(mBuffer, 0, mCount);
+            mFlushed += mCount;
+            mCount = 0;
+        }
+    }
+}
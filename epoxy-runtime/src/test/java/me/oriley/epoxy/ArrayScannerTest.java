@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package me.oriley.epoxy;
+
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public final class ArrayScannerTest {
+
+    private final Epoxy mEpoxy = new Epoxy();
+
+    @Test
+    public void findsElementBounds() throws IOException {
+        assertEquals(Collections.<String>emptyList(), elements("[]"));
+        assertEquals(Collections.<String>emptyList(), elements(" \n[ \t]\r\n"));
+        assertEquals(Arrays.asList("1"), elements("[1]"));
+        assertEquals(Arrays.asList("1", "true", "null", "-2.5e3"), elements("[1,true , null,\n-2.5e3 ]"));
+        assertEquals(Arrays.asList("{\"a\":[1,2],\"b\":{}}", "[[],[{}]]"),
+                elements("[{\"a\":[1,2],\"b\":{}},[[],[{}]]]"));
+    }
+
+    @Test
+    public void structureInsideStringsIsIgnored() throws IOException {
+        assertEquals(Arrays.asList("\"],[{\"", "\"\\\"]\"", "\"\\\\\"", "{\"}\":\",\"}"),
+                elements("[\"],[{\", \"\\\"]\", \"\\\\\", {\"}\":\",\"}]"));
+        assertEquals(Arrays.asList("\"\u00e9\ud83d\ude00\""), elements("[\"\u00e9\ud83d\ude00\"]"));
+    }
+
+    @Test
+    public void boundsAreRelativeToTheBuffer() throws IOException {
+        byte[] buffer = "xx[1, 22]yy".getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(new int[]{3, 4, 6, 8}, ArrayScanner.scan(buffer, 2, 7));
+    }
+
+    @Test
+    public void malformedArraysFail() throws IOException {
+        for (String json : new String[]{"", "  ", "{}", "1", "[1,]", "[,1]", "[1,,2]", "[1}]", "[1] 2", "[]]"}) {
+            try {
+                fail(json + " scanned as " + elements(json));
+            } catch (MalformedJsonException | EOFException expected) {
+            }
+        }
+        for (String json : new String[]{"[", "[1", "[1,", "[\"a", "[\"a\\\"]", "[[1]"}) {
+            try {
+                fail(json + " scanned as " + elements(json));
+            } catch (EOFException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void mismatchedBracketsAreLeftToTheDecoder() throws IOException {
+        assertEquals(Arrays.asList("{]", "2"), elements("[{], 2]"));
+        try {
+            mEpoxy.fromJsonArrayParallel(utf8("[{], 2]"), Object.class, new ForkJoinPool(1));
+            fail();
+        } catch (JsonException e) {
+            assertTrue(e.getCause() instanceof MalformedJsonException);
+        }
+    }
+
+    @Test
+    public void decodesInParallelInDocumentOrder() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int count : new int[]{0, 1, 63, 64, 65, 1000, 10000}) {
+                List<Integer> expected = new ArrayList<>(count);
+                StringBuilder json = new StringBuilder("[");
+                for (int i = 0; i < count; i++) {
+                    Integer value = i % 10 == 3 ? null : i * 7 - 1000;
+                    expected.add(value);
+                    json.append(i == 0 ? "" : ",\n ").append(value);
+                }
+                json.append("]");
+                List<Integer> actual = mEpoxy.fromJsonArrayParallel(utf8(json.toString()), Integer.class, pool);
+                assertEquals(expected, actual);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void decodesNestedElementsInParallel() throws IOException {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 500; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"id\":").append(i).append(",\"tags\":[\"a,]\",\"}\"]}");
+        }
+        json.append("]");
+        List<Map<String, Object>> maps = mEpoxy.fromJsonArrayParallel(utf8(json.toString()),
+                Types.newParameterizedType(Map.class, String.class, Object.class), new ForkJoinPool(2));
+        assertEquals(500, maps.size());
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i, ((Number) maps.get(i).get("id")).intValue());
+            assertEquals(Arrays.asList("a,]", "}"), maps.get(i).get("tags"));
+        }
+        // The result is a regular mutable list
+        maps.add(null);
+    }
+
+    @Test
+    public void elementFailuresNameTheirIndex() throws IOException {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 300; i++) {
+            json.append(i == 0 ? "" : ",").append(i == 250 ? "\"x\"" : i == 270 ? "1 2" : String.valueOf(i));
+        }
+        json.append("]");
+        try {
+            mEpoxy.fromJsonArrayParallel(utf8(json.toString()), Integer.class, new ForkJoinPool(1));
+            fail();
+        } catch (JsonException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Failed to decode element 250 at offset "));
+        }
+        try {
+            mEpoxy.fromJsonArrayParallel(utf8("[1, 2 3]"), Integer.class, new ForkJoinPool(1));
+            fail();
+        } catch (JsonException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Failed to decode element 1 at offset 4"));
+            assertTrue(e.getCause() instanceof MalformedJsonException);
+        }
+    }
+
+    private static List<String> elements(String json) throws IOException {
+        byte[] bytes = utf8(json);
+        int[] bounds = ArrayScanner.scan(bytes, 0, bytes.length);
+        List<String> elements = new ArrayList<>();
+        for (int i = 0; i < bounds.length; i += 2) {
+            elements.add(new String(bytes, bounds[i], bounds[i + 1] - bounds[i], StandardCharsets.UTF_8));
+        }
+        return elements;
+    }
+
+    private static byte[] utf8(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.oriley.epoxy;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public final class CborReaderTest {
+
+    @Test
+    public void integers() throws IOException {
+        assertEquals(0, reader(0x00).nextInt());
+        assertEquals(23, reader(0x17).nextInt());
+        assertEquals(24, reader(0x18, 0x18).nextInt());
+        assertEquals(1000, reader(0x19, 0x03, 0xe8).nextInt());
+        assertEquals(-1000, reader(0x39, 0x03, 0xe7).nextInt());
+        assertEquals(1000000000000L, reader(0x1b, 0, 0, 0, 0xe8, 0xd4, 0xa5, 0x10, 0x00).nextLong());
+        assertEquals(Long.MIN_VALUE, reader(0x3b, 0x7f, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff).nextLong());
+        assertEquals(Long.MAX_VALUE, reader(0x1b, 0x7f, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff).nextLong());
+        assertEquals("1000", reader(0x19, 0x03, 0xe8).nextString());
+        assertEquals(-1.0, reader(0x20).nextDouble(), 0);
+    }
+
+    @Test
+    public void integersOutOfRange() throws IOException {
+        int[] twoToThe63 = {0x1b, 0x80, 0, 0, 0, 0, 0, 0, 0};
+        int[] maxUnsigned = {0x1b, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff};
+        int[] minNegative = {0x3b, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff};
+        int[] belowLongMin = {0x3b, 0x80, 0, 0, 0, 0, 0, 0, 0};
+
+        assertEquals("9223372036854775808", reader(twoToThe63).nextString());
+        assertEquals("18446744073709551615", reader(maxUnsigned).nextString());
+        assertEquals("-18446744073709551616", reader(minNegative).nextString());
+        assertEquals("-9223372036854775809", reader(belowLongMin).nextString());
+        assertEquals(1.8446744073709552e19, reader(maxUnsigned).nextDouble(), 0);
+        assertEquals(-1.8446744073709552e19, reader(minNegative).nextDouble(), 0);
+        for (int[] bytes : new int[][]{twoToThe63, maxUnsigned, minNegative, belowLongMin}) {
+            try {
+                fail("Read " + reader(bytes).nextLong());
+            } catch (NumberFormatException expected) {
+            }
+        }
+        try {
+            fail("Read " + reader(0x1a, 0x80, 0x00, 0x00, 0x00).nextInt());
+        } catch (NumberFormatException expected) {
+        }
+        try {
+            fail("Read " + reader(0x3a, 0x80, 0x00, 0x00, 0x00).nextInt());
+        } catch (NumberFormatException expected) {
+        }
+        assertEquals(Integer.MIN_VALUE, reader(0x3a, 0x7f, 0xff, 0xff, 0xff).nextInt());
+    }
+
+    @Test
+    public void halfFloats() throws IOException {
+        assertEquals(0.0, reader(0xf9, 0x00, 0x00).nextDouble(), 0);
+        assertEquals(Double.doubleToLongBits(-0.0), Double.doubleToLongBits(reader(0xf9, 0x80, 0x00).nextDouble()));
+        assertEquals(1.0, reader(0xf9, 0x3c, 0x00).nextDouble(), 0);
+        assertEquals(1.5, reader(0xf9, 0x3e, 0x00).nextDouble(), 0);
+        assertEquals(65504.0, reader(0xf9, 0x7b, 0xff).nextDouble(), 0);
+        assertEquals(-4.0, reader(0xf9, 0xc4, 0x00).nextDouble(), 0);
+        // Smallest normal, and smallest and largest subnormal
+        assertEquals(6.103515625e-5, reader(0xf9, 0x04, 0x00).nextDouble(), 0);
+        assertEquals(5.960464477539063e-8, reader(0xf9, 0x00, 0x01).nextDouble(), 0);
+        assertEquals(6.097555160522461e-5, reader(0xf9, 0x03, 0xff).nextDouble(), 0);
+        assertEquals(1, reader(0xf9, 0x3c, 0x00).nextInt());
+        assertEquals("1.5", reader(0xf9, 0x3e, 0x00).nextString());
+    }
+
+    @Test
+    public void singleAndDoubleFloats() throws IOException {
+        assertEquals(100000.0, reader(0xfa, 0x47, 0xc3, 0x50, 0x00).nextDouble(), 0);
+        assertEquals(3.4028234663852886e38, reader(0xfa, 0x7f, 0x7f, 0xff, 0xff).nextDouble(), 0);
+        assertEquals(1.1, reader(0xfb, 0x3f, 0xf1, 0x99, 0x99, 0x99, 0x99, 0x99, 0x9a).nextDouble(), 0);
+        assertEquals(-4.1, reader(0xfb, 0xc0, 0x10, 0x66, 0x66, 0x66, 0x66, 0x66, 0x66).nextDouble(), 0);
+        assertEquals(100000, reader(0xfa, 0x47, 0xc3, 0x50, 0x00).nextLong());
+        try {
+            fail("Read " + reader(0xfb, 0x3f, 0xf1, 0x99, 0x99, 0x99, 0x99, 0x99, 0x9a).nextLong());
+        } catch (NumberFormatException expected) {
+        }
+        // 2^63, which is just out of range
+        try {
+            fail("Read " + reader(0xfa, 0x5f, 0x00, 0x00, 0x00).nextLong());
+        } catch (NumberFormatException expected) {
+        }
+    }
+
+    @Test
+    public void definiteLengthContainers() throws IOException {
+        // [1, [2, 3], {"a": "b"}, [], {}]
+        CborReader reader = reader(0x85, 0x01, 0x82, 0x02, 0x03, 0xa1, 0x61, 'a', 0x61, 'b', 0x80, 0xa0);
+        reader.beginArray();
+        assertEquals(1, reader.nextInt());
+        reader.beginArray();
+        assertEquals(2, reader.nextInt());
+        assertEquals(3, reader.nextInt());
+        assertFalse(reader.hasNext());
+        reader.endArray();
+        reader.beginObject();
+        assertEquals(JsonToken.NAME, reader.peek());
+        assertEquals("a", reader.nextName());
+        assertEquals("b", reader.nextString());
+        reader.endObject();
+        reader.beginArray();
+        reader.endArray();
+        reader.beginObject();
+        reader.endObject();
+        assertFalse(reader.hasNext());
+        reader.endArray();
+        assertEquals(JsonToken.END_DOCUMENT, reader.peek());
+    }
+
+    @Test
+    public void indefiniteLengthContainers() throws IOException {
+        // [_ 1, [2, 3], [_ 4, 5]] from RFC 7049 appendix A
+        CborReader reader = reader(0x9f, 0x01, 0x82, 0x02, 0x03, 0x9f, 0x04, 0x05, 0xff, 0xff);
+        reader.beginArray();
+        assertEquals(1, reader.nextInt());
+        reader.beginArray();
+        assertEquals(2, reader.nextInt());
+        assertEquals(3, reader.nextInt());
+        reader.endArray();
+        reader.beginArray();
+        assertEquals(4, reader.nextInt());
+        assertEquals(5, reader.nextInt());
+        assertFalse(reader.hasNext());
+        reader.endArray();
+        assertFalse(reader.hasNext());
+        reader.endArray();
+        assertEquals(JsonToken.END_DOCUMENT, reader.peek());
+
+        // {_ "Fun": true, "Amt": -2}
+        reader = reader(0xbf, 0x63, 'F', 'u', 'n', 0xf5, 0x63, 'A', 'm', 't', 0x21, 0xff);
+        reader.beginObject();
+        assertEquals("Fun", reader.nextName());
+        assertTrue(reader.nextBoolean());
+        assertEquals("Amt", reader.nextName());
+        assertEquals(-2, reader.nextInt());
+        assertFalse(reader.hasNext());
+        reader.endObject();
+    }
+
+    @Test
+    public void indefiniteLengthText() throws IOException {
+        // (_ "strea", "ming")
+        int[] streaming = {0x7f, 0x65, 's', 't', 'r', 'e', 'a', 0x64, 'm', 'i', 'n', 'g', 0xff};
+        assertEquals("streaming", reader(streaming).nextString());
+        assertEquals(0, reader(streaming).selectString(JsonOptions.of("streaming")));
+
+        // {_ (_ "ke", "y"): (_ )}
+        CborReader reader = reader(0xbf, 0x7f, 0x62, 'k', 'e', 0x61, 'y', 0xff, 0x7f, 0xff, 0xff);
+        reader.beginObject();
+        assertEquals("key", reader.nextName());
+        assertEquals("", reader.nextString());
+        reader.endObject();
+
+        // A chunk that is not a text string
+        try {
+            reader(0x7f, 0x01, 0xff).nextString();
+            fail();
+        } catch (MalformedJsonException expected) {
+        }
+    }
+
+    @Test
+    public void skipsValuesAndTags() throws IOException {
+        // [_ {"a": [1, 2.5]}, (_ "x"), 1(1363896240), 3]
+        CborReader reader = reader(0x9f, 0xa1, 0x61, 'a', 0x82, 0x01, 0xf9, 0x41, 0x00, 0x7f, 0x61, 'x', 0xff,
+                0xc1, 0x1a, 0x51, 0x4b, 0x67, 0xb0, 0x03, 0xff);
+        reader.beginArray();
+        reader.skipValue();
+        reader.skipValue();
+        assertEquals(1363896240, reader.nextInt());
+        assertEquals(3, reader.nextInt());
+        reader.endArray();
+    }
+
+    @Test
+    public void malformedInputFails() throws IOException {
+        // A break outside of an indefinite length container, a byte string, and a non-text key
+        for (int[] bytes : new int[][]{{0xff}, {0x41, 0x00}, {0xa1, 0x01, 0x02}}) {
+            try {
+                JsonReader reader = reader(bytes);
+                reader.peek();
+                reader.beginObject();
+                reader.peek();
+                fail();
+            } catch (MalformedJsonException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void truncatedInputFails() throws IOException {
+        for (int[] bytes : new int[][]{{0x19, 0x01}, {0x63, 'a', 'b'}, {0x82, 0x01}, {0xfb, 0x3f, 0xf1}}) {
+            byte[] encoded = bytes(bytes);
+            try {
+                CborReader reader = new CborReader(new ByteArrayInputStream(encoded));
+                if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    reader.beginArray();
+                    reader.nextInt();
+                    reader.nextInt();
+                } else {
+                    reader.nextString();
+                }
+                fail();
+            } catch (EOFException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void nonFiniteFloatsAreRejected() throws IOException {
+        // Half, single and double precision positive infinity, negative infinity and NaN
+        assertNonFiniteRejected(0xf9, 0x7c, 0x00);
+        assertNonFiniteRejected(0xf9, 0xfc, 0x00);
+        assertNonFiniteRejected(0xf9, 0x7e, 0x00);
+        assertNonFiniteRejected(0xfa, 0x7f, 0x80, 0x00, 0x00);
+        assertNonFiniteRejected(0xfa, 0xff, 0x80, 0x00, 0x00);
+        assertNonFiniteRejected(0xfa, 0x7f, 0xc0, 0x00, 0x00);
+        assertNonFiniteRejected(0xfb, 0x7f, 0xf0, 0, 0, 0, 0, 0, 0);
+        assertNonFiniteRejected(0xfb, 0xff, 0xf0, 0, 0, 0, 0, 0, 0);
+        assertNonFiniteRejected(0xfb, 0x7f, 0xf8, 0, 0, 0, 0, 0, 0);
+    }
+
+    @Test
+    public void nonFiniteTextIsRejected() throws IOException {
+        // "NaN"
+        assertNonFiniteRejected(0x63, 'N', 'a', 'N');
+    }
+
+    private static void assertNonFiniteRejected(int... bytes) throws IOException {
+        try {
+            fail("Read " + reader(bytes).nextDouble());
+        } catch (MalformedJsonException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().startsWith("JSON forbids NaN and infinities"));
+        }
+    }
+
+    private static CborReader reader(int... bytes) {
+        return new CborReader(bytes(bytes));
+    }
+
+    static byte[] bytes(int... bytes) {
+        byte[] encoded = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            encoded[i] = (byte) bytes[i];
+        }
+        return encoded;
+    }
+}
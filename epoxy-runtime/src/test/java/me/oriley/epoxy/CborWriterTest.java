@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package me.oriley.epoxy;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import static me.oriley.epoxy.CborReaderTest.bytes;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public final class CborWriterTest {
+
+    @Test
+    public void integersUseTheShortestEncoding() throws IOException {
+        assertArrayEquals(bytes(0x00), write(0));
+        assertArrayEquals(bytes(0x17), write(23));
+        assertArrayEquals(bytes(0x18, 0x18), write(24));
+        assertArrayEquals(bytes(0x19, 0x03, 0xe8), write(1000));
+        assertArrayEquals(bytes(0x1a, 0x00, 0x0f, 0x42, 0x40), write(1000000));
+        assertArrayEquals(bytes(0x1b, 0, 0, 0, 0xe8, 0xd4, 0xa5, 0x10, 0x00), write(1000000000000L));
+        assertArrayEquals(bytes(0x20), write(-1));
+        assertArrayEquals(bytes(0x39, 0x03, 0xe7), write(-1000));
+        assertArrayEquals(bytes(0x1b, 0x7f, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff), write(Long.MAX_VALUE));
+        assertArrayEquals(bytes(0x3b, 0x7f, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff), write(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void doublesNarrowWhenExact() throws IOException {
+        assertArrayEquals(bytes(0xfa, 0x3f, 0xc0, 0x00, 0x00), write(1.5));
+        assertArrayEquals(bytes(0xfa, 0x47, 0xc3, 0x50, 0x00), write(100000.0));
+        assertArrayEquals(bytes(0xfb, 0x3f, 0xf1, 0x99, 0x99, 0x99, 0x99, 0x99, 0x9a), write(1.1));
+        assertArrayEquals(bytes(0xfa, 0x3f, 0x8c, 0xcc, 0xcd), write(1.1f));
+        for (double value : new double[]{0.0, -0.0, 1.1, Math.PI, Double.MIN_VALUE, Double.MAX_VALUE, 1e300, -1e-300}) {
+            CborReader reader = new CborReader(write(value));
+            assertEquals(Double.doubleToLongBits(value), Double.doubleToLongBits(reader.nextDouble()));
+        }
+    }
+
+    @Test
+    public void nonFiniteNumbersAreRejected() throws IOException {
+        CborWriter writer = new CborWriter();
+        for (double value : new double[]{Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY}) {
+            try {
+                writer.value(value);
+                fail();
+            } catch (IllegalArgumentException expected) {
+            }
+            try {
+                writer.value((float) value);
+                fail();
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void bigNumbersAreExact() throws IOException {
+        BigInteger twoToThe64 = BigInteger.ONE.shiftLeft(64);
+        assertArrayEquals(bytes(0x19, 0x03, 0xe8), write(new BigDecimal("1000")));
+        assertEquals(0.5, new CborReader(write(new BigDecimal("0.5"))).nextDouble(), 0);
+        assertEquals(0x1p64, new CborReader(write(twoToThe64)).nextDouble(), 0);
+        assertEquals("18446744073709551617", new CborReader(write(twoToThe64.add(BigInteger.ONE))).nextString());
+        assertEquals("0.1", new CborReader(write(new BigDecimal("0.1"))).nextString());
+    }
+
+    @Test
+    public void containersAreIndefiniteLength() throws IOException {
+        CborWriter writer = new CborWriter();
+        writer.beginObject();
+        writer.name("a").beginArray().value(1).value("b").nullValue().endArray();
+        writer.name("c").beginObject().endObject();
+        writer.endObject();
+        assertArrayEquals(bytes(0xbf, 0x61, 'a', 0x9f, 0x01, 0x61, 'b', 0xf6, 0xff, 0x61, 'c', 0xbf, 0xff, 0xff),
+                writer.toByteArray());
+    }
+
+    @Test
+    public void roundTripsThroughReader() throws IOException {
+        String longText = repeat("\u00e9t\u00e9 \ud83d\ude00 ", 2000);
+        JsonOptions options = JsonOptions.of("first", "second");
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        CborWriter writer = new CborWriter(sink);
+        writer.beginArray();
+        writer.beginObject();
+        writer.name(options, 0).value(true);
+        writer.name(options, 1).value(options, 1);
+        writer.name("long").value(longText);
+        writer.name("numbers").beginArray().value(-1).value(4294967296L).value(0.25f).value(2.5e-10).endArray();
+        writer.endObject();
+        writer.value(false);
+        writer.endArray();
+        writer.close();
+        assertEquals(sink.size(), writer.bytesWritten());
+
+        CborReader reader = new CborReader(sink.toByteArray());
+        reader.beginArray();
+        reader.beginObject();
+        assertEquals(0, reader.selectName(options));
+        assertTrue(reader.nextBoolean());
+        assertEquals("second", reader.nextName());
+        assertEquals(1, reader.selectString(options));
+        assertEquals("long", reader.nextName());
+        assertEquals(longText, reader.nextString());
+        assertEquals("numbers", reader.nextName());
+        reader.beginArray();
+        assertEquals(-1, reader.nextInt());
+        assertEquals(4294967296L, reader.nextLong());
+        assertEquals(0.25, reader.nextDouble(), 0);
+        assertEquals(2.5e-10, reader.nextDouble(), 0);
+        reader.endArray();
+        assertFalse(reader.hasNext());
+        reader.endObject();
+        assertFalse(reader.nextBoolean());
+        reader.endArray();
+        assertEquals(JsonToken.END_DOCUMENT, reader.peek());
+    }
+
+    @Test
+    public void nestingProblemsAreRejected() throws IOException {
+        try {
+            new CborWriter().beginArray().endObject();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            new CborWriter().beginObject().value(1);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            new CborWriter().value(1).value(2);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            new CborWriter().beginArray().close();
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+
+    private static byte[] write(long value) throws IOException {
+        CborWriter writer = new CborWriter();
+        writer.value(value);
+        return writer.toByteArray();
+    }
+
+    private static byte[] write(double value) throws IOException {
+        CborWriter writer = new CborWriter();
+        writer.value(value);
+        return writer.toByteArray();
+    }
+
+    private static byte[] write(float value) throws IOException {
+        CborWriter writer = new CborWriter();
+        writer.value(value);
+        return writer.toByteArray();
+    }
+
+    private static byte[] write(Number value) throws IOException {
+        CborWriter writer = new CborWriter();
+        writer.value(value);
+        return writer.toByteArray();
+    }
+
+    private static String repeat(String text, int count) {
+        StringBuilder builder = new StringBuilder(text.length() * count);
+        for (int i = 0; i < count; i++) {
+            builder.append(text);
+        }
+        return builder.toString();
+    }
+}
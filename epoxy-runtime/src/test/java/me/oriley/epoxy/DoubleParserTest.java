@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.oriley.epoxy;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public final class DoubleParserTest {
+
+    @Test
+    public void edgeCases() {
+        String[] numbers = {
+                "0", "-0", "0.0", "-0.0e5", "1", "-1", "0.1", "0.3", "1e22", "1e23", "9007199254740993",
+                "9007199254740992", "123456789012345678", "1234567890123456789", "12345678901234567890",
+                "9223372036854775807", "9223372036854775808", "9223372036854775808.0", "18446744073709551615",
+                "18446744073709551616", "184467440737095516160", "0.000000000000000000001",
+                "1.7976931348623157e308", "1.7976931348623158e308", "1.7976931348623159e308", "1e309", "2e308",
+                "4.9e-324", "2.4703282292062327e-324", "2.4703282292062328e-324", "1e-324", "2.2250738585072014e-308",
+                "2.2250738585072011e-308", "1e-400", "1e99999", "1e-99999", "7.2057594037927933e16",
+                "2.2250738585072012e-308", "9007199254740993.0000000000000000001", "1.00000000000000011102230246251565",
+                "1.000000000000000111022302462515654042363166809082031250000000001",
+        };
+        for (String number : numbers) {
+            assertParses(number);
+        }
+    }
+
+    @Test
+    public void powersOfTen() {
+        for (int e = -350; e <= 320; e++) {
+            assertParses("1e" + e);
+            assertParses("9.999999999999999e" + e);
+            assertParses("123456789012345678e" + e);
+        }
+    }
+
+    @Test
+    public void randomDoubles() {
+        Random random = new Random(42);
+        for (int i = 0; i < 200000; i++) {
+            double value = Double.longBitsToDouble(random.nextLong());
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                continue;
+            }
+            assertParses(Double.toString(value));
+            assertParses(new BigDecimal(value).round(new java.math.MathContext(1 + random.nextInt(19)))
+                    .toString());
+        }
+    }
+
+    @Test
+    public void randomDecimals() {
+        Random random = new Random(7);
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 200000; i++) {
+            builder.setLength(0);
+            int digits = 1 + random.nextInt(25);
+            for (int d = 0; d < digits; d++) {
+                builder.append((char) ('0' + random.nextInt(10)));
+            }
+            if (random.nextBoolean()) {
+                builder.insert(1 + random.nextInt(digits), '.');
+                if (builder.charAt(builder.length() - 1) == '.') {
+                    builder.append('0');
+                }
+            }
+            if (random.nextBoolean()) {
+                builder.append('e').append(random.nextInt(700) - 350);
+            }
+            assertParses(builder.toString());
+        }
+    }
+
+    /**
+     * Asserts that {@code number} converts exactly as {@link Double#parseDouble} does, or is left to it.
+     */
+    private static void assertParses(String number) {
+        byte[] bytes = ("[" + number + "]").getBytes(StandardCharsets.US_ASCII);
+        double parsed = DoubleParser.parse(bytes, 1, number.length());
+        if (!Double.isNaN(parsed)) {
+            assertEquals(number, Double.doubleToLongBits(Double.parseDouble(number)), Double.doubleToLongBits(parsed));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public final class EpoxyMetricsTest {
+
+    private static final Type LIST_OF_INTEGERS = Types.newParameterizedType(List.class, Integer.class);
+
+    private final EpoxyMetrics mMetrics = new EpoxyMetrics();
+    private final Epoxy mEpoxy = new Epoxy.Builder().listener(mMetrics).build();
+
+    @Test
+    public void countsLookups() {
+        assertNull(mMetrics.forType(LIST_OF_INTEGERS));
+        JsonAdapter<?> adapter = mEpoxy.typeAdapter(LIST_OF_INTEGERS);
+        mEpoxy.typeAdapter(LIST_OF_INTEGERS);
+        mEpoxy.typeAdapter(LIST_OF_INTEGERS);
+
+        EpoxyMetrics.TypeMetrics list = mMetrics.forType(LIST_OF_INTEGERS);
+        assertEquals(1, list.cacheMisses());
+        assertEquals(2, list.cacheHits());
+        assertTrue(list.creationNanos() > 0);
+        // Created along with the list adapter
+        assertEquals(1, mMetrics.forType(Integer.class).cacheMisses());
+        assertTrue(adapter instanceof InstrumentedJsonAdapter);
+        assertTrue(mMetrics.all().keySet().containsAll(Arrays.asList(LIST_OF_INTEGERS, Integer.class)));
+    }
+
+    @Test
+    public void timesAndMeasuresReads() throws IOException {
+        byte[] json = "[1, 22, 333]".getBytes(StandardCharsets.UTF_8);
+        List<Integer> list = mEpoxy.fromJson(new Utf8JsonReader(json), LIST_OF_INTEGERS);
+        assertEquals(Arrays.asList(1, 22, 333), list);
+
+        EpoxyMetrics.TypeMetrics lists = mMetrics.forType(LIST_OF_INTEGERS);
+        assertEquals(1, lists.decodeLatency().count());
+        assertEquals(json.length, lists.bytesRead());
+        assertTrue(lists.decodeLatency().totalNanos() > 0);
+
+        // Nested values are reported too. Each number was already consumed by the list adapter's
+        // hasNext(), which peeks it, so as documented its bytes count towards the list instead
+        EpoxyMetrics.TypeMetrics integers = mMetrics.forType(Integer.class);
+        assertEquals(3, integers.decodeLatency().count());
+        assertEquals(0, integers.bytesRead());
+        assertTrue(lists.decodeLatency().totalNanos() >= integers.decodeLatency().totalNanos());
+        assertTrue(integers.decodeLatency().percentileNanos(1) >= integers.decodeLatency().meanNanos());
+    }
+
+    @Test
+    public void timesAndMeasuresWrites() throws IOException {
+        Utf8JsonWriter writer = new Utf8JsonWriter();
+        mEpoxy.toJson(writer, new ArrayList<>(Arrays.asList(1, 22, 333)), LIST_OF_INTEGERS);
+        assertEquals("[1,22,333]", new String(writer.toByteArray(), StandardCharsets.UTF_8));
+
+        EpoxyMetrics.TypeMetrics lists = mMetrics.forType(LIST_OF_INTEGERS);
+        assertEquals(1, lists.encodeLatency().count());
+        assertEquals(10, lists.bytesWritten());
+        assertEquals(0, lists.decodeLatency().count());
+        EpoxyMetrics.TypeMetrics integers = mMetrics.forType(Integer.class);
+        assertEquals(3, integers.encodeLatency().count());
+        // Including the separators written before each value
+        assertEquals(8, integers.bytesWritten());
+    }
+
+    @Test
+    public void readersWithoutByteCountsReportNone() throws IOException {
+        final List<Long> bytes = new ArrayList<>();
+        EpoxyListener listener = new EpoxyListener() {
+            @Override
+            public void decoded(@NonNull Type type, long count, long nanos) {
+                bytes.add(count);
+            }
+        };
+        Epoxy epoxy = new Epoxy.Builder().listener(listener).build();
+        JsonReader reader = new ForwardingJsonReader(new Utf8JsonReader("7".getBytes(StandardCharsets.UTF_8))) {
+            @Override
+            public long bytesRead() {
+                return -1;
+            }
+        };
+        assertEquals(Integer.valueOf(7), epoxy.fromJson(reader, Integer.class));
+        assertEquals(Arrays.asList(-1L), bytes);
+        assertEquals(0, new EpoxyMetrics().toString().indexOf("EpoxyMetrics"));
+    }
+}
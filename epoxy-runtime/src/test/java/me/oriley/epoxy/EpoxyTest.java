@@ -0,0 +1,513 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public final class EpoxyTest {
+
+    /**
+     * Run by the hand written adapters below as they are created, so that tests can hold builds open.
+     */
+    private static volatile Runnable sLeafHook;
+    private static volatile Runnable sParentHook;
+    private static volatile Runnable sPingHook;
+    private static volatile Runnable sPongHook;
+
+    private static final AtomicInteger sLeafCount = new AtomicInteger();
+    private static final AtomicInteger sParentCount = new AtomicInteger();
+
+    @After
+    public void resetHooks() {
+        sLeafHook = null;
+        sParentHook = null;
+        sPingHook = null;
+        sPongHook = null;
+        sLeafCount.set(0);
+        sParentCount.set(0);
+    }
+
+    @Test
+    public void buildsEachAdapterOnceUnderContention() throws Exception {
+        for (int round = 0; round < 50; round++) {
+            resetHooks();
+            Epoxy epoxy = new Epoxy();
+            final CyclicBarrier barrier = new CyclicBarrier(8);
+            Lookup[] lookups = new Lookup[8];
+            for (int i = 0; i < lookups.length; i++) {
+                lookups[i] = new Lookup(epoxy, i % 2 == 0 ? Parent.class : Leaf.class, barrier);
+                lookups[i].start();
+            }
+            for (int i = 0; i < lookups.length; i++) {
+                assertSame(epoxy.typeAdapter(i % 2 == 0 ? Parent.class : Leaf.class), lookups[i].result());
+            }
+            assertEquals(1, sParentCount.get());
+            assertEquals(1, sLeafCount.get());
+            // Nested adapters are the cached ones rather than placeholders
+            Parent$$JsonAdapter parent = (Parent$$JsonAdapter) epoxy.<Parent>typeAdapter(Parent.class);
+            assertSame(epoxy.typeAdapter(Leaf.class), parent.mLeafAdapter);
+            assertEquals(5, epoxy.fromJson("{\"leaf\":{\"value\":5}}", Parent.class).leaf.value);
+        }
+    }
+
+    @Test
+    public void failuresReachWaitingThreads() throws Exception {
+        Epoxy epoxy = new Epoxy();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final IllegalStateException boom = new IllegalStateException("boom");
+        sLeafHook = new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                await(release);
+                throw boom;
+            }
+        };
+
+        Lookup leaf = new Lookup(epoxy, Leaf.class);
+        leaf.start();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        Lookup waiting = new Lookup(epoxy, Leaf.class);
+        Lookup parent = new Lookup(epoxy, Parent.class);
+        waiting.start();
+        parent.start();
+        awaitBlocked(waiting);
+        awaitBlocked(parent);
+        release.countDown();
+
+        assertSame(boom, leaf.failure());
+        assertSame(boom, waiting.failure().getCause());
+        // The outer build fails its own lookup rather than caching an adapter that can never work
+        assertTrue(parent.failure() instanceof IllegalArgumentException);
+        assertSame(boom, parent.failure().getCause());
+
+        // Nothing is cached for failed builds, so they are retried
+        sLeafHook = null;
+        Parent$$JsonAdapter adapter = (Parent$$JsonAdapter) epoxy.<Parent>typeAdapter(Parent.class);
+        assertSame(epoxy.typeAdapter(Leaf.class), adapter.mLeafAdapter);
+        assertEquals(2, sLeafCount.get());
+    }
+
+    @Test
+    public void cyclesAcrossThreadsDoNotDeadlock() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            Epoxy epoxy = new Epoxy();
+            // Both builds are underway before either looks up the other
+            final CyclicBarrier barrier = new CyclicBarrier(2);
+            Runnable hook = new Runnable() {
+                @Override
+                public void run() {
+                    await(barrier);
+                }
+            };
+            sPingHook = hook;
+            sPongHook = hook;
+
+            Lookup ping = new Lookup(epoxy, Ping.class);
+            Lookup pong = new Lookup(epoxy, Pong.class);
+            ping.start();
+            pong.start();
+            Ping$$JsonAdapter pingAdapter = (Ping$$JsonAdapter) ping.result();
+            Pong$$JsonAdapter pongAdapter = (Pong$$JsonAdapter) pong.result();
+
+            // Exactly one side had to keep a placeholder, which delegates once the other side completes
+            boolean pingDirect = !pingAdapter.mPongAdapter.toString().startsWith("PendingAdapter");
+            boolean pongDirect = !pongAdapter.mPingAdapter.toString().startsWith("PendingAdapter");
+            assertTrue(pingAdapter.mPongAdapter + ", " + pongAdapter.mPingAdapter, pingDirect != pongDirect);
+            Ping decoded = epoxy.fromJson("{\"pong\":{\"ping\":{\"pong\":{}}}}", Ping.class);
+            assertNull(decoded.pong.ping.pong.ping);
+            assertEquals("{\"pong\":{\"ping\":null}}", epoxy.toJson(new Ping(new Pong()), Ping.class));
+        }
+    }
+
+    @Test
+    public void missingAdaptersAreRemembered() throws Exception {
+        Epoxy epoxy = new Epoxy();
+        for (int i = 0; i < 2; i++) {
+            try {
+                epoxy.typeAdapter(Unsupported.class);
+                fail();
+            } catch (IllegalArgumentException e) {
+                assertEquals("No JsonAdapter for " + Unsupported.class, e.getMessage());
+            }
+        }
+        assertTrue(field(epoxy, "mUnsupportedTypes", Collection.class).contains(Unsupported.class));
+        assertTrue(field(epoxy, "mMissingGeneratedAdapters", Collection.class).contains(Unsupported.class));
+        assertFalse(field(epoxy, "mAdapterCache", Map.class).containsKey(Unsupported.class));
+
+        // Core types have no generated adapter either, which is only looked for once
+        assertSame(epoxy.typeAdapter(Integer.class), epoxy.typeAdapter(Integer.class));
+        assertTrue(field(epoxy, "mMissingGeneratedAdapters", Collection.class).contains(Integer.class));
+        assertFalse(field(epoxy, "mUnsupportedTypes", Collection.class).contains(Integer.class));
+    }
+
+    @Test
+    public void waitsForAdaptersBuiltByOtherThreads() throws Exception {
+        final Epoxy epoxy = new Epoxy();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        sLeafHook = new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                await(release);
+            }
+        };
+
+        Lookup leaf = new Lookup(epoxy, Leaf.class);
+        leaf.start();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        // Parent refers to Leaf, but not the other way around, so there is nothing to deadlock on
+        Lookup parent = new Lookup(epoxy, Parent.class);
+        parent.start();
+        awaitBlocked(parent);
+        release.countDown();
+        JsonAdapter<?> parentAdapter = parent.result();
+
+        assertSame(leaf.result(), epoxy.typeAdapter(Leaf.class));
+        assertSame(parentAdapter, epoxy.typeAdapter(Parent.class));
+        assertSame(leaf.result(), ((Parent$$JsonAdapter) parentAdapter).mLeafAdapter);
+        Parent decoded = epoxy.fromJson("{\"leaf\":{\"value\":3}}", Parent.class);
+        assertEquals(3, decoded.leaf.value);
+    }
+
+    @Test
+    public void readsFilesLargerThanTheBuffer() throws IOException {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 1000; i++) {
+            json.append(i > 0 ? "," : "").append("\"value ").append(i).append('"');
+        }
+        Path file = Files.createTempFile("epoxy", ".json");
+        try {
+            Files.write(file, json.append(']').toString().getBytes(StandardCharsets.UTF_8));
+            Epoxy epoxy = new Epoxy();
+            List<String> values = epoxy.fromJson(file, Types.newParameterizedType(List.class, String.class));
+            assertEquals(1000, values.size());
+            assertEquals("value 999", values.get(999));
+
+            try (JsonReader reader = epoxy.newJsonReader(file)) {
+                reader.beginArray();
+                for (int i = 0; i < 1000; i++) {
+                    assertEquals("value " + i, reader.nextString());
+                }
+                reader.endArray();
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Waits until {@code thread} is blocked, or has finished because it never blocked.
+     */
+    private static void awaitBlocked(@NonNull Thread thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (thread.getState() != Thread.State.WAITING && thread.getState() != Thread.State.TERMINATED) {
+            assertTrue("Timed out waiting for " + thread, System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private static void await(@NonNull CountDownLatch latch) {
+        try {
+            if (!latch.await(10, TimeUnit.SECONDS)) {
+                throw new AssertionError("Timed out");
+            }
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void await(@NonNull CyclicBarrier barrier) {
+        try {
+            barrier.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @NonNull
+    private static <T> T field(@NonNull Epoxy epoxy, @NonNull String name, @NonNull Class<T> type)
+            throws ReflectiveOperationException {
+        Field field = Epoxy.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return type.cast(field.get(epoxy));
+    }
+
+    private static void run(@Nullable Runnable hook) {
+        if (hook != null) {
+            hook.run();
+        }
+    }
+
+    /**
+     * Looks up the adapter for a type on its own thread.
+     */
+    private static final class Lookup extends Thread {
+
+        @NonNull
+        private final Epoxy mEpoxy;
+
+        @NonNull
+        private final Class<?> mType;
+
+        @Nullable
+        private final CyclicBarrier mBarrier;
+
+        @Nullable
+        private volatile JsonAdapter<?> mResult;
+
+        @Nullable
+        private volatile Throwable mFailure;
+
+
+        Lookup(@NonNull Epoxy epoxy, @NonNull Class<?> type) {
+            this(epoxy, type, null);
+        }
+
+        Lookup(@NonNull Epoxy epoxy, @NonNull Class<?> type, @Nullable CyclicBarrier barrier) {
+            super("Lookup " + type.getSimpleName());
+            mEpoxy = epoxy;
+            mType = type;
+            mBarrier = barrier;
+        }
+
+
+        @Override
+        public void run() {
+            try {
+                if (mBarrier != null) {
+                    await(mBarrier);
+                }
+                mResult = mEpoxy.typeAdapter(mType);
+            } catch (Throwable t) {
+                mFailure = t;
+            }
+        }
+
+        @Nullable
+        Throwable failure() throws InterruptedException {
+            join(TimeUnit.SECONDS.toMillis(10));
+            assertTrue("Deadlocked: " + this, !isAlive());
+            return mFailure;
+        }
+
+        @NonNull
+        JsonAdapter<?> result() throws InterruptedException {
+            Throwable failure = failure();
+            if (failure != null) {
+                throw new AssertionError(failure);
+            }
+            JsonAdapter<?> result = mResult;
+            assertNotNull(result);
+            return result;
+        }
+    }
+
+    public static final class Leaf {
+        public int value;
+    }
+
+    public static final class Parent {
+        public Leaf leaf;
+    }
+
+    /**
+     * Stands in for a generated adapter, found by name in the same way.
+     */
+    public static final class Leaf$$JsonAdapter extends JsonAdapter<Leaf> {
+
+        public Leaf$$JsonAdapter(@NonNull Epoxy epoxy) {
+            sLeafCount.incrementAndGet();
+            EpoxyTest.run(sLeafHook);
+        }
+
+        @Override
+        public Leaf fromJson(@NonNull Epoxy epoxy, @NonNull JsonReader reader) throws IOException {
+            Leaf leaf = new Leaf();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("value")) {
+                    leaf.value = reader.nextInt();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return leaf;
+        }
+
+        @Override
+        public void toJson(@NonNull Epoxy epoxy, @NonNull JsonWriter writer, @Nullable Leaf value) throws IOException {
+            //noinspection ConstantConditions
+            writer.beginObject().name("value").value(value.value).endObject();
+        }
+    }
+
+    public static final class Parent$$JsonAdapter extends JsonAdapter<Parent> {
+
+        @NonNull
+        final JsonAdapter<Leaf> mLeafAdapter;
+
+        public Parent$$JsonAdapter(@NonNull Epoxy epoxy) {
+            sParentCount.incrementAndGet();
+            EpoxyTest.run(sParentHook);
+            mLeafAdapter = epoxy.typeAdapter(Leaf.class);
+        }
+
+        @Override
+        public Parent fromJson(@NonNull Epoxy epoxy, @NonNull JsonReader reader) throws IOException {
+            Parent parent = new Parent();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("leaf")) {
+                    parent.leaf = mLeafAdapter.fromJson(epoxy, reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return parent;
+        }
+
+        @Override
+        public void toJson(@NonNull Epoxy epoxy, @NonNull JsonWriter writer, @Nullable Parent value)
+                throws IOException {
+            writer.beginObject().name("leaf");
+            //noinspection ConstantConditions
+            mLeafAdapter.toJson(epoxy, writer, value.leaf);
+            writer.endObject();
+        }
+    }
+
+    /**
+     * Has neither a generated adapter nor a core one.
+     */
+    public static final class Unsupported {
+    }
+
+    public static final class Ping {
+        public Pong pong;
+
+        public Ping() {
+        }
+
+        Ping(@Nullable Pong pong) {
+            this.pong = pong;
+        }
+    }
+
+    public static final class Pong {
+        public Ping ping;
+    }
+
+    public static final class Ping$$JsonAdapter extends JsonAdapter<Ping> {
+
+        @NonNull
+        final JsonAdapter<Pong> mPongAdapter;
+
+        public Ping$$JsonAdapter(@NonNull Epoxy epoxy) {
+            EpoxyTest.run(sPingHook);
+            mPongAdapter = epoxy.<Pong>typeAdapter(Pong.class).nullSafe();
+        }
+
+        @Override
+        public Ping fromJson(@NonNull Epoxy epoxy, @NonNull JsonReader reader) throws IOException {
+            Ping ping = new Ping();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("pong")) {
+                    ping.pong = mPongAdapter.fromJson(epoxy, reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return ping;
+        }
+
+        @Override
+        public void toJson(@NonNull Epoxy epoxy, @NonNull JsonWriter writer, @Nullable Ping value) throws IOException {
+            writer.beginObject().name("pong");
+            //noinspection ConstantConditions
+            mPongAdapter.toJson(epoxy, writer, value.pong);
+            writer.endObject();
+        }
+    }
+
+    public static final class Pong$$JsonAdapter extends JsonAdapter<Pong> {
+
+        @NonNull
+        final JsonAdapter<Ping> mPingAdapter;
+
+        public Pong$$JsonAdapter(@NonNull Epoxy epoxy) {
+            EpoxyTest.run(sPongHook);
+            mPingAdapter = epoxy.<Ping>typeAdapter(Ping.class).nullSafe();
+        }
+
+        @Override
+        public Pong fromJson(@NonNull Epoxy epoxy, @NonNull JsonReader reader) throws IOException {
+            Pong pong = new Pong();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("ping")) {
+                    pong.ping = mPingAdapter.fromJson(epoxy, reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return pong;
+        }
+
+        @Override
+        public void toJson(@NonNull Epoxy epoxy, @NonNull JsonWriter writer, @Nullable Pong value) throws IOException {
+            writer.beginObject().name("ping");
+            //noinspection ConstantConditions
+            mPingAdapter.toJson(epoxy, writer, value.ping);
+            writer.endObject();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package me.oriley.epoxy;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public final class FieldSetTest {
+
+    @Test
+    public void masksWantedNames() {
+        JsonOptions options = JsonOptions.of("a", "b", "c", "d");
+        FieldSet fields = FieldSet.of("d", "b", "missing");
+        assertArrayEquals(new long[]{0b1010}, fields.mask(options));
+        assertSame(fields.mask(options), fields.mask(options));
+        assertArrayEquals(new long[]{0b0001}, fields.mask(JsonOptions.of("b", "x")));
+        assertArrayEquals(new long[]{0}, FieldSet.of().mask(options));
+        assertArrayEquals(new long[]{0}, fields.mask(JsonOptions.of()));
+    }
+
+    @Test
+    public void masksSpanSeveralWords() {
+        String[] names = new String[130];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = "f" + i;
+        }
+        long[] mask = FieldSet.of("f0", "f63", "f64", "f129").mask(JsonOptions.of(names));
+        assertArrayEquals(new long[]{1L | 1L << 63, 1L, 1L << 1}, mask);
+        for (int i = 0; i < names.length; i++) {
+            assertEquals(i == 0 || i == 63 || i == 64 || i == 129, FieldSet.contains(mask, i));
+        }
+
+        assertFalse(FieldSet.clear(mask, 0));
+        assertFalse(FieldSet.clear(mask, 129));
+        assertFalse(FieldSet.clear(mask, 129));
+        assertFalse(FieldSet.clear(mask, 63));
+        assertTrue(FieldSet.clear(mask, 64));
+        assertArrayEquals(new long[3], mask);
+    }
+
+    @Test
+    public void namesAreCopied() {
+        String[] names = {"a"};
+        FieldSet fields = FieldSet.of(names);
+        names[0] = "b";
+        assertArrayEquals(new long[]{1}, fields.mask(JsonOptions.of("a", "b")));
+    }
+
+    @Test
+    public void stopEarly() {
+        FieldSet fields = FieldSet.of("a", "b");
+        assertFalse(fields.stopsEarly());
+        FieldSet early = fields.stopEarly();
+        assertTrue(early.stopsEarly());
+        assertFalse(fields.stopsEarly());
+        assertSame(early, early.stopEarly());
+        assertArrayEquals(fields.mask(JsonOptions.of("b")), early.mask(JsonOptions.of("b")));
+        assertEquals("FieldSet[a, b]", fields.toString());
+        assertEquals("FieldSet[a, b].stopEarly()", early.toString());
+    }
+}
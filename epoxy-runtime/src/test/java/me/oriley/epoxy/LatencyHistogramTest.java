@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package me.oriley.epoxy;
+
+import org.junit.Test;
+
+import java.util.concurrent.CyclicBarrier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public final class LatencyHistogramTest {
+
+    @Test
+    public void empty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.meanNanos());
+        assertEquals(0, histogram.percentileNanos(0.99));
+    }
+
+    @Test
+    public void percentilesAreBucketUpperBounds() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos : new long[]{0, 1, 2, 3, 1000}) {
+            histogram.record(nanos);
+        }
+        assertEquals(5, histogram.count());
+        assertEquals(1006, histogram.totalNanos());
+        assertEquals(201, histogram.meanNanos());
+        assertEquals(0, histogram.percentileNanos(0));
+        assertEquals(0, histogram.percentileNanos(0.2));
+        assertEquals(1, histogram.percentileNanos(0.4));
+        assertEquals(3, histogram.percentileNanos(0.6));
+        assertEquals(3, histogram.percentileNanos(0.8));
+        assertEquals(1023, histogram.percentileNanos(0.81));
+        assertEquals(1023, histogram.percentileNanos(1));
+        assertEquals("count=5, mean=201ns, p50<=3ns, p99<=1023ns", histogram.toString());
+    }
+
+    @Test
+    public void extremes() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertEquals(0, histogram.percentileNanos(1));
+        assertEquals(0, histogram.totalNanos());
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.percentileNanos(1));
+        for (double quantile : new double[]{-0.1, 1.1, Double.NaN}) {
+            try {
+                histogram.percentileNanos(quantile);
+                fail("Accepted " + quantile);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void concurrentSamplesAreAllCounted() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final CyclicBarrier barrier = new CyclicBarrier(8);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            final int nanos = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        barrier.await();
+                    } catch (Exception e) {
+                        throw new AssertionError(e);
+                    }
+                    for (int i = 0; i < 100000; i++) {
+                        histogram.record(nanos);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(800000, histogram.count());
+        assertEquals(100000L * (0 + 1 + 2 + 3 + 4 + 5 + 6 + 7), histogram.totalNanos());
+        assertEquals(7, histogram.percentileNanos(1));
+        assertEquals(0, histogram.percentileNanos(0.125));
+    }
+}
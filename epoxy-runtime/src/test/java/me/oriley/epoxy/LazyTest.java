@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static me.oriley.epoxy.Utf8JsonReaderTest.trickle;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public final class LazyTest {
+
+    private static final Type LAZY_MAP = Types.newParameterizedType(Lazy.class,
+            Types.newParameterizedType(Map.class, String.class, Object.class));
+    private static final Type LIST_OF_LAZY_MAPS = Types.newParameterizedType(List.class, LAZY_MAP);
+
+    private final Epoxy mEpoxy = new Epoxy();
+
+    @Test
+    public void decodesOnFirstAccess() throws IOException {
+        Lazy<Map<String, Object>> lazy = mEpoxy.fromJson(new Utf8JsonReader(trickle("{\"a\": [1, \"b\"]}")), LAZY_MAP);
+        assertFalse(lazy.isDecoded());
+        assertEquals("Lazy({\"a\": [1, \"b\"]})", lazy.toString());
+        assertEquals("{\"a\": [1, \"b\"]}", new String(lazy.raw(), StandardCharsets.UTF_8));
+
+        Map<String, Object> value = lazy.get();
+        assertTrue(lazy.isDecoded());
+        assertNull(lazy.raw());
+        assertEquals(Arrays.<Object>asList(1.0, "b"), value.get("a"));
+        assertSame(value, lazy.get());
+        assertEquals("Lazy[{a=[1.0, b]}]", lazy.toString());
+    }
+
+    @Test
+    public void untouchedValuesAreWrittenByteForByte() throws IOException {
+        // Spacing, number forms and escapes that re-encoding would all change
+        String first = "{ \"n\" : 1.50e0, \"s\" : \"\\u00e9\\/\", \"l\" : { } }";
+        String second = "{\"big\":123456789012345678901234567890}";
+        String json = "[" + first + ",\n  " + second + ", null]";
+        List<Lazy<Map<String, Object>>> values = mEpoxy.fromJson(new Utf8JsonReader(trickle(json)), LIST_OF_LAZY_MAPS);
+        assertNull(values.get(2));
+
+        assertEquals("[" + first + "," + second + ",null]", write(values, LIST_OF_LAZY_MAPS));
+
+        // Once decoded a value may have changed, so it is written through its adapter
+        values.get(0).get().put("added", true);
+        assertEquals("[{\"n\":1.5,\"s\":\"\u00e9/\",\"l\":{},\"added\":true}," + second + ",null]",
+                write(values, LIST_OF_LAZY_MAPS));
+    }
+
+    @Test
+    public void valuesBuiltInCodeAreWrittenThroughTheAdapter() throws IOException {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("k", "v");
+        Lazy<Map<String, Object>> lazy = Lazy.of(map);
+        assertTrue(lazy.isDecoded());
+        assertSame(map, lazy.get());
+        assertEquals("{\"k\":\"v\"}", write(lazy, LAZY_MAP));
+    }
+
+    @Test
+    public void cborIsTranscodedToJson() throws IOException {
+        CborWriter writer = new CborWriter();
+        writer.beginObject().name("a").beginArray().value(1).value(2.5).value("x").nullValue().endArray()
+                .name("b").value(true).endObject();
+        Lazy<Map<String, Object>> lazy = mEpoxy.fromJson(new CborReader(writer.toByteArray()), LAZY_MAP);
+
+        assertEquals("{\"a\":[1,2.5,\"x\",null],\"b\":true}", new String(lazy.raw(), StandardCharsets.UTF_8));
+        assertEquals(Arrays.asList(1.0, 2.5, "x", null), lazy.get().get("a"));
+        assertEquals(true, lazy.get().get("b"));
+    }
+
+    @Test
+    public void decodesOnceUnderConcurrentAccess() throws Exception {
+        final AtomicInteger decodes = new AtomicInteger();
+        JsonAdapter<List<Object>> adapter = new JsonAdapter<List<Object>>() {
+            @Override
+            public List<Object> fromJson(@NonNull Epoxy epoxy, @NonNull JsonReader reader) throws IOException {
+                decodes.incrementAndGet();
+                reader.skipValue();
+                return Collections.<Object>singletonList(decodes.get());
+            }
+
+            @Override
+            public void toJson(@NonNull Epoxy epoxy, @NonNull JsonWriter writer, @Nullable List<Object> value) {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        for (int round = 0; round < 100; round++) {
+            decodes.set(0);
+            final Lazy<List<Object>> lazy = new Lazy<>(mEpoxy, adapter, "[1]".getBytes(StandardCharsets.UTF_8));
+            final CyclicBarrier barrier = new CyclicBarrier(8);
+            final Object[] results = new Object[8];
+            Thread[] threads = new Thread[results.length];
+            for (int i = 0; i < threads.length; i++) {
+                final int index = i;
+                threads[i] = new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            barrier.await();
+                        } catch (Exception e) {
+                            throw new AssertionError(e);
+                        }
+                        results[index] = lazy.get();
+                    }
+                };
+                threads[i].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertEquals(1, decodes.get());
+            for (Object result : results) {
+                assertSame(results[0], result);
+            }
+        }
+    }
+
+    @Test
+    public void failuresSurfaceOnAccess() throws IOException {
+        Type lazyInt = Types.newParameterizedType(Lazy.class, Integer.class);
+        Lazy<Integer> lazy = mEpoxy.fromJson(new Utf8JsonReader("\"x\"".getBytes(StandardCharsets.UTF_8)), lazyInt);
+        for (int i = 0; i < 2; i++) {
+            try {
+                lazy.get();
+                fail();
+            } catch (JsonException | NumberFormatException expected) {
+            }
+            assertFalse(lazy.isDecoded());
+        }
+        // The raw value is still written as it was read
+        assertEquals("\"x\"", write(lazy, lazyInt));
+    }
+
+    @NonNull
+    private String write(@Nullable Object value, @NonNull Type type) throws IOException {
+        Utf8JsonWriter writer = new Utf8JsonWriter();
+        mEpoxy.toJson(writer, value, type);
+        return new String(writer.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.oriley.epoxy;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public final class NdjsonReaderTest {
+
+    private final Epoxy mEpoxy = new Epoxy();
+
+    @Test
+    public void recordsAndTheirOffsets() {
+        NdjsonReader<Integer> reader = reader("1\n22\n\n  333\nnull\n");
+        assertEquals(-1, reader.offset());
+        assertEquals(Integer.valueOf(1), reader.next());
+        assertEquals(0, reader.offset());
+        assertEquals(Integer.valueOf(22), reader.next());
+        assertEquals(2, reader.offset());
+        assertEquals(Integer.valueOf(333), reader.next());
+        assertEquals(8, reader.offset());
+        assertNull(reader.next());
+        assertEquals(12, reader.offset());
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    public void badRecordReportsItsOwnOffset() {
+        NdjsonReader<Integer> reader = reader("1\n\"two\"\n3\n");
+        assertEquals(Integer.valueOf(1), reader.next());
+        try {
+            reader.next();
+            fail();
+        } catch (JsonException expected) {
+            assertEquals(2, reader.offset());
+        }
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    public void failureBetweenRecordsReportsWhereItFailed() {
+        InputStream source = new SequenceInputStream(
+                new ByteArrayInputStream("1\n22\n  ".getBytes(StandardCharsets.UTF_8)), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Connection reset");
+            }
+        });
+        NdjsonReader<Integer> reader = mEpoxy.newNdjsonReader(source, Integer.class);
+        assertEquals(Integer.valueOf(1), reader.next());
+        assertEquals(Integer.valueOf(22), reader.next());
+        assertEquals(2, reader.offset());
+        try {
+            reader.hasNext();
+            fail();
+        } catch (JsonException expected) {
+            assertTrue(expected.getCause() instanceof IOException);
+            assertEquals(7, reader.offset());
+        }
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    public void writtenRecordsReadBack() throws IOException {
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        long written = mEpoxy.toNdjson(sink, Arrays.asList("a", "b\nc", "d"), String.class);
+        assertEquals(sink.size(), written);
+        assertEquals("\"a\"\n\"b\\nc\"\n\"d\"\n", sink.toString("UTF-8"));
+
+        NdjsonReader<String> reader = mEpoxy.newNdjsonReader(new ByteArrayInputStream(sink.toByteArray()),
+                String.class);
+        assertEquals("a", reader.next());
+        assertEquals("b\nc", reader.next());
+        assertEquals("d", reader.next());
+        assertEquals(11, reader.offset());
+        assertFalse(reader.hasNext());
+    }
+
+    private NdjsonReader<Integer> reader(String ndjson) {
+        return mEpoxy.newNdjsonReader(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)),
+                Integer.class);
+    }
+}
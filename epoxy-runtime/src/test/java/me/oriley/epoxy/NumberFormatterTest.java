@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package me.oriley.epoxy;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class NumberFormatterTest {
+
+    @Test
+    public void doubleLayout() {
+        assertEquals("0.0", formatDouble(0.0));
+        assertEquals("-0.0", formatDouble(-0.0));
+        assertEquals("1.0", formatDouble(1.0));
+        assertEquals("-1.5", formatDouble(-1.5));
+        assertEquals("0.1", formatDouble(0.1));
+        assertEquals("0.001", formatDouble(0.001));
+        assertEquals("9.99E-4", formatDouble(0.000999));
+        assertEquals("1234567.0", formatDouble(1234567.0));
+        assertEquals("9999999.0", formatDouble(9999999.0));
+        assertEquals("1.0E7", formatDouble(1.0e7));
+        assertEquals("1.2345678E7", formatDouble(12345678.0));
+        assertEquals("1.0E22", formatDouble(1.0e22));
+        assertEquals("1.0E23", formatDouble(1.0e23));
+        assertEquals("9.007199254740994E15", formatDouble(9007199254740994.0));
+        assertEquals("1.7976931348623157E308", formatDouble(Double.MAX_VALUE));
+        assertEquals("2.2250738585072014E-308", formatDouble(Double.MIN_NORMAL));
+        assertEquals("-2.2250738585072014E-308", formatDouble(-Double.MIN_NORMAL));
+        assertEquals("4.9E-324", formatDouble(Double.MIN_VALUE));
+        assertEquals("9.9E-324", formatDouble(2 * Double.MIN_VALUE));
+        assertEquals("2.0E-323", formatDouble(4 * Double.MIN_VALUE));
+    }
+
+    @Test
+    public void floatLayout() {
+        assertEquals("0.0", formatFloat(0.0f));
+        assertEquals("-0.0", formatFloat(-0.0f));
+        assertEquals("0.1", formatFloat(0.1f));
+        assertEquals("1.1", formatFloat(1.1f));
+        assertEquals("1234567.0", formatFloat(1234567.0f));
+        assertEquals("1.6777216E7", formatFloat(16777216.0f));
+        assertEquals("1.0E10", formatFloat(1.0e10f));
+        assertEquals("3.4028235E38", formatFloat(Float.MAX_VALUE));
+        // Older JDKs write 1.17549435E-38, which is a digit longer than needed
+        assertEquals("1.1754944E-38", formatFloat(Float.MIN_NORMAL));
+        assertEquals("1.4E-45", formatFloat(Float.MIN_VALUE));
+        assertEquals("-1.4E-45", formatFloat(-Float.MIN_VALUE));
+    }
+
+    @Test
+    public void longs() {
+        long[] values = {0, 1, -1, 9, 10, 99, 100, 12345, -12345, Integer.MAX_VALUE, Integer.MIN_VALUE,
+                999999999999999999L, 1000000000000000000L, Long.MAX_VALUE, Long.MIN_VALUE, Long.MIN_VALUE + 1};
+        for (long value : values) {
+            assertEquals(Long.toString(value), formatLong(value));
+        }
+        Random random = new Random(7);
+        for (int i = 0; i < 100000; i++) {
+            long value = random.nextLong() >> random.nextInt(64);
+            assertEquals(Long.toString(value), formatLong(value));
+        }
+    }
+
+    @Test
+    public void randomDoublesAreShortestAndRoundTrip() {
+        Random random = new Random(1);
+        for (int i = 0; i < 200000; i++) {
+            double value = Double.longBitsToDouble(random.nextLong());
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                continue;
+            }
+            checkDouble(value);
+        }
+        for (int e = -324; e <= 308; e++) {
+            checkDouble(Double.parseDouble("1e" + e));
+            if (e < 308) {
+                checkDouble(Double.parseDouble("9.87654321e" + e));
+            }
+        }
+        for (long t = 1; t < 1000; t++) {
+            checkDouble(Double.longBitsToDouble(t));
+        }
+    }
+
+    @Test
+    public void randomFloatsAreShortestAndRoundTrip() {
+        Random random = new Random(2);
+        for (int i = 0; i < 200000; i++) {
+            float value = Float.intBitsToFloat(random.nextInt());
+            if (Float.isNaN(value) || Float.isInfinite(value)) {
+                continue;
+            }
+            checkFloat(value);
+        }
+        for (int e = -45; e <= 38; e++) {
+            checkFloat(Float.parseFloat("1e" + e));
+            if (e < 38) {
+                checkFloat(Float.parseFloat("9.87654e" + e));
+            }
+        }
+        for (int t = 1; t < 1000; t++) {
+            checkFloat(Float.intBitsToFloat(t));
+        }
+    }
+
+    @Test
+    public void writesAtAnOffset() {
+        byte[] buffer = new byte[4 + NumberFormatter.MAX_DOUBLE_LENGTH];
+        buffer[3] = 'x';
+        int end = NumberFormatter.writeDouble(-Double.MIN_NORMAL, buffer, 4);
+        assertEquals(buffer.length, end);
+        assertEquals("x-2.2250738585072014E-308", new String(buffer, 3, end - 3, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Checks that {@code value} is written in the layout of {@link Double#toString(double)}, reads back
+     * exactly, and has no digit string one shorter that would also read back. As in that layout, values
+     * with a single digit shortest form may be written with two, such as {@code 4.9E-324}.
+     */
+    private static void checkDouble(double value) {
+        String text = formatDouble(value);
+        assertTrue(text.length() <= NumberFormatter.MAX_DOUBLE_LENGTH);
+        assertEquals(text, Double.doubleToLongBits(value), Double.doubleToLongBits(Double.parseDouble(text)));
+        checkLayout(text, Math.abs(value));
+        int digits = significantDigits(text);
+        if (digits > 2) {
+            BigDecimal exact = new BigDecimal(value);
+            for (RoundingMode mode : new RoundingMode[]{RoundingMode.FLOOR, RoundingMode.CEILING}) {
+                BigDecimal shorter = exact.round(new MathContext(digits - 1, mode));
+                assertNotEquals(text + " is not shortest", value, shorter.doubleValue(), 0);
+            }
+        }
+    }
+
+    private static void checkFloat(float value) {
+        String text = formatFloat(value);
+        assertTrue(text.length() <= NumberFormatter.MAX_FLOAT_LENGTH);
+        assertEquals(text, Float.floatToIntBits(value), Float.floatToIntBits(Float.parseFloat(text)));
+        checkLayout(text, Math.abs(value));
+        int digits = significantDigits(text);
+        if (digits > 2) {
+            BigDecimal exact = new BigDecimal(value);
+            for (RoundingMode mode : new RoundingMode[]{RoundingMode.FLOOR, RoundingMode.CEILING}) {
+                BigDecimal shorter = exact.round(new MathContext(digits - 1, mode));
+                assertNotEquals(text + " is not shortest", value, shorter.floatValue(), 0);
+            }
+        }
+    }
+
+    private static void checkLayout(String text, double magnitude) {
+        boolean plain = magnitude == 0 || magnitude >= 1e-3 && magnitude < 1e7;
+        assertEquals(text, plain, text.indexOf('E') == -1);
+        String mantissa = plain ? text : text.substring(0, text.indexOf('E'));
+        int point = mantissa.indexOf('.');
+        assertTrue(text, point > 0 && point < mantissa.length() - 1);
+        if (!plain) {
+            assertEquals(text, mantissa.startsWith("-") ? 2 : 1, point);
+        }
+    }
+
+    /**
+     * Returns the number of digits from the first nonzero one to the last nonzero one.
+     */
+    private static int significantDigits(String text) {
+        int e = text.indexOf('E');
+        String digits = (e == -1 ? text : text.substring(0, e)).replace("-", "").replace(".", "");
+        digits = digits.replaceAll("^0+", "").replaceAll("0+$", "");
+        return Math.max(digits.length(), 1);
+    }
+
+    private static String formatDouble(double value) {
+        byte[] buffer = new byte[NumberFormatter.MAX_DOUBLE_LENGTH];
+        int end = NumberFormatter.writeDouble(value, buffer, 0);
+        return new String(buffer, 0, end, StandardCharsets.US_ASCII);
+    }
+
+    private static String formatFloat(float value) {
+        byte[] buffer = new byte[NumberFormatter.MAX_FLOAT_LENGTH];
+        int end = NumberFormatter.writeFloat(value, buffer, 0);
+        return new String(buffer, 0, end, StandardCharsets.US_ASCII);
+    }
+
+    private static String formatLong(long value) {
+        byte[] buffer = new byte[NumberFormatter.MAX_LONG_LENGTH];
+        int end = NumberFormatter.writeLong(value, buffer, 0);
+        return new String(buffer, 0, end, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package me.oriley.epoxy;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public final class PrimitiveKeyMapTest {
+
+    @Test
+    public void intKeys() {
+        IntKeyMap<String> map = new IntKeyMap<>();
+        assertTrue(map.isEmpty());
+        assertNull(map.put(1, "a"));
+        assertNull(map.put(-1, "b"));
+        assertNull(map.put(Integer.MIN_VALUE, "c"));
+        assertNull(map.put(0, null));
+        assertEquals("a", map.put(1, "d"));
+        assertEquals(4, map.size());
+        assertEquals("d", map.get(1));
+        assertEquals("c", map.get(Integer.MIN_VALUE));
+        assertTrue(map.containsKey(0));
+        assertNull(map.get(0));
+        assertFalse(map.containsKey(2));
+        assertNull(map.get(2));
+        assertEquals("b", map.remove(-1));
+        assertNull(map.remove(-1));
+        assertEquals(Arrays.asList(1, Integer.MIN_VALUE, 0), new ArrayList<>(map.keySet()));
+        assertEquals(Arrays.asList("d", "c", null), new ArrayList<>(map.values()));
+    }
+
+    @Test
+    public void longKeys() {
+        LongKeyMap<String> map = new LongKeyMap<>();
+        assertNull(map.put(Long.MAX_VALUE, "a"));
+        assertNull(map.put(Long.MIN_VALUE, "b"));
+        assertNull(map.put(1L << 32, "c"));
+        assertEquals("a", map.get(Long.MAX_VALUE));
+        assertEquals("b", map.get(Long.MIN_VALUE));
+        assertEquals("c", map.get(1L << 32));
+        // Keys that share their low bits stay distinct
+        assertFalse(map.containsKey(0L));
+        assertEquals("c", map.remove(1L << 32));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    public void boxedKeysMustMatchTheKeyType() {
+        IntKeyMap<String> ints = new IntKeyMap<>();
+        ints.put(1, "a");
+        assertEquals("a", ints.get(Integer.valueOf(1)));
+        assertTrue(ints.containsKey(Integer.valueOf(1)));
+        assertNull(ints.get(Long.valueOf(1)));
+        assertFalse(ints.containsKey(Long.valueOf(1)));
+        assertFalse(ints.containsKey("1"));
+        assertFalse(ints.containsKey(null));
+        assertNull(ints.remove(Long.valueOf(1)));
+        assertEquals("a", ints.remove(Integer.valueOf(1)));
+
+        LongKeyMap<String> longs = new LongKeyMap<>();
+        longs.put(Long.valueOf(5), "b");
+        assertEquals("b", longs.get(5L));
+        assertNull(longs.get(Integer.valueOf(5)));
+
+        @SuppressWarnings("unchecked")
+        Map<Object, String> raw = (Map<Object, String>) (Map<?, String>) longs;
+        try {
+            raw.put(5, "c");
+            fail();
+        } catch (ClassCastException expected) {
+        }
+    }
+
+    @Test
+    public void behavesLikeLinkedHashMap() {
+        Random random = new Random(42);
+        LongKeyMap<Integer> map = new LongKeyMap<>();
+        Map<Long, Integer> expected = new LinkedHashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            // A small key range, so that puts, replacements and removals all happen often
+            long key = random.nextInt(500) - 250;
+            switch (random.nextInt(4)) {
+                case 0:
+                case 1:
+                    Integer value = i;
+                    assertEquals(expected.put(key, value), map.put(key, value));
+                    break;
+                case 2:
+                    assertEquals(expected.remove(key), map.remove(key));
+                    break;
+                default:
+                    assertEquals(expected.get(key), map.get(key));
+                    assertEquals(expected.containsKey(key), map.containsKey(key));
+                    break;
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+        assertEquals(expected.hashCode(), map.hashCode());
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(map.keySet()));
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(0L));
+        map.put(7L, Integer.valueOf(7));
+        assertEquals(Integer.valueOf(7), map.get(7L));
+    }
+
+    @Test
+    public void growsPastItsInitialCapacity() {
+        IntKeyMap<Integer> map = new IntKeyMap<>();
+        for (int i = 0; i < 10000; i++) {
+            map.put(i * 1024, Integer.valueOf(i));
+        }
+        assertEquals(10000, map.size());
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(Integer.valueOf(i), map.get(i * 1024));
+        }
+        assertFalse(map.containsKey(1));
+    }
+
+    @Test
+    public void entryIterator() {
+        IntKeyMap<String> map = new IntKeyMap<>();
+        for (int i = 0; i < 10; i++) {
+            map.put(i, "v" + i);
+        }
+        Iterator<Map.Entry<Integer, String>> iterator = map.entrySet().iterator();
+        try {
+            iterator.remove();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, String> entry = iterator.next();
+            if (entry.getKey() % 2 == 0) {
+                iterator.remove();
+            } else {
+                assertEquals("v" + entry.getKey(), entry.setValue("w" + entry.getKey()));
+            }
+        }
+        assertEquals(5, map.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i % 2 == 0 ? null : "w" + i, map.get(i));
+        }
+
+        iterator = map.entrySet().iterator();
+        iterator.next();
+        map.put(100, "x");
+        try {
+            iterator.next();
+            fail();
+        } catch (ConcurrentModificationException expected) {
+        }
+    }
+
+    @Test
+    public void decodedWhenEnabled() throws IOException {
+        Epoxy epoxy = new Epoxy.Builder().primitiveKeyMaps(true).build();
+        Type intMap = Types.newParameterizedType(Map.class, Integer.class, String.class);
+        Type longMap = Types.newParameterizedType(Map.class, Long.class, List.class);
+
+        Map<Integer, String> ints = epoxy.fromJson(reader("{\"3\":\"a\",\"-1\":null,\"2147483647\":\"b\"}"), intMap);
+        assertTrue(ints instanceof IntKeyMap);
+        assertEquals(Arrays.asList(3, -1, Integer.MAX_VALUE), new ArrayList<>(ints.keySet()));
+        assertEquals("b", ((IntKeyMap<String>) ints).get(Integer.MAX_VALUE));
+
+        Map<Long, List<?>> longs = epoxy.fromJson(reader("{\"-9223372036854775808\":[]}"), longMap);
+        assertTrue(longs instanceof LongKeyMap);
+        assertTrue(longs.containsKey(Long.MIN_VALUE));
+
+        Utf8JsonWriter writer = new Utf8JsonWriter();
+        epoxy.toJson(writer, ints, intMap);
+        assertEquals("{\"3\":\"a\",\"-1\":null,\"2147483647\":\"b\"}",
+                new String(writer.toByteArray(), StandardCharsets.UTF_8));
+
+        for (String json : new String[]{"{\"1\":\"a\",\"1\":\"b\"}", "{\"2147483648\":\"a\"}"}) {
+            try {
+                epoxy.fromJson(reader(json), intMap);
+                fail(json);
+            } catch (JsonException expected) {
+            }
+        }
+        assertTrue(new Epoxy().fromJson(reader("{\"1\":\"a\"}"), intMap) instanceof LinkedHashMap);
+    }
+
+    private static Utf8JsonReader reader(String json) {
+        return new Utf8JsonReader(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
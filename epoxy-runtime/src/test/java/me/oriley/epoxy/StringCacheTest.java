@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package me.oriley.epoxy;
+
+import android.support.annotation.NonNull;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static me.oriley.epoxy.CborReaderTest.bytes;
+import static me.oriley.epoxy.Utf8JsonReaderTest.trickle;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class StringCacheTest {
+
+    // All four share one hash code, so they compete for the same pair of slots
+    private static final String[] COLLIDING = { "AaAa", "AaBB", "BBAa", "BBBB" };
+
+
+    @Test
+    public void internReturnsTheFirstInstance() {
+        StringCache cache = new StringCache(16);
+        String first = copy("name");
+
+        assertSame(first, cache.intern(first));
+        assertSame(first, cache.intern(copy("name")));
+        assertSame(first, cache.intern("name"));
+    }
+
+    @Test
+    public void byteLookupsAgreeWithInternForAscii() {
+        StringCache cache = new StringCache(16);
+        String interned = cache.intern(copy("name"));
+        assertSame(interned, get(cache, "name"));
+
+        String fetched = get(cache, "value");
+        assertEquals("value", fetched);
+        assertSame(fetched, cache.intern(copy("value")));
+        assertSame(fetched, get(cache, "value"));
+    }
+
+    @Test
+    public void collidingStringsDisplaceIntoTheNextSlot() {
+        assertEquals(COLLIDING[0].hashCode(), COLLIDING[3].hashCode());
+        StringCache cache = new StringCache(2);
+        String first = cache.intern(copy(COLLIDING[0]));
+        String second = cache.intern(copy(COLLIDING[1]));
+
+        // The newer string takes the slot and the older one moves to the next, so both stay cached
+        assertSame(first, cache.intern(copy(COLLIDING[0])));
+        assertSame(second, cache.intern(copy(COLLIDING[1])));
+        assertSame(first, get(cache, COLLIDING[0]));
+
+        // A third pushes out the oldest, which is cached again as a fresh instance
+        String third = cache.intern(copy(COLLIDING[2]));
+        assertSame(third, cache.intern(copy(COLLIDING[2])));
+        assertSame(second, cache.intern(copy(COLLIDING[1])));
+        assertNotSame(first, cache.intern(copy(COLLIDING[0])));
+    }
+
+    @Test
+    public void longStringsAreNotCached() {
+        StringCache cache = new StringCache(16, 4);
+        assertSame(cache.intern(copy("abcd")), cache.intern(copy("abcd")));
+        assertSame(get(cache, "wxyz"), get(cache, "wxyz"));
+
+        String longer = copy("abcde");
+        assertSame(longer, cache.intern(longer));
+        assertNotSame(longer, cache.intern(copy("abcde")));
+        String fetched = get(cache, "vwxyz");
+        assertEquals("vwxyz", fetched);
+        assertNotSame(fetched, get(cache, "vwxyz"));
+    }
+
+    @Test
+    public void capacityMustBePositive() {
+        try {
+            new StringCache(0);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            new StringCache(-1, 16);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void readersShareCachedValues() throws IOException {
+        StringCache cache = new StringCache(16);
+        String json = "[\"ab\",\"ab\",\"a\\u0062\",\"\u00e9t\u00e9\",\"\u00e9t\u00e9\",\"\\u00e9t\\u00e9\","
+                + "\"\\u00e9t\\u00e9\"]";
+        for (JsonReader reader : new JsonReader[] {
+                new Utf8JsonReader(json.getBytes(StandardCharsets.UTF_8)),
+                new Utf8JsonReader(trickle(json)) }) {
+            reader.beginArray();
+            String ab = reader.nextString(cache);
+            assertEquals("ab", ab);
+            assertSame(ab, reader.nextString(cache));
+            // Escaped strings fall back to interning the decoded value, which hashes alike for ASCII
+            assertSame(ab, reader.nextString(cache));
+
+            // Non-ASCII strings are cached by their encoded bytes or, when escaped, by their chars. The two
+            // hash differently, so each form is canonical on its own.
+            String literal = reader.nextString(cache);
+            assertEquals("\u00e9t\u00e9", literal);
+            assertSame(literal, reader.nextString(cache));
+            String escaped = reader.nextString(cache);
+            assertEquals("\u00e9t\u00e9", escaped);
+            assertSame(escaped, reader.nextString(cache));
+            reader.endArray();
+        }
+    }
+
+    @Test
+    public void readersSkipLongValues() throws IOException {
+        StringCache cache = new StringCache(16, 8);
+        String value = "0123456789";
+        Utf8JsonReader reader = new Utf8JsonReader(
+                ("[\"" + value + "\",\"" + value + "\"]").getBytes(StandardCharsets.UTF_8));
+        reader.beginArray();
+        String first = reader.nextString(cache);
+        assertEquals(value, first);
+        assertNotSame(first, reader.nextString(cache));
+        reader.endArray();
+    }
+
+    @Test
+    public void cborReadersShareCachedValues() throws IOException {
+        StringCache cache = new StringCache(16);
+        String interned = cache.intern(copy("ab"));
+
+        // A definite string is looked up by its bytes, an indefinite one is assembled and interned
+        CborReader reader = new CborReader(bytes(0x83, 0x62, 'a', 'b', 0x7f, 0x61, 'a', 0x61, 'b', 0xff,
+                0x62, 0xc3, 0xa9));
+        reader.beginArray();
+        assertSame(interned, reader.nextString(cache));
+        assertSame(interned, reader.nextString(cache));
+        assertEquals("\u00e9", reader.nextString(cache));
+        reader.endArray();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void mapKeysAreCached() throws IOException {
+        StringCache cache = new StringCache(16);
+        Epoxy epoxy = new Epoxy.Builder().stringCache(cache).build();
+        List<Object> list = (List<Object>) epoxy.fromJson("[{\"id\":1},{\"id\":2}]", Object.class);
+        Map<String, Object> first = (Map<String, Object>) list.get(0);
+        Map<String, Object> second = (Map<String, Object>) list.get(1);
+
+        String key = first.keySet().iterator().next();
+        assertSame(key, second.keySet().iterator().next());
+        assertSame(key, cache.intern(copy("id")));
+    }
+
+    @Test
+    public void concurrentLookupsReturnEqualStrings() throws Exception {
+        final StringCache cache = new StringCache(4);
+        final CyclicBarrier barrier = new CyclicBarrier(4);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        barrier.await();
+                        for (int i = 0; i < 10000; i++) {
+                            String value = COLLIDING[(i + offset) % COLLIDING.length];
+                            String result = (i & 1) == 0 ? cache.intern(copy(value)) : get(cache, value);
+                            if (!value.equals(result)) {
+                                throw new AssertionError(value + " != " + result);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+    }
+
+    @NonNull
+    private static String get(@NonNull StringCache cache, @NonNull String value) {
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        int hash = 0;
+        for (byte b : encoded) {
+            hash = JsonOptions.hash(hash, b);
+        }
+        return cache.get(encoded, 0, encoded.length, hash);
+    }
+
+    @NonNull
+    private static String copy(@NonNull String value) {
+        return new String(value.toCharArray());
+    }
+}
@@ -0,0 +1,407 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.oriley.epoxy;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public final class Utf8JsonReaderTest {
+
+    private static final String DOCUMENT = "{\"name\":\"caf\\u00e9 \\\"\\\\\\/\\b\\f\\n\\r\\t\","
+            + "\"emoji\":\"\ud83d\ude00 \\ud83d\\ude00\",\"count\":-42,\"big\":9007199254740993,"
+            + "\"ratio\":-1.5e-3,\"flags\":[true,false,null],\"nested\":{\"empty\":[],\"none\":{}}}";
+
+    @Test
+    public void readsEveryToken() throws IOException {
+        assertDocument(reader(DOCUMENT));
+    }
+
+    @Test
+    public void readsEveryTokenOneByteAtATime() throws IOException {
+        assertDocument(new Utf8JsonReader(trickle(DOCUMENT)));
+    }
+
+    private static void assertDocument(JsonReader reader) throws IOException {
+        assertEquals(JsonToken.BEGIN_OBJECT, reader.peek());
+        reader.beginObject();
+        assertEquals("name", reader.nextName());
+        assertEquals("caf\u00e9 \"\\/\b\f\n\r\t", reader.nextString());
+        assertEquals("emoji", reader.nextName());
+        assertEquals("\ud83d\ude00 \ud83d\ude00", reader.nextString());
+        assertEquals("count", reader.nextName());
+        assertEquals(JsonToken.NUMBER, reader.peek());
+        assertEquals(-42, reader.nextInt());
+        assertEquals("big", reader.nextName());
+        assertEquals(9007199254740993L, reader.nextLong());
+        assertEquals("ratio", reader.nextName());
+        assertEquals(-1.5e-3, reader.nextDouble(), 0);
+        assertEquals("flags", reader.nextName());
+        reader.beginArray();
+        assertTrue(reader.nextBoolean());
+        assertFalse(reader.nextBoolean());
+        assertEquals(JsonToken.NULL, reader.peek());
+        reader.nextNull();
+        assertFalse(reader.hasNext());
+        reader.endArray();
+        assertEquals("nested", reader.nextName());
+        reader.beginObject();
+        assertEquals("empty", reader.nextName());
+        reader.beginArray();
+        reader.endArray();
+        assertEquals("none", reader.nextName());
+        reader.beginObject();
+        reader.endObject();
+        reader.endObject();
+        reader.endObject();
+        assertEquals(JsonToken.END_DOCUMENT, reader.peek());
+    }
+
+    @Test
+    public void numbersConvertBetweenTypes() throws IOException {
+        JsonReader reader = reader("[1.0,\"12\",1e2,123456789012,2147483647,-2147483648,0.1,-0]");
+        reader.beginArray();
+        assertEquals(1, reader.nextInt());
+        assertEquals(12, reader.nextInt());
+        assertEquals(100, reader.nextLong());
+        assertEquals("123456789012", reader.nextString());
+        assertEquals(Integer.MAX_VALUE, reader.nextInt());
+        assertEquals(Integer.MIN_VALUE, reader.nextInt());
+        assertEquals(0.1, reader.nextDouble(), 0);
+        assertEquals(Double.doubleToLongBits(-0.0), Double.doubleToLongBits(reader.nextDouble()));
+        reader.endArray();
+    }
+
+    @Test
+    public void numbersOutOfRange() throws IOException {
+        assertNotInt("2147483648");
+        assertNotInt("-2147483649");
+        assertNotInt("2147483647.0000000001");
+        assertNotInt("1.5");
+        assertNotLong("9223372036854775808");
+        assertNotLong("-9223372036854775809");
+        assertNotLong("9223372036854775808.0");
+        assertNotLong("18446744073709551616");
+        assertNotLong("9007199254740993.5");
+        assertNotLong("99999999999e8");
+        assertNotLong("1e400");
+        assertNotLong("\"1e400\"");
+        assertNotLong("\"NaN\"");
+
+        JsonReader reader = reader("[2147483648,\"9007199254740993.0\",9223372036854775807e0,-9.223372036854775808e18,"
+                + "1e300]");
+        reader.beginArray();
+        assertEquals(2147483648L, reader.nextLong());
+        assertEquals(9007199254740993L, reader.nextLong());
+        assertEquals(Long.MAX_VALUE, reader.nextLong());
+        assertEquals(Long.MIN_VALUE, reader.nextLong());
+        assertEquals(1e300, reader.nextDouble(), 0);
+        reader.endArray();
+    }
+
+    private static void assertNotInt(String number) throws IOException {
+        JsonReader reader = reader("[" + number + "]");
+        reader.beginArray();
+        try {
+            fail("Read " + reader.nextInt() + " from " + number);
+        } catch (NumberFormatException expected) {
+        }
+    }
+
+    private static void assertNotLong(String number) throws IOException {
+        JsonReader reader = reader("[" + number + "]");
+        reader.beginArray();
+        try {
+            fail("Read " + reader.nextLong() + " from " + number);
+        } catch (NumberFormatException expected) {
+        }
+    }
+
+    @Test
+    public void nonFiniteNumbersAreRejected() throws IOException {
+        for (String number : new String[]{"1e400", "-1e400", "\"NaN\"", "\"-Infinity\""}) {
+            JsonReader reader = reader("[" + number + "]");
+            reader.beginArray();
+            try {
+                fail("Read " + reader.nextDouble() + " from " + number);
+            } catch (MalformedJsonException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void skipsValues() throws IOException {
+        JsonReader reader = reader("{\"a\":[1,{\"b\":\"]}\\\"\"},[[]]],\"c\":{\"d\":null},\"e\":\"x\",\"f\":2}");
+        reader.beginObject();
+        reader.skipValue();
+        reader.skipValue();
+        assertEquals("c", reader.nextName());
+        reader.skipValue();
+        assertEquals("e", reader.nextName());
+        reader.skipValue();
+        assertEquals("f", reader.nextName());
+        assertEquals(2, reader.nextInt());
+        reader.endObject();
+    }
+
+    @Test
+    public void wrongTokenFails() throws IOException {
+        JsonReader reader = reader("[\"a\"]");
+        try {
+            reader.beginObject();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        reader.beginArray();
+        try {
+            reader.nextBoolean();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals("a", reader.nextString());
+        try {
+            reader.endObject();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void malformedDocumentsFail() throws IOException {
+        assertMalformed("[1,]");
+        assertMalformed("{\"a\" 1}");
+        assertMalformed("{a:1}");
+        assertMalformed("['a']");
+        assertMalformed("[NaN]");
+        assertMalformed("[01]");
+        assertMalformed("[\"\\x\"]");
+        assertMalformed("[1] [2]");
+        assertMalformed("[\"\\u00");
+    }
+
+    @Test
+    public void truncatedDocumentsFail() throws IOException {
+        assertTruncated("[1");
+        assertTruncated("{\"a\":");
+        assertTruncated("[\"abc");
+    }
+
+    private static void assertMalformed(String json) throws IOException {
+        try {
+            readAll(reader(json));
+            fail("Read " + json);
+        } catch (MalformedJsonException | NumberFormatException expected) {
+        }
+    }
+
+    private static void assertTruncated(String json) throws IOException {
+        try {
+            readAll(new Utf8JsonReader(trickle(json)));
+            fail("Read " + json);
+        } catch (EOFException expected) {
+        }
+    }
+
+    /**
+     * Reads every token of a document, failing on trailing content.
+     */
+    private static void readAll(JsonReader reader) throws IOException {
+        do {
+            switch (reader.peek()) {
+                case BEGIN_ARRAY:
+                    reader.beginArray();
+                    break;
+                case END_ARRAY:
+                    reader.endArray();
+                    break;
+                case BEGIN_OBJECT:
+                    reader.beginObject();
+                    break;
+                case END_OBJECT:
+                    reader.endObject();
+                    break;
+                case NAME:
+                    reader.nextName();
+                    break;
+                case STRING:
+                    reader.nextString();
+                    break;
+                case NUMBER:
+                    reader.nextDouble();
+                    break;
+                case BOOLEAN:
+                    reader.nextBoolean();
+                    break;
+                case NULL:
+                    reader.nextNull();
+                    break;
+                default:
+                    throw new AssertionError();
+            }
+        } while (reader.peek() != JsonToken.END_DOCUMENT);
+    }
+
+    @Test
+    public void longNamesAtTheBoundaries() throws IOException {
+        assertEquals(Long.MAX_VALUE, readLongName("9223372036854775807"));
+        assertEquals(Long.MIN_VALUE, readLongName("-9223372036854775808"));
+        assertEquals(0, readLongName("0"));
+        assertEquals(-1, readLongName("-1"));
+    }
+
+    @Test
+    public void longNamesOutOfRange() throws IOException {
+        assertLongNameFails("9223372036854775808");
+        assertLongNameFails("-9223372036854775809");
+        assertLongNameFails("18446744073709551616");
+    }
+
+    @Test
+    public void longNamesThatAreNotNumbers() throws IOException {
+        assertLongNameFails("");
+        assertLongNameFails("-");
+        assertLongNameFails("1a");
+    }
+
+    @Test
+    public void rawValuesAreTheInputBytes() throws IOException {
+        String[] values = {"{ \"a\" : [1, 2.50, \"x\\\"y\" ] }", "true", "false", "null", "-12", "1.5e3",
+                "0.10", "\"caf\\u00e9 \u00e9\"", "[]", "{}", "[[[{\"b\":[]}]]]"};
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < values.length; i++) {
+            json.append(i == 0 ? "" : " ,\n ").append(values[i]);
+        }
+        json.append(" ]");
+
+        for (Utf8JsonReader reader : new Utf8JsonReader[]{reader(json.toString()),
+                new Utf8JsonReader(trickle(json.toString()))}) {
+            reader.beginArray();
+            for (String value : values) {
+                assertEquals(value, new String(reader.nextRawValue(), StandardCharsets.UTF_8));
+            }
+            reader.endArray();
+            assertEquals(JsonToken.END_DOCUMENT, reader.peek());
+        }
+    }
+
+    @Test
+    public void rawValuesAfterPeekingAndNames() throws IOException {
+        String json = "{\"a\": 123, \"b\": \"s\", \"c\": {\"d\": null}}";
+        for (Utf8JsonReader reader : new Utf8JsonReader[]{reader(json), new Utf8JsonReader(trickle(json))}) {
+            reader.beginObject();
+            assertEquals("a", reader.nextName());
+            assertEquals(JsonToken.NUMBER, reader.peek());
+            assertEquals("123", new String(reader.nextRawValue(), StandardCharsets.UTF_8));
+            assertEquals("b", reader.nextName());
+            assertEquals(JsonToken.STRING, reader.peek());
+            assertEquals("\"s\"", new String(reader.nextRawValue(), StandardCharsets.UTF_8));
+            assertEquals("c", reader.nextName());
+            assertEquals("{\"d\": null}", new String(reader.nextRawValue(), StandardCharsets.UTF_8));
+            reader.endObject();
+            try {
+                reader.nextRawValue();
+                fail();
+            } catch (IllegalStateException | EOFException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void rawValuesLargerThanTheBufferSurviveRefills() throws IOException {
+        StringBuilder value = new StringBuilder("[");
+        for (int i = 0; i < 5000; i++) {
+            value.append(i == 0 ? "" : ", ").append("{\"i\": ").append(i).append(", \"s\": \"\u00e9\\\"\"}");
+        }
+        value.append("]");
+        String json = "{\"skip\": \"" + repeat('x', 20000) + "\", \"raw\": " + value + ", \"after\": 1}";
+
+        Utf8JsonReader reader = new Utf8JsonReader(trickle(json));
+        reader.beginObject();
+        assertEquals("skip", reader.nextName());
+        reader.skipValue();
+        assertEquals("raw", reader.nextName());
+        assertEquals(value.toString(), new String(reader.nextRawValue(), StandardCharsets.UTF_8));
+        // Reading carries on normally once the capture is done
+        assertEquals("after", reader.nextName());
+        assertEquals(1, reader.nextInt());
+        reader.endObject();
+        assertEquals(json.getBytes(StandardCharsets.UTF_8).length, reader.bytesRead());
+    }
+
+    @Test
+    public void truncatedRawValuesFail() throws IOException {
+        for (String json : new String[]{"[1, {\"a\": [", "[\"abc", "["}) {
+            Utf8JsonReader reader = new Utf8JsonReader(trickle(json));
+            reader.beginArray();
+            if (json.startsWith("[1")) {
+                reader.nextInt();
+            }
+            try {
+                fail("Read " + new String(reader.nextRawValue(), StandardCharsets.UTF_8));
+            } catch (EOFException expected) {
+            }
+        }
+    }
+
+    private static long readLongName(String name) throws IOException {
+        JsonReader reader = reader("{\"" + name + "\":true}");
+        reader.beginObject();
+        long value = reader.nextLongName();
+        reader.nextBoolean();
+        reader.endObject();
+        return value;
+    }
+
+    private static void assertLongNameFails(String name) throws IOException {
+        try {
+            fail("Read " + readLongName(name) + " from " + name);
+        } catch (NumberFormatException expected) {
+        }
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    private static Utf8JsonReader reader(String json) {
+        return new Utf8JsonReader(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns a stream of {@code json} that reads a byte at a time, so every token straddles a refill.
+     */
+    static InputStream trickle(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public synchronized int read(byte[] buffer, int offset, int length) {
+                return super.read(buffer, offset, Math.min(length, 1));
+            }
+        };
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2016 Kane O'Riley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.oriley.epoxy;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public final class Utf8JsonWriterTest {
+
+    @Test
+    public void writesEveryToken() throws IOException {
+        Utf8JsonWriter writer = new Utf8JsonWriter();
+        writer.beginObject()
+                .name("a").value("b")
+                .name("c").beginArray().value(true).value(false).nullValue().value((String) null).endArray()
+                .name("d").beginObject().endObject()
+                .name("e").beginArray().endArray()
+                .name("f").value(-42L)
+                .name("g").value(1.5)
+                .name("h").value(0.1f)
+                .name("i").value(new BigDecimal("1.10"))
+                .endObject();
+        assertEquals("{\"a\":\"b\",\"c\":[true,false,null,null],\"d\":{},\"e\":[],\"f\":-42,\"g\":1.5,\"h\":0.1,"
+                + "\"i\":1.10}", writer.toString());
+        assertEquals(writer.toString().length(), writer.size());
+    }
+
+    @Test
+    public void writesPreEncodedNamesAndValues() throws IOException {
+        JsonOptions options = JsonOptions.of("first", "s\u00e9cond");
+        Utf8JsonWriter writer = new Utf8JsonWriter();
+        writer.beginObject()
+                .name(options, 1).value(options, 0)
+                .name(options, 0).value(options, 1)
+                .endObject();
+        assertEquals("{\"s\u00e9cond\":\"first\",\"first\":\"s\u00e9cond\"}", writer.toString());
+    }
+
+    @Test
+    public void escapesStrings() throws IOException {
+        Utf8JsonWriter writer = new Utf8JsonWriter();
+        writer.value("\"\\/\b\f\n\r\t\u0000\u001f\u007f \u00e9 \u20ac \ud83d\ude00 \u2028\u2029 \ud83d");
+        assertEquals("\"\\\"\\\\/\\b\\f\\n\\r\\t\\u0000\\u001f\u007f \u00e9 \u20ac \ud83d\ude00 \\u2028\\u2029 ?\"",
+                writer.toString());
+    }
+
+    @Test
+    public void writesLongStringsThroughSink() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        Random random = new Random(3);
+        for (int i = 0; i < 50000; i++) {
+            builder.append((char) (random.nextBoolean() ? 'a' + random.nextInt(26) : 0x20 + random.nextInt(0xd000)));
+        }
+        String value = builder.toString();
+
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        Utf8JsonWriter writer = new Utf8JsonWriter(sink);
+        writer.beginArray().value(value).value(value).endArray();
+        writer.flush();
+        assertEquals(sink.size(), writer.bytesWritten());
+
+        JsonReader reader = new Utf8JsonReader(sink.toByteArray());
+        reader.beginArray();
+        assertEquals(value, reader.nextString());
+        assertEquals(value, reader.nextString());
+        reader.endArray();
+    }
+
+    @Test
+    public void numbersReadBack() throws IOException {
+        Random random = new Random(11);
+        Utf8JsonWriter writer = new Utf8JsonWriter();
+        double[] doubles = new double[1000];
+        long[] longs = new long[doubles.length];
+        writer.beginArray();
+        for (int i = 0; i < doubles.length; i++) {
+            do {
+                doubles[i] = Double.longBitsToDouble(random.nextLong());
+            } while (Double.isNaN(doubles[i]) || Double.isInfinite(doubles[i]));
+            longs[i] = i < 2 ? (i == 0 ? Long.MIN_VALUE : Long.MAX_VALUE) : random.nextLong() >> random.nextInt(64);
+            writer.value(doubles[i]).value(longs[i]);
+        }
+        writer.endArray();
+
+        JsonReader reader = new Utf8JsonReader(writer.toByteArray());
+        reader.beginArray();
+        for (int i = 0; i < doubles.length; i++) {
+            assertEquals(Double.doubleToLongBits(doubles[i]), Double.doubleToLongBits(reader.nextDouble()));
+            assertEquals(longs[i], reader.nextLong());
+        }
+        reader.endArray();
+    }
+
+    @Test
+    public void nonFiniteNumbersAreRejected() throws IOException {
+        Utf8JsonWriter writer = new Utf8JsonWriter();
+        writer.beginArray();
+        for (Number value : new Number[]{Double.NaN, Double.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY}) {
+            try {
+                writer.value(value);
+                fail("Wrote " + value);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+        try {
+            writer.value(Double.POSITIVE_INFINITY);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            writer.value(Float.NaN);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        writer.endArray();
+        assertEquals("[]", writer.toString());
+    }
+
+    @Test
+    public void nestingProblemsAreRejected() throws IOException {
+        Utf8JsonWriter writer = new Utf8JsonWriter();
+        writer.beginArray();
+        try {
+            writer.name("a");
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            writer.endObject();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        writer.endArray();
+        try {
+            writer.value(1);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+        writer = new Utf8JsonWriter();
+        writer.beginObject();
+        try {
+            writer.value("a");
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void rawValuesAreCopied() throws IOException {
+        Utf8JsonWriter writer = new Utf8JsonWriter();
+        writer.beginArray().rawValue("{\"a\": [1, 2]}".getBytes("UTF-8")).value(3).endArray();
+        assertEquals("[{\"a\": [1, 2]},3]", writer.toString());
+    }
+}